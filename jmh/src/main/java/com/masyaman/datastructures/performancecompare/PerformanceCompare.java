@@ -1,7 +1,16 @@
 package com.masyaman.datastructures.performancecompare;
 
+import com.masyaman.datastructures.collections.BigIndexedTreeListSet;
+import com.masyaman.datastructures.collections.HashingStrategy;
+import com.masyaman.datastructures.collections.HybridIndexedTreeListSet;
+import com.masyaman.datastructures.collections.IndexedArrayTreeListSet;
+import com.masyaman.datastructures.collections.IndexedChunkedList;
+import com.masyaman.datastructures.collections.IndexedChunkedListSet;
+import com.masyaman.datastructures.collections.IndexedIntTreeListSet;
+import com.masyaman.datastructures.collections.IndexedLongTreeList;
 import com.masyaman.datastructures.collections.IndexedTreeList;
 import com.masyaman.datastructures.collections.IndexedTreeListSet;
+import com.masyaman.datastructures.collections.TreeBalancing;
 import org.apache.commons.collections4.list.TreeList;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
@@ -10,6 +19,9 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -22,7 +34,9 @@ import java.util.stream.Stream;
 @Measurement(iterations = 5)
 public class PerformanceCompare {
 
-    public static final Map<String, Class> CLASSES = Stream.of(TreeList.class, IndexedTreeListSet.class, IndexedTreeList.class)
+    public static final Map<String, Class> CLASSES = Stream.of(TreeList.class, IndexedTreeListSet.class, IndexedTreeList.class,
+            IndexedChunkedListSet.class, IndexedChunkedList.class, IndexedIntTreeListSet.class, IndexedLongTreeList.class,
+            IndexedArrayTreeListSet.class, BigIndexedTreeListSet.class, HybridIndexedTreeListSet.class, ArrayList.class)
             .collect(Collectors.toMap(c -> c.getSimpleName(), c -> c));
 
     @State(Scope.Benchmark)
@@ -36,18 +50,79 @@ public class PerformanceCompare {
 //        @Param({"1000000"})
         @Param({ "1000", "1000000"})
 //        @Param({"100", "1000", "10000", "100000", "1000000"})
+//        @Param({"8", "16", "32", "33", "64", "128"})
         public int size;
 
-        @Param({"TreeList", "IndexedTreeListSet", "IndexedTreeList"})
+        @Param({"TreeList", "IndexedTreeListSet", "IndexedTreeList", "IndexedChunkedListSet", "IndexedChunkedList"})
+//        @Param({"IndexedTreeListSet", "IndexedIntTreeListSet", "IndexedTreeList", "IndexedLongTreeList",
+//                "IndexedArrayTreeListSet", "BigIndexedTreeListSet"})
+//        @Param({"IndexedTreeListSet", "HybridIndexedTreeListSet"})
         public String className;
 
+        @Param({"false"})
+//        @Param({"false", "true"})
+        public boolean nodeRecycling;
+
+        @Param({"AVL"})
+//        @Param({"AVL", "RELAXED", "SPLAY"})
+        public String balancing;
+
+        @Param({"false"})
+//        @Param({"false", "true"})
+        public boolean fingerSearch;
+
+        /**
+         * IndexedTreeListSet uses it's own hash index with nodes as hash table entries instead of HashMap.
+         */
+        @Param({"false"})
+//        @Param({"false", "true"})
+        public boolean hashIndex;
+
+        /**
+         * Capacity of append buffer of IndexedTreeList, 0 disables it.
+         */
+        @Param({"0"})
+//        @Param({"0", "65536"})
+        public int appendBuffer;
+
+        /**
+         * Distribution of accessed indexes: uniform, zipf, where zipf prefers recently added (tail) positions,
+         * or walk, where each index is close to the previous one.
+         */
+        @Param({"uniform"})
+//        @Param({"uniform", "zipf", "walk"})
+        public String distribution;
+
         private Random random;
         private List<Integer> list;
+        private int[] accessIndexes;
+        private int accessCursor;
 
         @Setup
         public void init() throws IllegalAccessException, InstantiationException {
             random = new Random();
             list = (List<Integer>) CLASSES.get(className).newInstance();
+            if (list instanceof IndexedLongTreeList) {
+                list = new LongListView((IndexedLongTreeList) (List) list);
+            }
+            if (hashIndex && list instanceof IndexedTreeListSet) {
+                list = new IndexedTreeListSet<>(HashingStrategy.defaultStrategy());
+            }
+            if (nodeRecycling && list instanceof IndexedTreeListSet) {
+                ((IndexedTreeListSet<Integer>) list).setNodeRecycling(true);
+                ((IndexedTreeListSet<Integer>) list).ensureCapacity(size);
+            } else if (nodeRecycling && list instanceof IndexedTreeList) {
+                ((IndexedTreeList<Integer>) list).setNodeRecycling(true);
+                ((IndexedTreeList<Integer>) list).ensureCapacity(size);
+            }
+            if (list instanceof IndexedTreeListSet) {
+                ((IndexedTreeListSet<Integer>) list).setBalancing(TreeBalancing.valueOf(balancing));
+                ((IndexedTreeListSet<Integer>) list).setFingerSearch(fingerSearch);
+            } else if (list instanceof IndexedTreeList) {
+                ((IndexedTreeList<Integer>) list).setBalancing(TreeBalancing.valueOf(balancing));
+                ((IndexedTreeList<Integer>) list).setFingerSearch(fingerSearch);
+                ((IndexedTreeList<Integer>) list).setAppendBuffer(appendBuffer);
+            }
 
             if (list instanceof Set && maxValue <= size) {
                 throw new IllegalArgumentException("Too small value is set for Set");
@@ -56,6 +131,54 @@ public class PerformanceCompare {
             for (int i = 0; i < size; i++) {
                 list.add(random.nextInt(maxValue));
             }
+            if ("zipf".equals(distribution)) {
+                accessIndexes = zipfIndexes(list.size(), 1 << 16);
+            } else if ("walk".equals(distribution)) {
+                accessIndexes = walkIndexes(list.size(), 1 << 16);
+            }
+        }
+
+        /**
+         * Next index to access, it's taken from precomputed indexes so distribution doesn't affect score.
+         */
+        int nextIndex() {
+            if (accessIndexes == null) {
+                return random.nextInt(list.size());
+            }
+            final int index = accessIndexes[accessCursor++ & (accessIndexes.length - 1)];
+            return index < list.size() ? index : list.size() - 1;
+        }
+
+        /**
+         * Zipf distribution (s = 1) of distance from the tail of a list.
+         */
+        private int[] zipfIndexes(final int n, final int count) {
+            final double[] cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / (i + 1);
+                cdf[i] = sum;
+            }
+            final int[] indexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                int k = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+                k = Math.min(k < 0 ? -k - 1 : k, n - 1);
+                indexes[i] = n - 1 - k;
+            }
+            return indexes;
+        }
+
+        /**
+         * Random walk by indexes with steps from -4 to 4.
+         */
+        private int[] walkIndexes(final int n, final int count) {
+            final int[] indexes = new int[count];
+            int index = random.nextInt(n);
+            for (int i = 0; i < count; i++) {
+                index = Math.floorMod(index + random.nextInt(9) - 4, n);
+                indexes[i] = index;
+            }
+            return indexes;
         }
     }
 
@@ -105,13 +228,46 @@ public class PerformanceCompare {
     @Benchmark
     public void get(Plan plan, Blackhole blackhole) {
         List<Integer> list = plan.list;
-        Random random = plan.random;
         for (int i = 0; i < plan.size; i++) {
-            Integer value = list.get(random.nextInt(list.size()));
+            Integer value = list.get(plan.nextIndex());
             blackhole.consume(value);
         }
     }
 
+    /**
+     * Search of existing values, it's linear for TreeList, so TreeList should be excluded for big sizes.
+     */
+    @Benchmark
+    public void indexOf(Plan plan, Blackhole blackhole) {
+        List<Integer> list = plan.list;
+        for (int i = 0; i < plan.size; i++) {
+            blackhole.consume(list.indexOf(list.get(plan.nextIndex())));
+        }
+    }
+
+    /**
+     * Get without boxing for primitive lists, other lists are accessed by boxing get.
+     */
+    @Benchmark
+    public void getPrimitive(Plan plan, Blackhole blackhole) {
+        List<Integer> list = plan.list;
+        if (list instanceof IndexedIntTreeListSet) {
+            IndexedIntTreeListSet intList = (IndexedIntTreeListSet) list;
+            for (int i = 0; i < plan.size; i++) {
+                blackhole.consume(intList.getInt(plan.nextIndex()));
+            }
+        } else if (list instanceof LongListView) {
+            IndexedLongTreeList longList = ((LongListView) list).longs;
+            for (int i = 0; i < plan.size; i++) {
+                blackhole.consume(longList.getLong(plan.nextIndex()));
+            }
+        } else {
+            for (int i = 0; i < plan.size; i++) {
+                blackhole.consume(list.get(plan.nextIndex()));
+            }
+        }
+    }
+
     @Benchmark
     public void iterate(Plan plan, Blackhole blackhole) {
         List<Integer> list = plan.list;
@@ -121,6 +277,57 @@ public class PerformanceCompare {
         }
     }
 
+    /**
+     * Integer view of IndexedLongTreeList, so it's measured by the same benchmarks as other lists.
+     * Values are stored as primitive longs, view boxes them the same way as other lists do.
+     */
+    static class LongListView extends AbstractList<Integer> {
+        final IndexedLongTreeList longs;
+
+        LongListView(IndexedLongTreeList longs) {
+            this.longs = longs;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return (int) longs.getLong(index);
+        }
+
+        @Override
+        public int size() {
+            return longs.size();
+        }
+
+        @Override
+        public Integer set(int index, Integer element) {
+            return (int) longs.setLong(index, element);
+        }
+
+        @Override
+        public void add(int index, Integer element) {
+            longs.add(index, (long) element);
+        }
+
+        @Override
+        public Integer remove(int index) {
+            return (int) longs.removeLong(index);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof Integer ? longs.indexOf((long) (Integer) o) : -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && longs.contains((long) (Integer) o);
+        }
+
+        @Override
+        public void clear() {
+            longs.clear();
+        }
+    }
 
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
@@ -0,0 +1,606 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+
+/**
+ * Common class for indexed lists which keep their tree in primitive arrays.
+ * <p>
+ * Nodes are int ids, links of a node and size of it's left subtree are kept next to each other in one int array,
+ * so walking a tree reads one cache line per node and there are no objects per element. Heights are kept in
+ * separate byte array as they are used by rebalancing only. Id 0 is a sentinel which stands for missing node.
+ * Ids of removed nodes are kept in a free list and reused. The tree is AVL tree, get by index and position
+ * of a node are O(log n). Like relative positions of AVLNode, sizes of left subtrees are updated only on the
+ * path from the root, so rebalancing stops as soon as height of a subtree is not changed.
+ * <p>
+ * Subclasses keep values of nodes in their own arrays indexed by the same ids and a map from value to id.
+ *
+ * @author Aleksandr Maksymenko
+ */
+abstract class AbstractIndexedArrayTreeList<E> extends AbstractList<E> {
+
+    /** Initial capacity of node arrays including sentinel. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Maximal capacity of node arrays. */
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE >> 2) - 8;
+
+    /** Amount of ints per node. */
+    private static final int STRIDE_SHIFT = 2;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int PARENT = 2;
+    private static final int LEFT_SIZE = 3;
+
+    /** Links and sizes of left subtrees of nodes, node with id i takes ints from 4 * i to 4 * i + 3. */
+    private int[] nodes;
+
+    /** Heights of nodes. */
+    private byte[] heights;
+
+    /** Id of the root, 0 for empty list. */
+    private int root;
+
+    /** Amount of elements. */
+    private int size;
+
+    /** Id which is given to a new node if free list is empty. */
+    private int nextId = 1;
+
+    /** The first id of free list, ids of free list are linked by right link. */
+    private int freeList;
+
+    /**
+     * Constructs a new empty list. Subclass should allocate arrays of values of {@link #capacity()} length.
+     *
+     * @param capacity expected amount of elements
+     */
+    AbstractIndexedArrayTreeList(final int capacity) {
+        final int length = Math.min(Math.max(capacity + 1, DEFAULT_CAPACITY), MAX_CAPACITY);
+        nodes = new int[length << STRIDE_SHIFT];
+        heights = new byte[length];
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the current size of the list.
+     *
+     * @return the current size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears the list, removing all entries. Arrays keep their capacity.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        root = 0;
+        size = 0;
+        nextId = 1;
+        freeList = 0;
+    }
+
+    /**
+     * Increases the capacity of node arrays, so specified amount of elements can be kept without resizing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(final int minCapacity) {
+        if (minCapacity >= heights.length) {
+            resize(minCapacity + 1);
+        }
+    }
+
+    /**
+     * Returns an iterator which walks nodes in order, so the whole iteration is O(n).
+     *
+     * @return iterator over elements of the list
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next = firstNode();
+            private int current;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != 0;
+            }
+
+            @Override
+            public E next() {
+                checkModCount();
+                if (next == 0) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = nextNode(next);
+                return valueOf(current);
+            }
+
+            @Override
+            public void remove() {
+                checkModCount();
+                if (current == 0) {
+                    throw new IllegalStateException();
+                }
+                AbstractIndexedArrayTreeList.this.remove(positionOf(current));
+                current = 0;
+                expectedModCount = modCount;
+            }
+
+            private void checkModCount() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the elements in this list.
+     *
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Get value of a node as an element of the list.
+     *
+     * @param id id of the node
+     * @return value of the node
+     */
+    abstract protected E valueOf(int id);
+
+    /**
+     * Resize arrays of values, so they can hold specified amount of ids.
+     *
+     * @param capacity new length of arrays
+     */
+    abstract protected void resizeValues(int capacity);
+
+    //-----------------------------------------------------------------------
+    /**
+     * Get length of node arrays, ids are less than it.
+     *
+     * @return length of node arrays
+     */
+    protected int capacity() {
+        return heights.length;
+    }
+
+    /**
+     * Get id of node by it's index.
+     *
+     * @param index index of the node
+     * @return id of the node
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    protected int nodeAt(int index) {
+        checkInterval(index, 0, size - 1);
+        final int[] nodes = this.nodes;
+        int node = root;
+        while (true) {
+            final int base = node << STRIDE_SHIFT;
+            final int leftSize = nodes[base + LEFT_SIZE];
+            if (index < leftSize) {
+                node = nodes[base + LEFT];
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = nodes[base + RIGHT];
+            }
+        }
+    }
+
+    /**
+     * Get position of a node in the list.
+     *
+     * @param id id of the node
+     * @return position of the node
+     */
+    protected int positionOf(int id) {
+        final int[] nodes = this.nodes;
+        int position = nodes[(id << STRIDE_SHIFT) + LEFT_SIZE];
+        int parentId = nodes[(id << STRIDE_SHIFT) + PARENT];
+        while (parentId != 0) {
+            final int base = parentId << STRIDE_SHIFT;
+            if (nodes[base + RIGHT] == id) {
+                position += nodes[base + LEFT_SIZE] + 1;
+            }
+            id = parentId;
+            parentId = nodes[base + PARENT];
+        }
+        return position;
+    }
+
+    /**
+     * Get id of the first node.
+     *
+     * @return id of the first node, 0 for empty list
+     */
+    protected int firstNode() {
+        int node = root;
+        while (left(node) != 0) {
+            node = left(node);
+        }
+        return node;
+    }
+
+    /**
+     * Get id of the node which follows specified one.
+     *
+     * @param id id of the node
+     * @return id of the next node, 0 for the last node
+     */
+    protected int nextNode(int id) {
+        if (right(id) != 0) {
+            id = right(id);
+            while (left(id) != 0) {
+                id = left(id);
+            }
+            return id;
+        }
+        while (parent(id) != 0 && right(parent(id)) == id) {
+            id = parent(id);
+        }
+        return parent(id);
+    }
+
+    /**
+     * Create a new node and link it into the tree at specified index. Subclass should set it's value.
+     *
+     * @param index index of the new node
+     * @return id of the new node
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    protected int insertNode(int index) {
+        checkInterval(index, 0, size);
+        modCount++;
+        final int id = newId();
+        final int[] nodes = this.nodes;
+        final int idBase = id << STRIDE_SHIFT;
+        nodes[idBase + LEFT] = 0;
+        nodes[idBase + RIGHT] = 0;
+        nodes[idBase + LEFT_SIZE] = 0;
+        heights[id] = 1;
+        size++;
+        if (root == 0) {
+            nodes[idBase + PARENT] = 0;
+            root = id;
+            return id;
+        }
+        int node = root;
+        while (true) {
+            final int base = node << STRIDE_SHIFT;
+            final int leftSize = nodes[base + LEFT_SIZE];
+            if (index <= leftSize) {
+                nodes[base + LEFT_SIZE] = leftSize + 1;
+                if (nodes[base + LEFT] == 0) {
+                    nodes[base + LEFT] = id;
+                    break;
+                }
+                node = nodes[base + LEFT];
+            } else {
+                index -= leftSize + 1;
+                if (nodes[base + RIGHT] == 0) {
+                    nodes[base + RIGHT] = id;
+                    break;
+                }
+                node = nodes[base + RIGHT];
+            }
+        }
+        nodes[idBase + PARENT] = node;
+        rebalanceUp(node);
+        return id;
+    }
+
+    /**
+     * Unlink a node from the tree and put it's id into free list. Ids of other nodes are not changed.
+     *
+     * @param id id of the node
+     */
+    protected void removeNode(final int id) {
+        modCount++;
+        size--;
+        decrementLeftSizes(id, 0);
+        final int fixFrom;
+        if (left(id) == 0 || right(id) == 0) {
+            final int child = left(id) != 0 ? left(id) : right(id);
+            fixFrom = parent(id);
+            replaceChild(fixFrom, id, child);
+            if (child != 0) {
+                setParent(child, fixFrom);
+            }
+        } else {
+            // successor takes place of removed node
+            int successor = right(id);
+            while (left(successor) != 0) {
+                successor = left(successor);
+            }
+            decrementLeftSizes(successor, id);
+            if (parent(successor) == id) {
+                fixFrom = successor;
+            } else {
+                fixFrom = parent(successor);
+                setLeft(fixFrom, right(successor));
+                if (right(successor) != 0) {
+                    setParent(right(successor), fixFrom);
+                }
+                setRight(successor, right(id));
+                setParent(right(id), successor);
+            }
+            setLeft(successor, left(id));
+            setParent(left(id), successor);
+            nodes[(successor << STRIDE_SHIFT) + LEFT_SIZE] = nodes[(id << STRIDE_SHIFT) + LEFT_SIZE];
+            heights[successor] = heights[id];
+            replaceChild(parent(id), id, successor);
+            setParent(successor, parent(id));
+        }
+        rebalanceUp(fixFrom);
+        freeId(id);
+    }
+
+    /**
+     * Replace content of empty list by a balanced tree of nodes with ids from 1 to count in order.
+     * Subclass should set values of nodes, arrays of values are resized if needed.
+     *
+     * @param count amount of nodes
+     */
+    protected void buildNodes(final int count) {
+        modCount++;
+        if (count >= heights.length) {
+            resize(count + 1);
+        }
+        freeList = 0;
+        nextId = count + 1;
+        size = count;
+        root = build(1, count, 0);
+    }
+
+    private int build(final int lowId, final int highId, final int parentId) {
+        if (lowId > highId) {
+            return 0;
+        }
+        final int id = (lowId + highId) >>> 1;
+        final int leftId = build(lowId, id - 1, id);
+        final int rightId = build(id + 1, highId, id);
+        final int base = id << STRIDE_SHIFT;
+        nodes[base + LEFT] = leftId;
+        nodes[base + RIGHT] = rightId;
+        nodes[base + PARENT] = parentId;
+        nodes[base + LEFT_SIZE] = id - lowId;
+        heights[id] = (byte) (Math.max(heights[leftId], heights[rightId]) + 1);
+        return id;
+    }
+
+    //-----------------------------------------------------------------------
+    private int left(final int id) {
+        return nodes[(id << STRIDE_SHIFT) + LEFT];
+    }
+
+    private int right(final int id) {
+        return nodes[(id << STRIDE_SHIFT) + RIGHT];
+    }
+
+    private int parent(final int id) {
+        return nodes[(id << STRIDE_SHIFT) + PARENT];
+    }
+
+    private void setLeft(final int id, final int left) {
+        nodes[(id << STRIDE_SHIFT) + LEFT] = left;
+    }
+
+    private void setRight(final int id, final int right) {
+        nodes[(id << STRIDE_SHIFT) + RIGHT] = right;
+    }
+
+    private void setParent(final int id, final int parent) {
+        nodes[(id << STRIDE_SHIFT) + PARENT] = parent;
+    }
+
+    private int newId() {
+        if (freeList != 0) {
+            final int id = freeList;
+            freeList = right(id);
+            return id;
+        }
+        if (nextId == heights.length) {
+            if (heights.length == MAX_CAPACITY) {
+                throw new IllegalStateException("List is too big");
+            }
+            resize((int) Math.min(heights.length + (heights.length >> 1) + 1L, MAX_CAPACITY));
+        }
+        return nextId++;
+    }
+
+    private void freeId(final int id) {
+        final int base = id << STRIDE_SHIFT;
+        nodes[base + LEFT] = 0;
+        nodes[base + RIGHT] = freeList;
+        nodes[base + PARENT] = 0;
+        nodes[base + LEFT_SIZE] = 0;
+        heights[id] = 0;
+        freeList = id;
+    }
+
+    private void resize(final int capacity) {
+        nodes = Arrays.copyOf(nodes, capacity << STRIDE_SHIFT);
+        heights = Arrays.copyOf(heights, capacity);
+        resizeValues(capacity);
+    }
+
+    /**
+     * Decrement sizes of left subtrees of ancestors of a node which have the node in their left subtree.
+     *
+     * @param id id of the node
+     * @param top id of ancestor to stop at, 0 to walk up to the root
+     */
+    private void decrementLeftSizes(int id, final int top) {
+        int parentId = parent(id);
+        while (parentId != top) {
+            final int base = parentId << STRIDE_SHIFT;
+            if (nodes[base + LEFT] == id) {
+                nodes[base + LEFT_SIZE]--;
+            }
+            id = parentId;
+            parentId = nodes[base + PARENT];
+        }
+    }
+
+    /**
+     * Update heights from specified node up and rebalance nodes on the way. It stops at the first node which
+     * is not rotated and which height is not changed.
+     */
+    private void rebalanceUp(int node) {
+        while (node != 0) {
+            final int parentId = parent(node);
+            final int height = heights[node];
+            final int leftId = left(node);
+            final int rightId = right(node);
+            final int heightDiff = heights[leftId] - heights[rightId];
+            if (heightDiff > 1) {
+                if (heights[left(leftId)] < heights[right(leftId)]) {
+                    rotateLeft(leftId);
+                }
+                rotateRight(node);
+            } else if (heightDiff < -1) {
+                if (heights[right(rightId)] < heights[left(rightId)]) {
+                    rotateRight(rightId);
+                }
+                rotateLeft(node);
+            } else {
+                updateHeight(node);
+                if (heights[node] == height) {
+                    return;
+                }
+            }
+            node = parentId;
+        }
+    }
+
+    private void rotateLeft(final int node) {
+        final int pivot = right(node);
+        setRight(node, left(pivot));
+        if (left(pivot) != 0) {
+            setParent(left(pivot), node);
+        }
+        setParent(pivot, parent(node));
+        replaceChild(parent(node), node, pivot);
+        setLeft(pivot, node);
+        setParent(node, pivot);
+        nodes[(pivot << STRIDE_SHIFT) + LEFT_SIZE] += nodes[(node << STRIDE_SHIFT) + LEFT_SIZE] + 1;
+        updateHeight(node);
+        updateHeight(pivot);
+    }
+
+    private void rotateRight(final int node) {
+        final int pivot = left(node);
+        setLeft(node, right(pivot));
+        if (right(pivot) != 0) {
+            setParent(right(pivot), node);
+        }
+        setParent(pivot, parent(node));
+        replaceChild(parent(node), node, pivot);
+        setRight(pivot, node);
+        setParent(node, pivot);
+        nodes[(node << STRIDE_SHIFT) + LEFT_SIZE] -= nodes[(pivot << STRIDE_SHIFT) + LEFT_SIZE] + 1;
+        updateHeight(node);
+        updateHeight(pivot);
+    }
+
+    private void replaceChild(final int parentId, final int child, final int replacement) {
+        if (parentId == 0) {
+            root = replacement;
+        } else if (left(parentId) == child) {
+            setLeft(parentId, replacement);
+        } else {
+            setRight(parentId, replacement);
+        }
+    }
+
+    private void updateHeight(final int node) {
+        heights[node] = (byte) (Math.max(heights[left(node)], heights[right(node)]) + 1);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Checks whether the index is valid.
+     *
+     * @param index the index to check
+     * @param startIndex the first allowed index
+     * @param endIndex the last allowed index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    protected void checkInterval(final int index, final int startIndex, final int endIndex) {
+        if (index < startIndex || index > endIndex) {
+            throw new IndexOutOfBoundsException("Invalid index:" + index + ", size=" + size());
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    void assertConsistent() {
+        assert(parent(root) == 0);
+        assert(heights[0] == 0);
+        assert(checkSubtree(root) == size);
+        int count = 0;
+        int previous = 0;
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            assert(positionOf(id) == count);
+            assert(previous == 0 || nextNode(previous) == id);
+            previous = id;
+            count++;
+        }
+        assert(count == size);
+        int free = 0;
+        for (int id = freeList; id != 0; id = right(id)) {
+            free++;
+        }
+        assert(count + free == nextId - 1);
+    }
+
+    /**
+     * Check links, heights and sizes of left subtrees of a subtree.
+     *
+     * @return size of the subtree
+     */
+    private int checkSubtree(final int id) {
+        if (id == 0) {
+            return 0;
+        }
+        assert(left(id) == 0 || parent(left(id)) == id);
+        assert(right(id) == 0 || parent(right(id)) == id);
+        assert(heights[id] == Math.max(heights[left(id)], heights[right(id)]) + 1);
+        assert(Math.abs(heights[left(id)] - heights[right(id)]) <= 1);
+        final int leftSize = checkSubtree(left(id));
+        assert(nodes[(id << STRIDE_SHIFT) + LEFT_SIZE] == leftSize);
+        return leftSize + checkSubtree(right(id)) + 1;
+    }
+}
@@ -0,0 +1,859 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Common class for indexed chunked lists.
+ * <p>
+ * Elements are stored in leaves, each leaf holds a small array of elements. Leaves are linked into a list
+ * for iteration and are kept in a tree where every node knows amount of elements in it's subtree,
+ * like in counted B+-tree. So get by index descends a tree of small height and iteration
+ * scans arrays instead of chasing a pointer per element.
+ * <p>
+ * Subclasses keep a map from element to it's leaf, index of an element is a rank of it's leaf
+ * plus offset of the element inside the leaf.
+ *
+ * @author Aleksandr Maksymenko
+ */
+abstract class AbstractIndexedChunkedList<E> extends AbstractList<E> {
+
+    /** Maximal amount of elements in a leaf. */
+    static final int LEAF_CAPACITY = 64;
+
+    /** Maximal amount of children of a branch. */
+    static final int BRANCH_CAPACITY = 32;
+
+    /** Comparator of leaves by their positions in the list. */
+    static final Comparator<Leaf<?>> LEAF_COMPARATOR = Comparator.comparingInt(Leaf::rank);
+
+    /** The root node, it's an empty leaf for empty list. */
+    protected Node<E> root;
+
+    /** The first leaf. */
+    protected Leaf<E> first;
+
+    /** The last leaf. */
+    protected Leaf<E> last;
+
+    /** Checks if two elements are equal in terms of nodeMap. */
+    protected final BiPredicate<Object, Object> equality;
+
+    /** Offset inside the leaf found by the last {@link #findLeaf(int)} call. */
+    private int leafOffset;
+
+    /**
+     * Constructs a new empty list.
+     *
+     * @param map map which defines how elements are compared
+     */
+    AbstractIndexedChunkedList(final Map<?, ?> map) {
+        equality = equalityOf(map);
+        resetTree();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     */
+    @Override
+    public E get(final int index) {
+        checkInterval(index, 0, size() - 1);
+        return findLeaf(index).get(leafOffset);
+    }
+
+    /**
+     * Gets the current size of the list.
+     *
+     * @return the current size
+     */
+    @Override
+    public int size() {
+        return root.count;
+    }
+
+    /**
+     * Gets an iterator over the list, it scans leaves sequentially.
+     *
+     * @return an iterator over the list
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new LeafIterator();
+    }
+
+    /**
+     * Converts the list into an array.
+     *
+     * @return the list as an array
+     */
+    @Override
+    public Object[] toArray() {
+        final Object[] array = new Object[size()];
+        int i = 0;
+        for (Leaf<E> leaf = first; leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.elements, 0, array, i, leaf.count);
+            i += leaf.count;
+        }
+        return array;
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (!canAdd(e)) {
+            return false;
+        }
+        return super.add(e);
+    }
+
+    /**
+     * Adds a new element to the list.
+     *
+     * @param index the index to add before
+     * @param obj the element to add
+     */
+    @Override
+    public void add(final int index, final E obj) {
+        if (!canAdd(obj)) {
+            return;
+        }
+        modCount++;
+        checkInterval(index, 0, size());
+        Leaf<E> leaf;
+        int offset;
+        if (index == size()) {
+            leaf = last;
+            offset = leaf.count;
+        } else {
+            leaf = findLeaf(index);
+            offset = leafOffset;
+        }
+        if (leaf.count == LEAF_CAPACITY) {
+            // appending to the last leaf keeps it full, so sequentially added elements are packed densely
+            final Leaf<E> right = splitLeaf(leaf, leaf.next == null && offset == leaf.count ? leaf.count : leaf.count / 2);
+            if (offset > leaf.count || leaf.count == LEAF_CAPACITY) {
+                offset -= leaf.count;
+                leaf = right;
+            }
+        }
+        System.arraycopy(leaf.elements, offset, leaf.elements, offset + 1, leaf.count - offset);
+        leaf.elements[offset] = obj;
+        for (Node<E> node = leaf; node != null; node = node.parent) {
+            node.count++;
+        }
+        elementAdded(leaf, offset);
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of this list.
+     *
+     * @param collection collection containing elements to be added to this list
+     * @return true if this list changed as a result of the call
+     */
+    @Override
+    public boolean addAll(final Collection<? extends E> collection) {
+        return addAll(size(), collection);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list at the specified position. Elements which can't be added are skipped.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param collection collection containing elements to be added to this list
+     * @return true if this list changed as a result of the call
+     */
+    @Override
+    public boolean addAll(final int index, final Collection<? extends E> collection) {
+        checkInterval(index, 0, size());
+        final int initialSize = size();
+        @SuppressWarnings("unchecked")
+        final E[] elements = (E[]) collection.toArray();
+        for (E e : elements) {
+            add(index + size() - initialSize, e);
+        }
+        return size() != initialSize;
+    }
+
+    /**
+     * Sets the element at the specified index.
+     *
+     * @param index the index to set
+     * @param obj the object to store at the specified index
+     * @return the previous object at that index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E set(final int index, final E obj) {
+        if (obj == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        checkInterval(index, 0, size() - 1);
+        final Leaf<E> leaf = findLeaf(index);
+        final int offset = leafOffset;
+        final E result = leaf.get(offset);
+        elementRemoving(leaf, offset);
+        leaf.elements[offset] = obj;
+        elementAdded(leaf, offset);
+        return result;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the previous object at that index
+     */
+    @Override
+    public E remove(final int index) {
+        modCount++;
+        checkInterval(index, 0, size() - 1);
+        final Leaf<E> leaf = findLeaf(index);
+        final int offset = leafOffset;
+        final E result = leaf.get(offset);
+        elementRemoving(leaf, offset);
+        System.arraycopy(leaf.elements, offset + 1, leaf.elements, offset, leaf.count - offset - 1);
+        leaf.elements[leaf.count - 1] = null;
+        for (Node<E> node = leaf; node != null; node = node.parent) {
+            node.count--;
+        }
+        if (root.count == 0) {
+            resetTree();
+        } else if (leaf.count == 0) {
+            unlink(leaf);
+            removeChild(leaf);
+        } else if (leaf.count < LEAF_CAPACITY / 4) {
+            mergeLeaf(leaf);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param o element to be removed from this list, if present
+     * @return true if this list contained the specified element
+     */
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * fromIndex, inclusive, and toIndex, exclusive.
+     * Elements are removed from the end of the range, so complexity is O(k * log n) where k is amount
+     * of removed elements, but shifting inside a leaf is avoided for most of them.
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     * @throws IndexOutOfBoundsException if range is invalid
+     */
+    @Override
+    public void removeRange(final int fromIndex, final int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Invalid range:" + fromIndex + ".." + toIndex + ", size=" + size());
+        }
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            remove(i);
+        }
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        resetTree();
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the elements in this list.
+     *
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Check if element can be added to the list.
+     *
+     * @param e element to add
+     * @return true if element can be added
+     */
+    abstract protected boolean canAdd(E e);
+
+    /**
+     * Element is added to the leaf at specified offset. Called when tree is consistent.
+     *
+     * @param leaf leaf of element
+     * @param offset offset of element in the leaf
+     */
+    abstract protected void elementAdded(Leaf<E> leaf, int offset);
+
+    /**
+     * Element at specified offset of the leaf is going to be removed. Called when tree is consistent.
+     *
+     * @param leaf leaf of element
+     * @param offset offset of element in the leaf
+     */
+    abstract protected void elementRemoving(Leaf<E> leaf, int offset);
+
+    /**
+     * Element is moved between leaves. Called when tree is consistent and both leaves are not empty.
+     *
+     * @param e moved element
+     * @param from leaf element is moved from
+     * @param to leaf element is moved to
+     * @param fromEmptied true if all elements of source leaf are moved
+     */
+    abstract protected void elementMoved(E e, Leaf<E> from, Leaf<E> to, boolean fromEmptied);
+
+    /**
+     * Offset of the first element in the leaf equal to specified object.
+     *
+     * @param leaf leaf to search in
+     * @param object the object to search
+     * @return offset in the leaf, -1 if not found
+     */
+    protected int firstOffset(final Leaf<E> leaf, final Object object) {
+        for (int i = 0; i < leaf.count; i++) {
+            if (equality.test(object, leaf.elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Offset of the last element in the leaf equal to specified object.
+     *
+     * @param leaf leaf to search in
+     * @param object the object to search
+     * @return offset in the leaf, -1 if not found
+     */
+    protected int lastOffset(final Leaf<E> leaf, final Object object) {
+        for (int i = leaf.count - 1; i >= 0; i--) {
+            if (equality.test(object, leaf.elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if the leaf contains an element equal to specified object except element at specified offset.
+     *
+     * @param leaf leaf to search in
+     * @param object the object to search
+     * @param excludedOffset offset which is not checked, -1 to check all elements
+     * @return true if such element is found
+     */
+    protected boolean containsOther(final Leaf<E> leaf, final Object object, final int excludedOffset) {
+        for (int i = 0; i < leaf.count; i++) {
+            if (i != excludedOffset && equality.test(object, leaf.elements[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find leaf which contains element at specified index. Offset inside the leaf is stored in {@link #leafOffset}.
+     *
+     * @param index index of element, should be valid
+     * @return leaf
+     */
+    private Leaf<E> findLeaf(int index) {
+        Node<E> node = root;
+        while (node instanceof Branch) {
+            final Branch<E> branch = (Branch<E>) node;
+            int i = 0;
+            Node<E> child = branch.children[0];
+            while (index >= child.count) {
+                index -= child.count;
+                child = branch.children[++i];
+            }
+            node = child;
+        }
+        leafOffset = index;
+        return (Leaf<E>) node;
+    }
+
+    /**
+     * Replace tree with single empty leaf.
+     */
+    private void resetTree() {
+        final Leaf<E> leaf = new Leaf<>();
+        root = leaf;
+        first = leaf;
+        last = leaf;
+    }
+
+    /**
+     * Split the leaf, elements starting from specified offset are moved to a new leaf which is inserted
+     * after the leaf.
+     *
+     * @param leaf leaf to split
+     * @param at offset of the first element to move
+     * @return new leaf
+     */
+    private Leaf<E> splitLeaf(final Leaf<E> leaf, final int at) {
+        final Leaf<E> right = new Leaf<>();
+        final int moved = leaf.count - at;
+        System.arraycopy(leaf.elements, at, right.elements, 0, moved);
+        Arrays.fill(leaf.elements, at, leaf.count, null);
+        right.count = moved;
+        for (Node<E> node = leaf; node != null; node = node.parent) {
+            node.count -= moved;
+        }
+
+        right.previous = leaf;
+        right.next = leaf.next;
+        if (leaf.next == null) {
+            last = right;
+        } else {
+            leaf.next.previous = right;
+        }
+        leaf.next = right;
+        insertAfter(leaf, right);
+
+        for (int i = 0; i < moved; i++) {
+            elementMoved(right.get(i), leaf, right, false);
+        }
+        return right;
+    }
+
+    /**
+     * Insert new sibling after the node. Elements of the sibling should not be counted in the node's ancestors,
+     * they are added to all ancestors of the sibling after insertion.
+     *
+     * @param node node with a parent or root
+     * @param sibling new node to insert
+     */
+    private void insertAfter(final Node<E> node, final Node<E> sibling) {
+        Branch<E> parent = node.parent;
+        if (parent == null) {
+            parent = new Branch<>();
+            parent.children[0] = node;
+            parent.size = 1;
+            parent.count = node.count;
+            node.parent = parent;
+            root = parent;
+        }
+        int index = parent.indexOf(node) + 1;
+        if (parent.size == BRANCH_CAPACITY) {
+            final Branch<E> right = splitBranch(parent);
+            if (index > parent.size) {
+                index -= parent.size;
+                parent = right;
+            }
+        }
+        System.arraycopy(parent.children, index, parent.children, index + 1, parent.size - index);
+        parent.children[index] = sibling;
+        parent.size++;
+        sibling.parent = parent;
+        for (Node<E> ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.count += sibling.count;
+        }
+    }
+
+    /**
+     * Split full branch into two halves, the second half is inserted after the branch.
+     *
+     * @param branch branch to split
+     * @return new branch
+     */
+    private Branch<E> splitBranch(final Branch<E> branch) {
+        final Branch<E> right = new Branch<>();
+        final int at = branch.size / 2;
+        final int moved = branch.size - at;
+        System.arraycopy(branch.children, at, right.children, 0, moved);
+        Arrays.fill(branch.children, at, branch.size, null);
+        branch.size = at;
+        right.size = moved;
+        for (int i = 0; i < right.size; i++) {
+            right.children[i].parent = right;
+            right.count += right.children[i].count;
+        }
+        for (Node<E> node = branch; node != null; node = node.parent) {
+            node.count -= right.count;
+        }
+        insertAfter(branch, right);
+        return right;
+    }
+
+    /**
+     * Merge the leaf with it's neighbour under the same parent if they fit into one leaf.
+     *
+     * @param leaf leaf with few elements
+     */
+    private void mergeLeaf(final Leaf<E> leaf) {
+        final Branch<E> parent = leaf.parent;
+        if (parent == null) {
+            return;
+        }
+        final int index = parent.indexOf(leaf);
+        if (index + 1 < parent.size && leaf.count + parent.children[index + 1].count <= LEAF_CAPACITY) {
+            mergeLeaves(leaf, (Leaf<E>) parent.children[index + 1]);
+        } else if (index > 0 && leaf.count + parent.children[index - 1].count <= LEAF_CAPACITY) {
+            mergeLeaves((Leaf<E>) parent.children[index - 1], leaf);
+        }
+    }
+
+    /**
+     * Move all elements of the right leaf to the end of the left leaf and remove the right leaf.
+     *
+     * @param left left leaf
+     * @param right right leaf, next to the left one under the same parent
+     */
+    private void mergeLeaves(final Leaf<E> left, final Leaf<E> right) {
+        for (int i = 0; i < right.count; i++) {
+            elementMoved(right.get(i), right, left, true);
+        }
+        System.arraycopy(right.elements, 0, left.elements, left.count, right.count);
+        left.count += right.count;
+        right.count = 0;
+        unlink(right);
+        removeChild(right);
+    }
+
+    /**
+     * Remove the leaf from linked list of leaves.
+     *
+     * @param leaf leaf to remove
+     */
+    private void unlink(final Leaf<E> leaf) {
+        if (leaf.previous == null) {
+            first = leaf.next;
+        } else {
+            leaf.previous.next = leaf.next;
+        }
+        if (leaf.next == null) {
+            last = leaf.previous;
+        } else {
+            leaf.next.previous = leaf.previous;
+        }
+    }
+
+    /**
+     * Remove the node from it's parent. Elements of the node should be already removed or moved to a sibling,
+     * so counts of ancestors are not changed.
+     *
+     * @param node node to remove
+     */
+    private void removeChild(final Node<E> node) {
+        final Branch<E> parent = node.parent;
+        final int index = parent.indexOf(node);
+        System.arraycopy(parent.children, index + 1, parent.children, index, parent.size - index - 1);
+        parent.children[--parent.size] = null;
+        node.parent = null;
+        if (parent.size == 0) {
+            removeChild(parent);
+        } else if (parent == root) {
+            Node<E> node1 = root;
+            while (node1 instanceof Branch && ((Branch<E>) node1).size == 1) {
+                node1 = ((Branch<E>) node1).children[0];
+                node1.parent = null;
+            }
+            root = node1;
+        } else if (parent.size < BRANCH_CAPACITY / 4) {
+            mergeBranch(parent);
+        }
+    }
+
+    /**
+     * Merge the branch with it's neighbour under the same parent if they fit into one branch.
+     *
+     * @param branch branch with few children
+     */
+    private void mergeBranch(final Branch<E> branch) {
+        final Branch<E> parent = branch.parent;
+        final int index = parent.indexOf(branch);
+        if (index + 1 < parent.size && branch.size + ((Branch<E>) parent.children[index + 1]).size <= BRANCH_CAPACITY) {
+            mergeBranches(branch, (Branch<E>) parent.children[index + 1]);
+        } else if (index > 0 && branch.size + ((Branch<E>) parent.children[index - 1]).size <= BRANCH_CAPACITY) {
+            mergeBranches((Branch<E>) parent.children[index - 1], branch);
+        }
+    }
+
+    /**
+     * Move all children of the right branch to the end of the left branch and remove the right branch.
+     *
+     * @param left left branch
+     * @param right right branch, next to the left one under the same parent
+     */
+    private void mergeBranches(final Branch<E> left, final Branch<E> right) {
+        for (int i = 0; i < right.size; i++) {
+            right.children[i].parent = left;
+        }
+        System.arraycopy(right.children, 0, left.children, left.size, right.size);
+        left.size += right.size;
+        left.count += right.count;
+        right.count = 0;
+        right.size = 0;
+        removeChild(right);
+    }
+
+    /**
+     * Create predicate which checks equality of elements the same way as specified map.
+     *
+     * @param map map which defines how elements are compared
+     * @return equality predicate
+     */
+    static BiPredicate<Object, Object> equalityOf(final Map<?, ?> map) {
+        if (map instanceof IdentityHashMap) {
+            return (a, b) -> a == b;
+        }
+        if (map instanceof SortedMap) {
+            // keys of sorted map are compared with each other, so it's comparator accepts any element
+            @SuppressWarnings("unchecked")
+            final Comparator<Object> comparator = (Comparator<Object>) ((SortedMap<?, ?>) map).comparator();
+            if (comparator == null) {
+                return (a, b) -> compareNaturally(a, b) == 0;
+            }
+            return (a, b) -> comparator.compare(a, b) == 0;
+        }
+        return Objects::equals;
+    }
+
+    /**
+     * Compare elements by their natural order, as TreeMap without comparator does.
+     *
+     * @param a first element
+     * @param b second element
+     * @return result of a.compareTo(b)
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareNaturally(final Object a, final Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /**
+     * Checks whether the index is valid.
+     *
+     * @param index  the index to check
+     * @param startIndex  the first allowed index
+     * @param endIndex  the last allowed index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    private void checkInterval(final int index, final int startIndex, final int endIndex) {
+        if (index < startIndex || index > endIndex) {
+            throw new IndexOutOfBoundsException("Invalid index:" + index + ", size=" + size());
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    void assertConsistent() {
+        assert(root.parent == null);
+        final int count = root.checkStructure();
+        assert(count == size());
+        int total = 0;
+        Leaf<E> previous = null;
+        for (Leaf<E> leaf = first; leaf != null; leaf = leaf.next) {
+            assert(leaf.previous == previous);
+            assert(leaf.count > 0 || leaf == root);
+            assert(leaf.rank() == total);
+            for (int i = leaf.count; i < LEAF_CAPACITY; i++) {
+                assert(leaf.elements[i] == null);
+            }
+            total += leaf.count;
+            previous = leaf;
+        }
+        assert(last == previous);
+        assert(total == size());
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Node of a tree, it knows amount of elements in it's subtree.
+     */
+    abstract static class Node<E> {
+        /** Parent branch, null for root. */
+        Branch<E> parent;
+        /** Amount of elements in subtree. */
+        int count;
+
+        /**
+         * Get index of the first element of this node's subtree.
+         *
+         * @return index of the first element
+         */
+        int rank() {
+            int rank = 0;
+            Node<E> node = this;
+            while (node.parent != null) {
+                final Branch<E> branch = node.parent;
+                for (int i = 0; branch.children[i] != node; i++) {
+                    rank += branch.children[i].count;
+                }
+                node = branch;
+            }
+            return rank;
+        }
+
+        /**
+         * Used for tests. Checks counts and parents of subtree.
+         *
+         * @return amount of elements in subtree
+         */
+        abstract int checkStructure();
+    }
+
+    /**
+     * Leaf of a tree which holds array of elements.
+     */
+    static final class Leaf<E> extends Node<E> {
+        /** Elements, first {@link #count} of them are used. */
+        final Object[] elements = new Object[LEAF_CAPACITY];
+        /** Previous leaf. */
+        Leaf<E> previous;
+        /** Next leaf. */
+        Leaf<E> next;
+
+        /**
+         * Get element of this leaf.
+         *
+         * @param offset offset of element in this leaf
+         * @return element at specified offset
+         */
+        @SuppressWarnings("unchecked")
+        E get(final int offset) {
+            return (E) elements[offset];
+        }
+
+        @Override
+        int checkStructure() {
+            assert(count <= LEAF_CAPACITY);
+            return count;
+        }
+    }
+
+    /**
+     * Branch of a tree which holds array of children.
+     */
+    static final class Branch<E> extends Node<E> {
+        /** Children, first {@link #size} of them are used. */
+        @SuppressWarnings("unchecked")
+        final Node<E>[] children = (Node<E>[]) new Node<?>[BRANCH_CAPACITY];
+        /** Amount of children. */
+        int size;
+
+        /**
+         * Get index of child.
+         *
+         * @param child child node
+         * @return index of child
+         */
+        int indexOf(final Node<E> child) {
+            int i = 0;
+            while (children[i] != child) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        int checkStructure() {
+            assert(size > 0 && size <= BRANCH_CAPACITY);
+            int sum = 0;
+            for (int i = 0; i < size; i++) {
+                assert(children[i].parent == this);
+                sum += children[i].checkStructure();
+            }
+            for (int i = size; i < BRANCH_CAPACITY; i++) {
+                assert(children[i] == null);
+            }
+            assert(sum == count);
+            return sum;
+        }
+    }
+
+    /**
+     * Iterator which scans leaves sequentially.
+     */
+    private class LeafIterator implements Iterator<E> {
+        /** Current leaf, null if it should be found by index. */
+        private Leaf<E> leaf = first;
+        /** Offset of next element in current leaf. */
+        private int offset;
+        /** Index of next element. */
+        private int index;
+        /** Index of last returned element, -1 if there is no such element. */
+        private int lastReturned = -1;
+        /** Expected modification count. */
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        @Override
+        public E next() {
+            checkModCount();
+            if (index >= size()) {
+                throw new NoSuchElementException();
+            }
+            if (leaf == null) {
+                leaf = findLeaf(index);
+                offset = leafOffset;
+            } else if (offset >= leaf.count) {
+                leaf = leaf.next;
+                offset = 0;
+            }
+            lastReturned = index++;
+            return leaf.get(offset++);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount();
+            AbstractIndexedChunkedList.this.remove(lastReturned);
+            index = lastReturned;
+            lastReturned = -1;
+            leaf = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkModCount() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
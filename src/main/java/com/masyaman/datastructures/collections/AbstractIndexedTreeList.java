@@ -28,11 +28,70 @@ import java.util.*;
 abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
 
     /** The root node in the AVL tree */
-    protected AVLNode root;
+    protected AVLNode<E> root;
 
     /** Size of a List */
     protected int size = 0;
 
+    /** Elements appended to the tail which are not linked into the tree yet, null if append buffer is disabled. */
+    private Object[] appendBuffer;
+
+    /** Amount of elements in append buffer. */
+    private int appendCount = 0;
+
+    /** Capacity of node pool used when node recycling is enabled and capacity was not ensured. */
+    private static final int DEFAULT_NODE_POOL_CAPACITY = 16;
+
+    /** Pool of removed nodes which can be reused, null if node recycling is disabled. */
+    private AVLNode<E>[] nodePool;
+
+    /** Amount of nodes in node pool. */
+    private int nodePoolSize = 0;
+
+    /** Capacity requested by {@link #ensureCapacity(int)}. */
+    private int capacity = 0;
+
+    /** Balancing discipline of the tree. */
+    private TreeBalancing balancing = TreeBalancing.AVL;
+
+    /** Nodes which are farther from the finger are searched from the root. */
+    private static final int MAX_FINGER_DISTANCE = 64;
+
+    /** True if node is searched starting from the last accessed node. */
+    private boolean fingerSearch = false;
+
+    /** Last node accessed by index, it's valid only while {@link #modCount} is not changed. */
+    private AVLNode<E> finger;
+
+    /** Index of {@link #finger}. */
+    private int fingerIndex;
+
+    /** Value of {@link #modCount} when {@link #finger} was set. */
+    private int fingerModCount;
+
+    /** True if nodes cache their positions, see {@link PositionCachingNode}. */
+    private boolean positionCaching = false;
+
+    /** Labels are unsigned 32-bit numbers stored in int shifted by Integer.MIN_VALUE, it's amount of labels. */
+    private static final long LABEL_SPACE = 1L << 32;
+
+    /** Maximal distance between labels of nodes added to the head or to the tail of a list. */
+    private static final long LABEL_STEP = 1L << 16;
+
+    /**
+     * Maximal amount of nodes in aligned range of 2^i labels which can be relabeled, it's (2 / 1.1)^i.
+     * Bigger ranges should be less dense, so relabeling is amortized O(log n) per inserted node
+     * for lists of up to 10^8 elements.
+     */
+    private static final long[] LABEL_RANGE_CAPACITY = new long[33];
+
+    static {
+        for (int i = 0; i < LABEL_RANGE_CAPACITY.length; i++) {
+            LABEL_RANGE_CAPACITY[i] = (long) Math.pow(2 / 1.1, i);
+        }
+        LABEL_RANGE_CAPACITY[32] = LABEL_SPACE;
+    }
+
     /**
      * Methods set(obj) in ListIterator can't be implemented to satisfy specification in IndexedTreeListSet.
      * So these methods are disabled by default and throws UnsupportedOperationException.
@@ -49,7 +108,11 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
      * @return the element at the specified index
      */
     @Override
+    @SuppressWarnings("unchecked")
     public E get(final int index) {
+        if (index >= size && index < size + appendCount) {
+            return (E) appendBuffer[index - size];
+        }
         return getNode(index).getValue();
     }
 
@@ -60,7 +123,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
      */
     @Override
     public int size() {
-        return size;
+        return size + appendCount;
     }
 
     /**
@@ -99,6 +162,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
     public ListIterator<E> listIterator(final int fromIndex) {
         // override to go 75% faster
         // cannot use EmptyIterator as iterator.add() must work
+        mergeAppendBuffer();
         checkInterval(fromIndex, 0, size());
         return new TreeListIterator(this, fromIndex);
     }
@@ -111,18 +175,36 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
     @Override
     public Object[] toArray() {
         // override to go 20% faster
+        mergeAppendBuffer();
         final Object[] array = new Object[size()];
-        if (root != null) {
-            root.toArray(array, root.relativePosition);
+        AVLNode<E> node = root == null ? null : root.min();
+        for (int i = 0; node != null; i++) {
+            array[i] = node.value;
+            node = node.next();
         }
         return array;
     }
 
+    /**
+     * Appends an element to the end of the list. If append buffer is enabled, element is kept in buffer
+     * and it's linked into the tree later together with other appended elements.
+     *
+     * @param e the element to add
+     * @return true if element is added
+     */
     @Override
     public boolean add(E e) {
         if (!canAdd(e)) {
             return false;
         }
+        if (appendBuffer != null) {
+            modCount++;
+            appendBuffer[appendCount++] = e;
+            if (appendCount == appendBuffer.length) {
+                mergeAppendBuffer();
+            }
+            return true;
+        }
         return super.add(e);
     }
 
@@ -137,14 +219,31 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
         if (!canAdd(obj)) {
             return;
         }
+        mergeAppendBuffer();
         modCount++;
         checkInterval(index, 0, size());
         if (root == null) {
-            setRoot(new AVLNode(index, obj, null, null, null));
+            setRoot(newNode(index, obj, null, null, null));
         } else {
-            setRoot(root.insert(index, obj));
+            setRoot(root.insert(index, obj, this));
         }
         size++;
+        if (balancing.splaysOnAccess()) {
+            accessed(root.get(index));
+        } else if (balancing.rebuildsWhenHigh()) {
+            rebuildIfHigh();
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of this list.
+     *
+     * @param collection collection containing elements to be added to this list
+     * @return true if this list changed as a result of the call
+     */
+    @Override
+    public boolean addAll(final Collection<? extends E> collection) {
+        return addAll(size(), collection);
     }
 
     /**
@@ -158,138 +257,1378 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
      */
     @Override
     public boolean addAll(final int index, final Collection<? extends E> collection) {
+        mergeAppendBuffer();
         modCount++;
         checkInterval(index, 0, size());
 
-        int currentIndex = index;
+        if (root == null) {
+            return buildFrom(collection.toArray()) > 0;
+        }
+
+        final AVLNode<E>[] nodes = createNodes(collection.toArray());
+        final int count = acceptNodes(nodes, nodes.length);
+        if (count == 0) {
+            return false;
+        }
+        final AVLNode<E>[] parts = split(root, size, index);
+        setRoot(joinBatch(parts[0], index, nodes, count, parts[1]));
+        size += count;
+        labelLinkedNodes(nodes, count);
+        addNodes(nodes, count);
+        return true;
+    }
+
+    /**
+     * Replaces elements in range [fromIndex, toIndex) with elements of specified collection.
+     * Elements which can't be added (e.g. already existing in IndexedTreeListSet outside of range)
+     * are skipped.
+     * Complexity is O(k + m + log n) where k is amount of removed elements and m is amount of added elements.
+     *
+     * @param fromIndex index of first element to be replaced
+     * @param toIndex index after last element to be replaced
+     * @param collection collection containing elements to be added to this list
+     * @return amount of added elements
+     * @throws IndexOutOfBoundsException if range is invalid
+     */
+    public int replaceRange(final int fromIndex, final int toIndex, final Collection<? extends E> collection) {
+        mergeAppendBuffer();
+        checkRange(fromIndex, toIndex);
+        final AVLNode<E>[] nodes = createNodes(collection.toArray());
+        modCount++;
+        removeNodes(fromIndex, toIndex);
+        final int count = acceptNodes(nodes, nodes.length);
+        recycleNodes(splice(fromIndex, toIndex, nodes, count));
+        return count;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * fromIndex, inclusive, and toIndex, exclusive.
+     * Complexity is O(k + log n) where k is amount of removed elements.
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     * @throws IndexOutOfBoundsException if range is invalid
+     */
+    @Override
+    public void removeRange(final int fromIndex, final int toIndex) {
+        mergeAppendBuffer();
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        modCount++;
+        removeNodes(fromIndex, toIndex);
+        recycleNodes(splice(fromIndex, toIndex, null, 0));
+    }
+
+    /**
+     * Sets the element at the specified index.
+     *
+     * @param index the index to set
+     * @param obj the object to store at the specified index
+     * @return the previous object at that index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E set(final int index, final E obj) {
+        mergeAppendBuffer();
+        final AVLNode<E> node = getNode(index);
+        final E result = node.value;
+        node.setValue(obj, this);
+        return result;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the previous object at that index
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(final int index) {
+        modCount++;
+        checkInterval(index, 0, size() - 1);
+        if (appendCount > 0 && index == size + appendCount - 1) {
+            final E result = (E) appendBuffer[--appendCount];
+            appendBuffer[appendCount] = null;
+            return result;
+        }
+        mergeAppendBuffer();
+        final AVLNode<E> node = getNode(index);
+        // node may be recycled on removal
+        final E result = node.getValue();
+        unlink(node);
+        return result;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element. Node of the element is taken from nodeMap and
+     * unlinked from the tree in a single pass up to the root.
+     *
+     * @param o element to be removed from this list, if present
+     * @return true if this list contained the specified element
+     */
+    @Override
+    public boolean remove(Object o) {
+        mergeAppendBuffer();
+        final AVLNode<E> node = getFirstNode(o);
+        if (node == null) {
+            return false;
+        }
+        modCount++;
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Remove node from the tree and from nodeMap, tree is rebalanced from the node's parent up to the root.
+     * modCount should be already updated. Removal may move value of other node into this one,
+     * so other nodes of the list should not be kept while removing.
+     *
+     * @param node node of this list to remove
+     */
+    protected void unlink(final AVLNode<E> node) {
+        setRoot(root.removeAndRebalance(node, true, this));
+        size--;
+        finger = null;
+        if (balancing.rebuildsWhenHigh()) {
+            rebuildIfHigh();
+        }
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        root = null;
+        size = 0;
+        finger = null;
+        if (appendCount > 0) {
+            Arrays.fill(appendBuffer, 0, appendCount, null);
+            appendCount = 0;
+        }
+    }
+
+    /**
+     * Enables append buffer or disables it if capacity is 0. When it's enabled, elements appended by
+     * {@link #add(Object)} are kept in array and they are visible by get and size. Buffered elements are linked
+     * into the tree as a perfectly balanced subtree in O(k + log n) when buffer is full or when any other
+     * operation needs the tree, e.g. search, iteration or modification in the middle of the list.
+     * So sustained appending doesn't descend the tree and rebalance it on every element.
+     * Append buffer is disabled by default.
+     *
+     * @param capacity maximal amount of buffered elements, 0 to disable append buffer
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public void setAppendBuffer(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        mergeAppendBuffer();
+        appendBuffer = capacity == 0 ? null : new Object[capacity];
+    }
+
+    /**
+     * Get maximal amount of elements which can be kept in append buffer.
+     *
+     * @return capacity of append buffer, 0 if append buffer is disabled
+     */
+    public int getAppendBufferCapacity() {
+        return appendBuffer == null ? 0 : appendBuffer.length;
+    }
+
+    /**
+     * Link elements of append buffer into the tree as a balanced subtree and add them to nodeMap.
+     * List is not changed logically, so modCount is kept and iterators remain valid.
+     */
+    protected void mergeAppendBuffer() {
+        if (appendCount == 0) {
+            return;
+        }
+        final Object[] values = Arrays.copyOf(appendBuffer, appendCount);
+        Arrays.fill(appendBuffer, 0, appendCount, null);
+        appendCount = 0;
+        if (root == null) {
+            buildFrom(values);
+            return;
+        }
+        final AVLNode<E>[] nodes = createNodes(values);
+        final int count = acceptNodes(nodes, nodes.length);
+        setRoot(joinBatch(root, size, nodes, count, null));
+        size += count;
+        labelLinkedNodes(nodes, count);
+        addNodes(nodes, count);
+    }
+
+
+    /**
+     * Enables or disables node recycling. When it's enabled, nodes of removed elements are kept in a pool
+     * and reused for added elements, so queue-like workloads (add to tail, remove from head) don't allocate new
+     * nodes. Pool holds up to max(16, capacity) nodes where capacity is set by {@link #ensureCapacity(int)}.
+     * Node recycling is disabled by default.
+     *
+     * @param enabled true to enable node recycling
+     */
+    public void setNodeRecycling(final boolean enabled) {
+        if (!enabled) {
+            nodePool = null;
+            nodePoolSize = 0;
+        } else if (nodePool == null) {
+            nodePool = newNodeArray(Math.max(DEFAULT_NODE_POOL_CAPACITY, capacity));
+        }
+    }
+
+    /**
+     * Check if node recycling is enabled.
+     *
+     * @return true if node recycling is enabled
+     */
+    public boolean isNodeRecycling() {
+        return nodePool != null;
+    }
+
+    /**
+     * Get maximal amount of nodes which can be kept in node pool.
+     *
+     * @return capacity of node pool, 0 if node recycling is disabled
+     */
+    protected int getNodePoolCapacity() {
+        return nodePool == null ? 0 : nodePool.length;
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to hold at least specified amount of elements without
+     * rehashing of nodeMap. Node pool is also increased if node recycling is enabled.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(final int minCapacity) {
+        if (minCapacity <= capacity) {
+            return;
+        }
+        capacity = minCapacity;
+        if (nodePool != null && nodePool.length < minCapacity) {
+            nodePool = Arrays.copyOf(nodePool, minCapacity);
+        }
+        ensureNodeMapCapacity(minCapacity);
+    }
+
+    /**
+     * Set balancing discipline of the tree. Switching to {@link TreeBalancing#AVL} rebuilds the tree in O(n)
+     * if other discipline was used, other switches are O(1). Default is {@link TreeBalancing#AVL}.
+     *
+     * @param balancing balancing discipline
+     * @throws NullPointerException if balancing is null
+     */
+    public void setBalancing(final TreeBalancing balancing) {
+        if (balancing == null) {
+            throw new NullPointerException("Balancing is null");
+        }
+        mergeAppendBuffer();
+        final boolean rebuild = balancing == TreeBalancing.AVL && this.balancing != TreeBalancing.AVL;
+        this.balancing = balancing;
+        if (rebuild) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Get balancing discipline of the tree.
+     *
+     * @return balancing discipline
+     */
+    public TreeBalancing getBalancing() {
+        return balancing;
+    }
+
+    /**
+     * Enables or disables caching of node positions. When it's enabled, each node keeps it's position
+     * computed by indexOf, lastIndexOf or indexes together with {@link #modCount}, so repeated searches
+     * without modifications of the list in between are O(1). Any structural modification invalidates all cached
+     * positions, after that position is computed again by walking up to the closest ancestor with valid position.
+     * Caching needs 8 more bytes per node, so it's disabled by default. Switching it for non-empty list
+     * recreates all nodes in O(n), existing iterators become invalid.
+     *
+     * @param enabled true to enable caching of node positions
+     */
+    public void setPositionCaching(final boolean enabled) {
+        if (enabled == positionCaching) {
+            return;
+        }
+        positionCaching = enabled;
+        mergeAppendBuffer();
+        if (nodePool != null) {
+            Arrays.fill(nodePool, 0, nodePoolSize, null);
+            nodePoolSize = 0;
+        }
+        if (root != null) {
+            final Object[] values = toArray();
+            clear();
+            buildFrom(values);
+        }
+    }
+
+    /**
+     * Check if caching of node positions is enabled.
+     *
+     * @return true if caching of node positions is enabled
+     */
+    public boolean isPositionCaching() {
+        return positionCaching;
+    }
+
+    /**
+     * Get position of the node, cached position is used if nodes cache their positions.
+     * It should not be called while the list is being modified.
+     *
+     * @param node node of this list
+     * @return position of the node
+     */
+    protected int positionOf(final AVLNode<E> node) {
+        if (!(node instanceof PositionCachingNode)) {
+            return node.getPosition();
+        }
+        int position = 0;
+        AVLNode<E> ancestor = node;
+        while (ancestor != null) {
+            if (ancestor instanceof PositionCachingNode && ((PositionCachingNode<E>) ancestor).epoch == modCount) {
+                position += ((PositionCachingNode<E>) ancestor).position;
+                break;
+            }
+            position += ancestor.relativePosition;
+            ancestor = ancestor.parent;
+        }
+        // cache positions of all visited nodes, so searches of their descendants stop earlier
+        int nodePosition = position;
+        for (AVLNode<E> visited = node; visited != ancestor; visited = visited.parent) {
+            if (visited instanceof PositionCachingNode) {
+                ((PositionCachingNode<E>) visited).position = nodePosition;
+                ((PositionCachingNode<E>) visited).epoch = modCount;
+            }
+            nodePosition -= visited.relativePosition;
+        }
+        return position;
+    }
+
+    /**
+     * Rotates the elements in this list by the specified distance, so element at index i is moved
+     * to index (i + distance) mod size. Complexity is O(log n), however IndexedTreeList also updates
+     * it's nodeMap for the smaller of rotated parts.
+     *
+     * @param distance the distance to rotate the list, may be negative or greater than size
+     */
+    public void rotate(final int distance) {
+        mergeAppendBuffer();
+        if (size == 0) {
+            return;
+        }
+        final int shift = (distance % size + size) % size;
+        if (shift == 0) {
+            return;
+        }
+        modCount++;
+        final int index = size - shift;
+        final boolean headIsSmaller = index <= shift;
+        final boolean reorder = isNodeMapOrdered();
+        if (reorder) {
+            removeNodes(headIsSmaller ? 0 : index, headIsSmaller ? index : size);
+        }
+        final AVLNode<E>[] parts = split(root, size, index);
+        setRoot(joinBatch(parts[1], shift, null, 0, parts[0]));
+        if (reorder) {
+            addNodes(headIsSmaller ? shift : 0, headIsSmaller ? size : shift);
+        }
+    }
+
+    /**
+     * Move elements from specified index to the end of this list into empty list.
+     * Tree is split in O(log n). If moveMap is true, then nodeMap is moved to the list with bigger part of elements,
+     * so only elements of smaller part are moved to other map.
+     *
+     * @param index index of the first element to move
+     * @param tail empty list of the same class to move elements to
+     * @param moveMap true if nodeMap can be swapped between lists
+     */
+    void splitTo(final int index, final AbstractIndexedTreeList<E> tail, final boolean moveMap) {
+        mergeAppendBuffer();
+        checkInterval(index, 0, size());
+        updateModCount(tail);
+        final int tailSize = size - index;
+        final boolean swap = moveMap && tailSize > index;
+        if (swap) {
+            removeNodes(0, index);
+        } else {
+            removeNodes(index, size);
+        }
+        final AVLNode<E>[] parts = split(root, size, index);
+        setRoot(parts[0]);
+        size = index;
+        tail.balancing = balancing;
+        tail.positionCaching = positionCaching;
+        tail.setRoot(parts[1]);
+        tail.size = tailSize;
+        if (swap) {
+            swapNodeMap(tail);
+            addNodes(0, size);
+        } else {
+            tail.addNodes(0, tailSize);
+        }
+    }
+
+    /**
+     * Append all elements of other list to the end of this list, other list becomes empty.
+     * Trees are joined in O(log n). If moveMap is true, then nodeMap of bigger list is used for result,
+     * so only elements of smaller list are moved to other map.
+     *
+     * @param other list of the same class with elements which can be added to this list
+     * @param moveMap true if nodeMap can be swapped between lists
+     */
+    void concatFrom(final AbstractIndexedTreeList<E> other, final boolean moveMap) {
+        if (other == this) {
+            throw new IllegalArgumentException("List can't be concatenated with itself");
+        }
+        mergeAppendBuffer();
+        other.mergeAppendBuffer();
+        updateModCount(other);
+        final int thisSize = size;
+        final boolean swap = moveMap && other.size > thisSize;
+        setRoot(joinBatch(root, thisSize, null, 0, other.root));
+        size += other.size;
+        if (balancing == TreeBalancing.AVL && other.balancing != TreeBalancing.AVL) {
+            rebuild();
+        }
+        if (swap) {
+            swapNodeMap(other);
+            addNodes(0, thisSize);
+        } else {
+            addNodes(thisSize, size);
+        }
+        other.clear();
+    }
+
+    /**
+     * Move elements in range [fromIndex, toIndex) of this list into empty list.
+     * Complexity is O(k + log n) where k is amount of moved elements.
+     *
+     * @param fromIndex index of first element to be moved
+     * @param toIndex index after last element to be moved
+     * @param target empty list of the same class to move elements to
+     */
+    void extractTo(final int fromIndex, final int toIndex, final AbstractIndexedTreeList<E> target) {
+        mergeAppendBuffer();
+        checkRange(fromIndex, toIndex);
+        updateModCount(target);
+        removeNodes(fromIndex, toIndex);
+        target.balancing = balancing;
+        target.positionCaching = positionCaching;
+        target.setRoot(splice(fromIndex, toIndex, null, 0));
+        target.size = toIndex - fromIndex;
+        target.addNodes(0, target.size);
+    }
+
+    /**
+     * Add all nodes of the list to empty nodeMap in a single in-order pass. Nodes are labeled again
+     * if nodeMap is ordered. Complexity is O(n).
+     */
+    void addAllNodes() {
+        addNodes(0, size);
+    }
+
+    /**
+     * Mark both lists as modified when nodes are moved between them. Both lists get the same modCount which is
+     * greater than previous modCount of any of them, so positions cached by moved nodes become invalid.
+     *
+     * @param other other list
+     */
+    private void updateModCount(final AbstractIndexedTreeList<E> other) {
+        modCount = Math.max(modCount, other.modCount) + 1;
+        other.modCount = modCount;
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the elements in this list.
+     *
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        mergeAppendBuffer();
+        return Spliterators.spliterator(this, Spliterator.ORDERED);
+    }
+
+    /**
+     * Get node by it's index
+     * @param index index
+     * @return node
+     */
+    protected AVLNode<E> getNode(final int index) {
+        checkInterval(index, 0, size() - 1);
+        final AVLNode<E> node;
+        if (fingerSearch) {
+            node = finger != null && fingerModCount == modCount ? getNodeNearFinger(index) : root.get(index);
+            finger = node;
+            fingerIndex = index;
+            fingerModCount = modCount;
+        } else {
+            node = root.get(index);
+        }
+        accessed(node);
+        return node;
+    }
+
+    /**
+     * Get node by it's index starting from the finger. Search climbs from the finger only up to the subtree which
+     * contains both finger and searched node and descends from it, so it's O(log d) where d is a distance
+     * from the finger. Finger is not used for distant nodes as climbing to the root would only add overhead
+     * to uniform random access.
+     *
+     * @param index index of node
+     * @return node
+     */
+    private AVLNode<E> getNodeNearFinger(final int index) {
+        if (index == fingerIndex) {
+            return finger;
+        }
+        if (Math.abs(index - fingerIndex) > MAX_FINGER_DISTANCE) {
+            return root.get(index);
+        }
+        AVLNode<E> node = finger;
+        int position = fingerIndex;
+        while (node.parent != null) {
+            final int parentPosition = position - node.relativePosition;
+            // left subtree of a parent covers positions from finger up to parent, right one - from parent to finger
+            if (node.relativePosition < 0
+                    ? fingerIndex <= index && index < parentPosition
+                    : parentPosition < index && index <= fingerIndex) {
+                return node.get(index - parentPosition);
+            }
+            if (index == parentPosition) {
+                return node.parent;
+            }
+            node = node.parent;
+            position = parentPosition;
+        }
+        return node.get(index);
+    }
+
+    /**
+     * Enables or disables finger search. When it's enabled, list remembers the last node accessed by index and
+     * searches nodes near it starting from that node, so sequential-ish access by index is O(log d) where d
+     * is a distance from the previously accessed index. Finger is dropped on any modification of the list.
+     * Finger search is disabled by default as it adds a few percent overhead to uniform random access.
+     *
+     * @param enabled true to enable finger search
+     */
+    public void setFingerSearch(final boolean enabled) {
+        fingerSearch = enabled;
+        finger = null;
+    }
+
+    /**
+     * Check if finger search is enabled.
+     *
+     * @return true if finger search is enabled
+     */
+    public boolean isFingerSearch() {
+        return fingerSearch;
+    }
+
+    /**
+     * Node is accessed by index or by value, it's moved to the root if tree is splayed.
+     *
+     * @param node accessed node of this list
+     */
+    protected void accessed(final AVLNode<E> node) {
+        if (balancing.splaysOnAccess() && node != root) {
+            node.splay();
+            setRoot(node);
+        }
+    }
+
+    /**
+     * Rebuild the tree if it's height is greater than 2 * log2(n) + 2.
+     */
+    private void rebuildIfHigh() {
+        if (root != null && root.height() > 2 * (32 - Integer.numberOfLeadingZeros(size)) + 2) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Relink all nodes into perfectly balanced tree in O(n). Nodes and their order are not changed,
+     * so nodeMap is not updated.
+     */
+    private void rebuild() {
+        if (root == null) {
+            return;
+        }
+        final AVLNode<E>[] nodes = newNodeArray(size);
+        AVLNode<E> node = root.min();
+        for (int i = 0; i < size; i++) {
+            nodes[i] = node;
+            node = node.next();
+        }
+        setRoot(buildTree(nodes, 0, size, 0));
+    }
+
+    /**
+     * Remove specified nodes in O(n) by relinking remaining nodes into perfectly balanced tree.
+     * Removed nodes should be already removed from nodeMap, order of remaining nodes is not changed.
+     *
+     * @param removed nodes to remove, ordered by their positions
+     * @param count amount of nodes to remove
+     */
+    void removeAndRebuild(final AVLNode<E>[] removed, final int count) {
+        modCount++;
+        final AVLNode<E>[] nodes = newNodeArray(size - count);
+        int kept = 0;
+        int removedIndex = 0;
+        AVLNode<E> node = root.min();
+        while (node != null) {
+            // following nodes are not reachable from recycled node
+            final AVLNode<E> next = node.next();
+            if (removedIndex < count && node == removed[removedIndex]) {
+                removedIndex++;
+                recycleNode(node);
+            } else {
+                nodes[kept++] = node;
+            }
+            node = next;
+        }
+        setRoot(kept == 0 ? null : buildTree(nodes, 0, kept, 0));
+        size = kept;
+        finger = null;
+    }
+
+    /**
+     * Assign label to new node which is inserted between prev and next nodes. Node is not linked to the tree yet.
+     * Labels are maintained only if nodeMap is ordered, they increase along the list, so order of nodes
+     * can be compared in O(1).
+     *
+     * @param node new node
+     * @param prev previous node, null if node is inserted to the head
+     * @param next next node, null if node is inserted to the tail
+     */
+    private void labelInserted(final AVLNode<E> node, final AVLNode<E> prev, final AVLNode<E> next) {
+        if (!isNodeMapOrdered()) {
+            return;
+        }
+        final long lo = prev == null ? -1 : unsignedLabel(prev);
+        final long hi = next == null ? LABEL_SPACE : unsignedLabel(next);
+        if (hi - lo > 1) {
+            final long step = prev != null && next != null ? (hi - lo) / 2 : Math.min((hi - lo) / 2, LABEL_STEP);
+            node.setLabel(toLabel(prev == null && next != null ? hi - step : lo + step));
+        } else {
+            final AVLNode<E>[] nodes = newNodeArray(1);
+            nodes[0] = node;
+            labelNodes(nodes, 1, prev, next);
+        }
+    }
+
+    /**
+     * Assign labels to consecutive nodes which are already linked to the tree, if nodeMap is ordered.
+     *
+     * @param nodes linked nodes ordered by their positions
+     * @param count amount of nodes
+     */
+    private void labelLinkedNodes(final AVLNode<E>[] nodes, final int count) {
+        if (isNodeMapOrdered() && count > 0) {
+            labelNodes(nodes, count, nodes[0].previous(), nodes[count - 1].next());
+        }
+    }
+
+    /**
+     * Assign labels to nodes which are inserted between prev and next nodes. If there are not enough labels
+     * between prev and next, then the smallest aligned range of labels around them, which is not too dense,
+     * is relabeled evenly.
+     *
+     * @param nodes inserted nodes ordered by their positions
+     * @param count amount of inserted nodes
+     * @param prev node before inserted nodes, null if nodes are inserted to the head
+     * @param next node after inserted nodes, null if nodes are inserted to the tail
+     */
+    private void labelNodes(final AVLNode<E>[] nodes, final int count, final AVLNode<E> prev, final AVLNode<E> next) {
+        final long lo = prev == null ? -1 : unsignedLabel(prev);
+        final long hi = next == null ? LABEL_SPACE : unsignedLabel(next);
+        if (hi - lo > count) {
+            long step = (hi - lo) / (count + 1);
+            if (prev == null ^ next == null) {
+                // leave labels for further additions to the head or to the tail
+                step = Math.min(step, LABEL_STEP);
+            }
+            long label = prev == null && next != null ? hi - step * count : lo + step;
+            for (int i = 0; i < count; i++) {
+                nodes[i].setLabel(toLabel(label));
+                label += step;
+            }
+            return;
+        }
+        final long anchor = prev != null ? lo : hi;
+        AVLNode<E> leftmost = prev;
+        long leftCount = prev == null ? 0 : 1;
+        AVLNode<E> rightmost = null;
+        AVLNode<E> candidate = next;
+        long rightCount = 0;
+        for (int level = 1; ; level++) {
+            final long rangeSize = 1L << level;
+            final long base = anchor & -rangeSize;
+            while (leftmost != null) {
+                final AVLNode<E> previous = leftmost.previous();
+                if (previous == null || unsignedLabel(previous) < base) {
+                    break;
+                }
+                leftmost = previous;
+                leftCount++;
+            }
+            while (candidate != null && unsignedLabel(candidate) < base + rangeSize) {
+                rightmost = candidate;
+                rightCount++;
+                candidate = candidate.next();
+            }
+            final long total = leftCount + count + rightCount;
+            if (total <= LABEL_RANGE_CAPACITY[level]) {
+                final long step = rangeSize / total;
+                long label = base + step / 2;
+                for (AVLNode<E> node = leftmost; prev != null; node = node.next()) {
+                    node.setLabel(toLabel(label));
+                    label += step;
+                    if (node == prev) {
+                        break;
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    nodes[i].setLabel(toLabel(label));
+                    label += step;
+                }
+                for (AVLNode<E> node = next; rightmost != null; node = node.next()) {
+                    node.setLabel(toLabel(label));
+                    label += step;
+                    if (node == rightmost) {
+                        break;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private static long unsignedLabel(final AVLNode<?> node) {
+        return (long) node.getLabel() - Integer.MIN_VALUE;
+    }
+
+    private static int toLabel(final long unsignedLabel) {
+        return (int) (unsignedLabel + Integer.MIN_VALUE);
+    }
+
+    /**
+     * Set root node.
+     * @param node new root node
+     */
+    private void setRoot(AVLNode<E> node) {
+        root = node;
+        if (node != null) {
+            node.parent = null;
+        }
+    }
+
+    /**
+     * Create new node, it's taken from node pool if possible.
+     *
+     * @param relativePosition  the relative position of the node
+     * @param obj the value for the node
+     * @param parent the parent node
+     * @param rightFollower the node with the value following this one
+     * @param leftFollower the node with the value leading this one
+     * @return new node, added to nodeMap
+     */
+    private AVLNode<E> newNode(final int relativePosition, final E obj, final AVLNode<E> parent,
+                               final AVLNode<E> rightFollower, final AVLNode<E> leftFollower) {
+        final AVLNode<E> node;
+        if (nodePoolSize == 0) {
+            node = createNode();
+        } else {
+            node = nodePool[--nodePoolSize];
+            nodePool[nodePoolSize] = null;
+        }
+        node.init(relativePosition, obj, parent, rightFollower, leftFollower, this);
+        return node;
+    }
+
+    /**
+     * Create new detached node, it's taken from node pool if possible. Node is not added to nodeMap.
+     *
+     * @param obj the value for the node
+     * @return new detached node
+     */
+    private AVLNode<E> newNode(final E obj) {
+        final AVLNode<E> node;
+        if (nodePoolSize == 0) {
+            node = createNode();
+        } else {
+            node = nodePool[--nodePoolSize];
+            nodePool[nodePoolSize] = null;
+        }
+        node.init(obj);
+        return node;
+    }
+
+    /**
+     * Create new empty node of the kind used by this list, it's initialized by the caller.
+     * Subclasses can override it if their nodeMap needs extra fields in nodes.
+     *
+     * @return new empty node
+     */
+    protected AVLNode<E> createNode() {
+        return positionCaching ? new PositionCachingNode<>() : new AVLNode<>();
+    }
+
+    /**
+     * Put node which is removed from the tree into node pool, if node recycling is enabled and pool is not full.
+     * Node should be already removed from nodeMap.
+     *
+     * @param node removed node
+     */
+    private void recycleNode(final AVLNode<E> node) {
+        if (nodePool != null && nodePoolSize < nodePool.length) {
+            node.clear();
+            nodePool[nodePoolSize++] = node;
+        }
+    }
+
+    /**
+     * Put nodes of detached tree into node pool while pool is not full.
+     *
+     * @param tree detached tree of removed nodes, may be null
+     */
+    private void recycleNodes(final AVLNode<E> tree) {
+        if (tree == null || nodePool == null) {
+            return;
+        }
+        AVLNode<E> node = tree.min();
+        while (node != null && nodePoolSize < nodePool.length) {
+            final AVLNode<E> next = node.next();
+            recycleNode(node);
+            node = next;
+        }
+    }
+
+    /**
+     * Remove nodes in range [fromIndex, toIndex) from nodeMap. Tree is not changed.
+     *
+     * @param fromIndex index of first node
+     * @param toIndex index after last node
+     */
+    private void removeNodes(final int fromIndex, final int toIndex) {
+        AVLNode<E> node = fromIndex < toIndex ? root.get(fromIndex) : null;
+        for (int i = fromIndex; i < toIndex; i++) {
+            final AVLNode<E> next = node.next();
+            removeNode(node);
+            node = next;
+        }
+    }
+
+    /**
+     * Replace nodes in range [fromIndex, toIndex) of a tree with specified detached nodes.
+     * nodeMap should be already updated for removed nodes and it's updated for added nodes here.
+     *
+     * @param fromIndex index of first node to be removed
+     * @param toIndex index after last node to be removed
+     * @param nodes nodes to add, may be null if count is 0
+     * @param count amount of nodes to add
+     * @return detached tree of removed nodes
+     */
+    private AVLNode<E> splice(final int fromIndex, final int toIndex, final AVLNode<E>[] nodes, final int count) {
+        final AVLNode<E>[] tail = split(root, size, toIndex);
+        final AVLNode<E>[] head = split(tail[0], toIndex, fromIndex);
+        setRoot(joinBatch(head[0], fromIndex, nodes, count, tail[1]));
+        size += count - (toIndex - fromIndex);
+        if (count > 0) {
+            labelLinkedNodes(nodes, count);
+            addNodes(nodes, count);
+        }
+        return head[1];
+    }
+
+    /**
+     * Add nodes in range [fromIndex, toIndex) to nodeMap.
+     *
+     * @param fromIndex index of first node
+     * @param toIndex index after last node
+     */
+    private void addNodes(final int fromIndex, final int toIndex) {
+        if (fromIndex == toIndex) {
+            return;
+        }
+        if (isNodeMapOrdered()) {
+            // nodes may be moved relative to other nodes, so they are labeled again
+            final AVLNode<E>[] nodes = newNodeArray(toIndex - fromIndex);
+            AVLNode<E> node = root.get(fromIndex);
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = node;
+                node = node.next();
+            }
+            labelLinkedNodes(nodes, nodes.length);
+        }
+        AVLNode<E> node = root.get(fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            addNode(node);
+            node = node.next();
+        }
+    }
+
+    /**
+     * Fill an empty list with specified values in O(n).
+     * Nodes are created in order, filtered by {@link #acceptNodes(AVLNode[], int)}, linked into perfectly
+     * balanced tree and then added to nodeMap by {@link #addNodes(AVLNode[], int)}.
+     *
+     * @param values values to add, array may be modified
+     * @return amount of added elements
+     */
+    int buildFrom(final Object[] values) {
+        final AVLNode<E>[] nodes = createNodes(values);
+        final int count = acceptNodes(nodes, nodes.length);
+        if (count == 0) {
+            return 0;
+        }
+        setRoot(buildTree(nodes, 0, count, 0));
+        size = count;
+        labelLinkedNodes(nodes, count);
+        addNodes(nodes, count);
+        return count;
+    }
+
+    /**
+     * Create array of nodes.
+     *
+     * @param length length of array
+     * @return new array filled with nulls
+     */
+    @SuppressWarnings("unchecked")
+    static <E> AVLNode<E>[] newNodeArray(final int length) {
+        return (AVLNode<E>[]) new AVLNode<?>[length];
+    }
+
+    /**
+     * Create detached nodes for specified values. Nodes are not added to nodeMap.
+     *
+     * @param values values of nodes
+     * @return array of nodes
+     */
+    private AVLNode<E>[] createNodes(final Object[] values) {
+        final AVLNode<E>[] nodes = newNodeArray(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new NullPointerException("Null elements are not allowed");
+            }
+            @SuppressWarnings("unchecked")
+            final E value = (E) values[i];
+            nodes[i] = newNode(value);
+        }
+        return nodes;
+    }
+
+    /**
+     * Build perfectly balanced subtree from nodes in range [from, to). Relative positions are calculated
+     * as array indexes relative to parent's index. Nodes on the edges of the range are threaded to
+     * neighbour nodes in array or to null for the first and the last nodes in array.
+     *
+     * @param nodes array of nodes
+     * @param from first index of range, inclusive
+     * @param to last index of range, exclusive
+     * @param parentIndex index of parent node in array, or first index in array for root node
+     * @return root of the subtree
+     */
+    private AVLNode<E> buildTree(final AVLNode<E>[] nodes, final int from, final int to, final int parentIndex) {
+        final int mid = (from + to) >>> 1;
+        final AVLNode<E> node = nodes[mid];
+        node.relativePosition = mid - parentIndex;
+        if (from < mid) {
+            node.setLeftIsPrevious(false);
+            node.setLeft(buildTree(nodes, from, mid, mid));
+        } else {
+            node.setLeftIsPrevious(true);
+            node.left = mid > 0 ? nodes[mid - 1] : null;
+        }
+        if (mid + 1 < to) {
+            node.setRightIsNext(false);
+            node.setRight(buildTree(nodes, mid + 1, to, mid));
+        } else {
+            node.setRightIsNext(true);
+            node.right = mid + 1 < nodes.length ? nodes[mid + 1] : null;
+        }
+        node.recalcHeight();
+        return node;
+    }
+
+    /**
+     * Join two detached trees and a node between them into one balanced tree (AVL join).
+     * Detached tree is a tree whose root has no parent and holds position relative to the tree's first element.
+     * Complexity is O(log n), nodeMap is not updated.
+     *
+     * @param left tree with elements before the node, may be null
+     * @param leftSize amount of elements in left tree
+     * @param node node to put between trees, all it's links are overwritten
+     * @param right tree with elements after the node, may be null
+     * @return root of joined tree
+     */
+    private AVLNode<E> join(final AVLNode<E> left, final int leftSize, final AVLNode<E> node, final AVLNode<E> right) {
+        final AVLNode<E> leftMax = left == null ? null : left.max();
+        final AVLNode<E> rightMin = right == null ? null : right.min();
+        if (leftMax != null) {
+            leftMax.right = node;
+        }
+        if (rightMin != null) {
+            rightMin.left = node;
+        }
+        final int leftHeight = heightOf(left);
+        final int rightHeight = heightOf(right);
+
+        if (leftHeight > rightHeight + 1) {
+            // go down by the right edge of left tree until subtree is low enough
+            AVLNode<E> parent = null;
+            int parentPosition = 0;
+            AVLNode<E> child = left;
+            int childPosition = left.relativePosition;
+            while (heightOf(child) > rightHeight + 1) {
+                parent = child;
+                parentPosition = childPosition;
+                child = child.getRightSubTree();
+                if (child != null) {
+                    childPosition += child.relativePosition;
+                }
+            }
+            if (child != null) {
+                child.relativePosition = childPosition - leftSize;
+            }
+            if (right != null) {
+                right.relativePosition += 1;
+            }
+            node.relativePosition = leftSize - parentPosition;
+            node.setLeft(child, leftMax);
+            node.setRight(right, null);
+            parent.setRight(node, null);
+            return rebalanceUp(parent);
+        }
+
+        if (rightHeight > leftHeight + 1) {
+            // go down by the left edge of right tree until subtree is low enough
+            right.relativePosition += leftSize + 1;
+            AVLNode<E> parent = null;
+            int parentPosition = 0;
+            AVLNode<E> child = right;
+            int childPosition = right.relativePosition;
+            while (heightOf(child) > leftHeight + 1) {
+                parent = child;
+                parentPosition = childPosition;
+                child = child.getLeftSubTree();
+                if (child != null) {
+                    childPosition += child.relativePosition;
+                }
+            }
+            if (child != null) {
+                child.relativePosition = childPosition - leftSize;
+            }
+            if (left != null) {
+                left.relativePosition -= leftSize;
+            }
+            node.relativePosition = leftSize - parentPosition;
+            node.setLeft(left, null);
+            node.setRight(child, rightMin);
+            parent.setLeft(node, null);
+            return rebalanceUp(parent);
+        }
+
+        if (left != null) {
+            left.relativePosition -= leftSize;
+        }
+        if (right != null) {
+            right.relativePosition += 1;
+        }
+        node.relativePosition = leftSize;
+        node.setLeft(left, null);
+        node.setRight(right, null);
+        node.parent = null;
+        return node;
+    }
+
+    /**
+     * Join two detached trees and a batch of detached nodes between them into one balanced tree.
+     * Complexity is O(m + log n), nodeMap is not updated.
+     *
+     * @param left tree with elements before the batch, may be null
+     * @param leftSize amount of elements in left tree
+     * @param nodes nodes to put between trees, may be null if count is 0
+     * @param count amount of nodes to put between trees
+     * @param right tree with elements after the batch, may be null
+     * @return root of joined tree, null if all parts are empty
+     */
+    private AVLNode<E> joinBatch(final AVLNode<E> left, final int leftSize, final AVLNode<E>[] nodes, final int count,
+                              final AVLNode<E> right) {
+        if (count == 0) {
+            if (left == null || right == null) {
+                return left == null ? right : left;
+            }
+            // last element of left tree is used as a key to join trees
+            final AVLNode<E>[] parts = split(left, leftSize, leftSize - 1);
+            return join(parts[0], leftSize - 1, parts[1], right);
+        }
+        // first and last nodes of a batch are used as keys to join it with both trees
+        final AVLNode<E> middle = count > 2 ? buildTree(nodes, 1, count - 1, 1) : null;
+        final AVLNode<E> tree = count > 1 ? join(left, leftSize, nodes[0], middle) : left;
+        return join(tree, leftSize + count - 1, nodes[count - 1], right);
+    }
+
+    /**
+     * Split detached tree into two detached trees. Complexity is O(log n), nodeMap is not updated.
+     *
+     * @param tree tree to split
+     * @param treeSize amount of elements in tree
+     * @param index index of the first element of the second tree
+     * @return array of two trees, with elements before index and with the rest of elements, trees may be null
+     */
+    private AVLNode<E>[] split(AVLNode<E> tree, final int treeSize, final int index) {
+        if (balancing.splaysOnAccess() && index > 0 && index < treeSize) {
+            // splay tree may be too high for recursive split, so split node is moved to the root first
+            tree = tree.get(index);
+            tree.splay();
+        }
+        final AVLNode<E>[] parts = splitTree(tree, treeSize, index);
+        if (parts[0] != null) {
+            parts[0].max().right = null;
+        }
+        if (parts[1] != null) {
+            parts[1].min().left = null;
+        }
+        return parts;
+    }
+
+    /**
+     * Recursive part of {@link #split(AVLNode, int, int)}. Links from edges of result trees may point outside.
+     */
+    private AVLNode<E>[] splitTree(final AVLNode<E> tree, final int treeSize, final int index) {
+        if (index == 0 || index == treeSize) {
+            final AVLNode<E>[] parts = newNodeArray(2);
+            parts[index == 0 ? 1 : 0] = tree;
+            return parts;
+        }
+        final int position = tree.relativePosition;
+        final AVLNode<E> left = tree.getLeftSubTree();
+        if (left != null) {
+            left.relativePosition += position;
+            left.parent = null;
+        }
+        final AVLNode<E> right = tree.getRightSubTree();
+        if (right != null) {
+            right.relativePosition -= 1;
+            right.parent = null;
+        }
+        final AVLNode<E>[] parts;
+        if (index <= position) {
+            parts = splitTree(left, position, index);
+            parts[1] = join(parts[1], position - index, tree, right);
+        } else {
+            parts = splitTree(right, treeSize - position - 1, index - position - 1);
+            parts[0] = join(left, position, tree, parts[0]);
+        }
+        return parts;
+    }
+
+    /**
+     * Recalculate heights and balance all nodes from specified node up to the root.
+     *
+     * @param node node to start from
+     * @return new root of the tree
+     */
+    private AVLNode<E> rebalanceUp(AVLNode<E> node) {
+        while (true) {
+            final AVLNode<E> parent = node.parent;
+            final boolean isLeft = parent != null && parent.getLeftSubTree() == node;
+            node.recalcHeight();
+            final AVLNode<E> top = node.balance();
+            if (parent == null) {
+                top.parent = null;
+                return top;
+            }
+            if (isLeft) {
+                parent.setLeft(top, null);
+            } else {
+                parent.setRight(top, null);
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Returns the height of the node or -1 if the node is null.
+     */
+    private int heightOf(final AVLNode<E> node) {
+        return node == null ? -1 : node.height();
+    }
+
+    /**
+     * Check if object can be added to list (e.g. check uniqueness)
+     *
+     * @param e element to check if it can be added to collection
+     * @return true if specified element can be added to collection
+     */
+    abstract protected boolean canAdd(E e);
 
-        for (E obj : collection) {
-            if (canAdd(obj)) {
-                if (root == null) {
-                    setRoot(new AVLNode(currentIndex, obj, null, null, null));
-                } else {
-                    setRoot(root.insert(currentIndex, obj));
-                }
-                size++;
-                currentIndex++;
+    /**
+     * Filter nodes of bulk inserted elements, which are not linked to tree yet.
+     * Accepted nodes are moved to the beginning of array keeping their order.
+     * By default nodes are checked by {@link #canAdd(Object)}.
+     *
+     * @param nodes nodes to filter
+     * @param count amount of nodes in array
+     * @return amount of accepted nodes
+     */
+    protected int acceptNodes(final AVLNode<E>[] nodes, final int count) {
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            if (canAdd(nodes[i].value)) {
+                nodes[accepted++] = nodes[i];
             }
         }
-
-        return currentIndex > index;
+        Arrays.fill(nodes, accepted, count, null);
+        return accepted;
     }
 
     /**
-     * Sets the element at the specified index.
+     * Add nodes of bulk inserted elements to nodeMap. Called when nodes are already linked to tree.
      *
-     * @param index the index to set
-     * @param obj the object to store at the specified index
-     * @return the previous object at that index
-     * @throws IndexOutOfBoundsException if the index is invalid
+     * @param nodes nodes to add
+     * @param count amount of nodes in array
      */
-    @Override
-    public E set(final int index, final E obj) {
-        final AVLNode node = getNode(index);
-        final E result = node.value;
-        node.setValue(obj);
-        return result;
+    protected void addNodes(final AVLNode<E>[] nodes, final int count) {
+        for (int i = 0; i < count; i++) {
+            addNode(nodes[i]);
+        }
     }
 
     /**
-     * Removes the element at the specified index.
+     * Add node to nodeMap.
      *
-     * @param index the index to remove
-     * @return the previous object at that index
+     * @param node node to add
      */
-    @Override
-    public E remove(final int index) {
-        modCount++;
-        checkInterval(index, 0, size() - 1);
-        final E result = get(index);
-        setRoot(root.remove(index));
-        size--;
-        return result;
-    }
+    abstract protected void addNode(AVLNode<E> node);
 
     /**
-     * Removes the element at the specified index.
+     * Remove node from nodeMap.
      *
-     * @param o element to be removed from this list, if present
-     * @return true if this list contained the specified element
+     * @param node node to remove
      */
-    @Override
-    public boolean remove(Object o) {
-        // Some optimization can be done here
-        int index = indexOf(o);
-        if (index < 0) {
-            return false;
-        }
-        remove(index);
-        return true;
-    }
+    abstract protected void removeNode(AVLNode<E> node);
 
     /**
-     * Clears the list, removing all entries.
+     * Get node of the first element equal to specified object from nodeMap.
+     *
+     * @param object the object to search
+     * @return node of the first equal element, null if not found
      */
-    @Override
-    public void clear() {
-        modCount++;
-        root = null;
-        size = 0;
-    }
-
+    abstract protected AVLNode<E> getFirstNode(Object object);
 
     /**
-     * Creates a {@link Spliterator} over the elements in this list.
+     * Increase capacity of nodeMap, if it's possible for map implementation.
      *
-     * @return spliterator
+     * @param minCapacity the desired minimum capacity
      */
-    @Override
-    public Spliterator<E> spliterator() {
-        return Spliterators.spliterator(this, Spliterator.ORDERED);
+    protected void ensureNodeMapCapacity(final int minCapacity) {
     }
 
     /**
-     * Get node by it's index
-     * @param index index
-     * @return node
+     * Swap nodeMap with other list of the same class.
+     *
+     * @param other list to swap nodeMap with
      */
-    private AVLNode getNode(final int index) {
-        checkInterval(index, 0, size() - 1);
-        return root.get(index);
-    }
+    abstract protected void swapNodeMap(AbstractIndexedTreeList<E> other);
 
     /**
-     * Set root node.
-     * @param node new root node
+     * Check if nodeMap depends on order of nodes, so it should be updated if nodes are reordered.
+     *
+     * @return true if nodeMap depends on order of nodes
      */
-    private void setRoot(AVLNode node) {
-        root = node;
-        if (node != null) {
-            node.parent = null;
-        }
+    protected boolean isNodeMapOrdered() {
+        return false;
     }
 
     /**
-     * Check if object can be added to list (e.g. check uniqueness)
+     * Create a copy of specified map which can hold specified amount of entries without rehashing.
+     * It's supported for HashMap, LinkedHashMap and IdentityHashMap only, other maps are returned as is.
      *
-     * @param e element to check if it can be added to collection
-     * @return true if specified element can be added to collection
+     * @param map map to copy
+     * @param minCapacity the desired minimum capacity
+     * @return copy of map with increased capacity or the same map
      */
-    abstract protected boolean canAdd(E e);
+    static <K, V> Map<K, V> withCapacity(final Map<K, V> map, final int minCapacity) {
+        if (minCapacity <= map.size()) {
+            return map;
+        }
+        final Map<K, V> copy;
+        if (map.getClass() == HashMap.class) {
+            copy = new HashMap<>((int) (minCapacity / .75f) + 1);
+        } else if (map.getClass() == LinkedHashMap.class) {
+            copy = new LinkedHashMap<>((int) (minCapacity / .75f) + 1);
+        } else if (map.getClass() == IdentityHashMap.class) {
+            copy = new IdentityHashMap<>(minCapacity);
+        } else {
+            return map;
+        }
+        copy.putAll(map);
+        return copy;
+    }
 
     /**
-     * Add node to nodeMap.
+     * Create new empty map of the same kind as specified one, e.g. TreeMap with the same comparator.
      *
-     * @param node node to add
+     * @param map map to get kind from
+     * @return new empty map
+     * @throws UnsupportedOperationException if map of the same kind can't be created
      */
-    abstract protected void addNode(AVLNode node);
+    static <K, V> Map<K, V> newMapLike(final Map<?, ?> map) {
+        Map<?, ?> copy = null;
+        if (map instanceof TreeMap) {
+            copy = new TreeMap<>(((TreeMap<?, ?>) map).comparator());
+        } else if (map instanceof IdentityHashMap) {
+            copy = new IdentityHashMap<>();
+        } else if (map instanceof LinkedHashMap) {
+            copy = new LinkedHashMap<>();
+        } else if (map instanceof HashMap) {
+            copy = new HashMap<>();
+        } else if (!(map instanceof SortedMap) || ((SortedMap<?, ?>) map).comparator() == null) {
+            try {
+                copy = map.getClass().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                // fall through
+            }
+        }
+        if (copy == null) {
+            throw new UnsupportedOperationException("Can't create map like " + map.getClass().getName()
+                    + ", map should be specified explicitly");
+        }
+        // new map is empty, so it can hold any keys and values
+        @SuppressWarnings("unchecked")
+        final Map<K, V> result = (Map<K, V>) copy;
+        return result;
+    }
 
     /**
-     * Remove node from nodeMap.
+     * Check if maps compare keys in the same way, so content of one map can be moved to other.
      *
-     * @param node node to remove
+     * @param map1 first map
+     * @param map2 second map
+     * @return true if maps are of the same kind
      */
-    abstract protected void removeNode(AVLNode node);
+    static boolean isSameMapKind(final Map<?, ?> map1, final Map<?, ?> map2) {
+        if (map1.getClass() != map2.getClass()) {
+            return false;
+        }
+        return !(map1 instanceof SortedMap)
+                || Objects.equals(((SortedMap<?, ?>) map1).comparator(), ((SortedMap<?, ?>) map2).comparator());
+    }
 
     //-----------------------------------------------------------------------
     /**
@@ -306,14 +1645,40 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
         }
     }
 
+    /**
+     * Checks whether the range is valid.
+     *
+     * @param fromIndex index of first element of range
+     * @param toIndex index after last element of range
+     * @throws IndexOutOfBoundsException if the range is invalid
+     */
+    protected void checkRange(final int fromIndex, final int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Invalid range:" + fromIndex + ".." + toIndex + ", size=" + size());
+        }
+    }
+
     /**
      * Used for tests.
      */
     void assertConsistent() {
+        assert(appendBuffer != null || appendCount == 0);
+        for (int i = 0; appendBuffer != null && i < appendBuffer.length; i++) {
+            assert((appendBuffer[i] != null) == (i < appendCount));
+        }
         if (root == null) {
-            assert(size() == 0);
+            assert(size == 0);
         } else {
-            assert(size() == root.countNodes());
+            assert(size == root.countNodes());
+            assert(root.parent == null);
+            final AVLNode<E>[] nodes = newNodeArray(size);
+            root.checkStructure(root.relativePosition, nodes, balancing == TreeBalancing.AVL);
+            for (int i = 0; i < nodes.length; i++) {
+                assert(nodes[i].getPosition() == i);
+                assert(!isNodeMapOrdered() || i == 0 || nodes[i - 1].getLabel() < nodes[i].getLabel());
+                assert(nodes[i].next() == (i + 1 < nodes.length ? nodes[i + 1] : null));
+                assert(nodes[i].previous() == (i > 0 ? nodes[i - 1] : null));
+            }
         }
     }
 
@@ -331,41 +1696,112 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
      * The Faedelung calculation stores a flag for both the left and right child
      * to indicate if they are a child (false) or a link as in linked list (true).
      */
-    class AVLNode {
-        /** Parent node */
-        private AVLNode parent;
-        /** The left child node or the predecessor if {@link #leftIsPrevious}.*/
-        private AVLNode left;
+    static class AVLNode<E> {
         /** Flag indicating that left reference is not a subtree but the predecessor. */
-        private boolean leftIsPrevious;
-        /** The right child node or the successor if {@link #rightIsNext}. */
-        private AVLNode right;
+        private static final int LEFT_IS_PREVIOUS = 1;
         /** Flag indicating that right reference is not a subtree but the successor. */
-        private boolean rightIsNext;
-        /** How many levels of left/right are below this one. */
-        private int height;
+        private static final int RIGHT_IS_NEXT = 2;
+        /** Height is stored in bits above thread flags. */
+        private static final int HEIGHT_SHIFT = 2;
+
+        /** Parent node */
+        private AVLNode<E> parent;
+        /** The left child node or the predecessor if {@link #leftIsPrevious()}.*/
+        private AVLNode<E> left;
+        /** The right child node or the successor if {@link #rightIsNext()}. */
+        private AVLNode<E> right;
+        /**
+         * How many levels of left/right are below this one, shifted by {@link #HEIGHT_SHIFT},
+         * combined with {@link #LEFT_IS_PREVIOUS} and {@link #RIGHT_IS_NEXT} flags.
+         */
+        private int heightAndThreads;
         /** The relative position, root holds absolute position. */
         private int relativePosition;
         /** The stored element. */
         private E value;
 
         /**
-         * Constructs a new node with a relative position.
+         * Constructs a new empty node, it should be initialized before use.
+         */
+        AVLNode() {
+        }
+
+        /**
+         * Initialize a new or cleared node with a relative position.
          *
          * @param relativePosition  the relative position of the node
          * @param obj the value for the node
          * @param rightFollower the node with the value following this one
          * @param leftFollower the node with the value leading this one
+         * @param list the list owning the node
          */
-        private AVLNode(final int relativePosition, final E obj,
-                        final AVLNode parent, final AVLNode rightFollower, final AVLNode leftFollower) {
+        private void init(final int relativePosition, final E obj,
+                          final AVLNode<E> parent, final AVLNode<E> rightFollower, final AVLNode<E> leftFollower,
+                          final AbstractIndexedTreeList<E> list) {
             this.relativePosition = relativePosition;
-            this.rightIsNext = true;
-            this.leftIsPrevious = true;
+            this.heightAndThreads = LEFT_IS_PREVIOUS | RIGHT_IS_NEXT;
             this.parent = parent;
             setRight(rightFollower);
             setLeft(leftFollower);
-            setValue(obj);
+            list.labelInserted(this, leftFollower, rightFollower);
+            setValue(obj, list);
+        }
+
+        /**
+         * Initialize a new or cleared detached node. Node is not added to nodeMap.
+         *
+         * @param obj the value for the node
+         */
+        private void init(final E obj) {
+            this.heightAndThreads = LEFT_IS_PREVIOUS | RIGHT_IS_NEXT;
+            this.value = obj;
+        }
+
+        /**
+         * Clear all references of removed node, so it can be reused.
+         */
+        private void clear() {
+            parent = null;
+            left = null;
+            right = null;
+            heightAndThreads = 0;
+            relativePosition = 0;
+            value = null;
+        }
+
+        /**
+         * Check if left reference is not a subtree but the predecessor.
+         */
+        private boolean leftIsPrevious() {
+            return (heightAndThreads & LEFT_IS_PREVIOUS) != 0;
+        }
+
+        private void setLeftIsPrevious(final boolean leftIsPrevious) {
+            heightAndThreads = leftIsPrevious
+                    ? heightAndThreads | LEFT_IS_PREVIOUS : heightAndThreads & ~LEFT_IS_PREVIOUS;
+        }
+
+        /**
+         * Check if right reference is not a subtree but the successor.
+         */
+        private boolean rightIsNext() {
+            return (heightAndThreads & RIGHT_IS_NEXT) != 0;
+        }
+
+        private void setRightIsNext(final boolean rightIsNext) {
+            heightAndThreads = rightIsNext
+                    ? heightAndThreads | RIGHT_IS_NEXT : heightAndThreads & ~RIGHT_IS_NEXT;
+        }
+
+        /**
+         * Gets how many levels of left/right are below this one.
+         */
+        private int height() {
+            return heightAndThreads >>> HEIGHT_SHIFT;
+        }
+
+        private void setHeight(final int height) {
+            heightAndThreads = (heightAndThreads & (LEFT_IS_PREVIOUS | RIGHT_IS_NEXT)) | (height << HEIGHT_SHIFT);
         }
 
         /**
@@ -381,31 +1817,61 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          * Sets the value.
          *
          * @param obj the value to store
+         * @param list the list owning the node
          */
-        void setValue(final E obj) {
+        void setValue(final E obj, final AbstractIndexedTreeList<E> list) {
             if (this.value != null) {
-                removeNode(this);
+                list.removeNode(this);
             }
             this.value = obj;
-            addNode(this);
+            list.addNode(this);
         }
 
         /**
          * Locate the element with the given index relative to the
          * offset of the parent of this node.
          */
-        AVLNode get(final int index) {
-            final int indexRelativeToMe = index - relativePosition;
-
-            if (indexRelativeToMe == 0) {
-                return this;
+        AVLNode<E> get(final int index) {
+            AVLNode<E> node = this;
+            int indexRelativeToMe = index - relativePosition;
+            while (indexRelativeToMe != 0) {
+                node = indexRelativeToMe < 0 ? node.getLeftSubTree() : node.getRightSubTree();
+                if (node == null) {
+                    return null;
+                }
+                indexRelativeToMe -= node.relativePosition;
             }
+            return node;
+        }
 
-            final AVLNode nextNode = indexRelativeToMe < 0 ? getLeftSubTree() : getRightSubTree();
-            if (nextNode == null) {
-                return null;
-            }
-            return nextNode.get(indexRelativeToMe);
+        /**
+         * Compare order of nodes in the list by their labels in O(1). It's valid only if nodeMap is ordered.
+         *
+         * @param other other node of the same list
+         * @return negative value if this node is before other node, positive if after, 0 for the same node
+         */
+        int compareOrder(final AVLNode<E> other) {
+            return Integer.compare(getLabel(), other.getLabel());
+        }
+
+        /**
+         * Get label which increases along the list. Only nodes of lists with ordered nodeMap have labels.
+         *
+         * @return label of this node
+         * @throws UnsupportedOperationException if node has no label
+         */
+        int getLabel() {
+            throw new UnsupportedOperationException("Node has no label");
+        }
+
+        /**
+         * Set label of this node. Only nodes of lists with ordered nodeMap have labels.
+         *
+         * @param label new label
+         * @throws UnsupportedOperationException if node has no label
+         */
+        void setLabel(final int label) {
+            throw new UnsupportedOperationException("Node has no label");
         }
 
         /**
@@ -413,7 +1879,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          */
         int getPosition() {
             int position = 0;
-            AVLNode node = this;
+            AVLNode<E> node = this;
             while (node != null) {
                 position += node.relativePosition;
                 node = node.parent;
@@ -421,29 +1887,13 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
             return position;
         }
 
-        /**
-         * Stores the node and its children into the array specified.
-         *
-         * @param array the array to be filled
-         * @param index the index of this node
-         */
-        void toArray(final Object[] array, final int index) {
-            array[index] = value;
-            if (getLeftSubTree() != null) {
-                left.toArray(array, index + left.relativePosition);
-            }
-            if (getRightSubTree() != null) {
-                right.toArray(array, index + right.relativePosition);
-            }
-        }
-
         /**
          * Gets the next node in the list after this one.
          *
          * @return the next node
          */
-        AVLNode next() {
-            if (rightIsNext || right == null) {
+        AVLNode<E> next() {
+            if (rightIsNext() || right == null) {
                 return right;
             }
             return right.min();
@@ -454,8 +1904,8 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          *
          * @return the previous node
          */
-        AVLNode previous() {
-            if (leftIsPrevious || left == null) {
+        AVLNode<E> previous() {
+            if (leftIsPrevious() || left == null) {
                 return left;
             }
             return left.max();
@@ -463,61 +1913,86 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
 
         /**
          * Inserts a node at the position index.
+         * Tree is descended iteratively and then rebalanced bottom-up using parent references.
          *
          * @param index is the index of the position relative to the position of
          * the parent node.
          * @param obj is the object to be stored in the position.
+         * @param list the list owning the node
+         * @return new root of the subtree
          */
-        AVLNode insert(final int index, final E obj) {
-            final int indexRelativeToMe = index - relativePosition;
-
-            if (indexRelativeToMe <= 0) {
-                return insertOnLeft(indexRelativeToMe, obj);
-            }
-            return insertOnRight(indexRelativeToMe, obj);
-        }
-
-        private AVLNode insertOnLeft(final int indexRelativeToMe, final E obj) {
-            if (relativePosition >= 0) {
-                relativePosition++;
-            }
-            if (getLeftSubTree() == null) {
-                setLeft(new AVLNode(-1, obj, this, this, left), null);
-            } else {
-                setLeft(left.insert(indexRelativeToMe, obj), null);
+        AVLNode<E> insert(final int index, final E obj, final AbstractIndexedTreeList<E> list) {
+            AVLNode<E> node = this;
+            int indexRelativeToMe = index - relativePosition;
+            while (true) {
+                if (indexRelativeToMe <= 0) {
+                    if (node.relativePosition >= 0) {
+                        node.relativePosition++;
+                    }
+                    if (node.getLeftSubTree() == null) {
+                        final int height = node.height();
+                        node.setLeft(list.newNode(-1, obj, node, node, node.left), null);
+                        return rebalanceInserted(node, height, list);
+                    }
+                    node = node.left;
+                } else {
+                    if (node.relativePosition < 0) {
+                        node.relativePosition--;
+                    }
+                    if (node.getRightSubTree() == null) {
+                        final int height = node.height();
+                        node.setRight(list.newNode(+1, obj, node, node.right, node), null);
+                        return rebalanceInserted(node, height, list);
+                    }
+                    node = node.right;
+                }
+                indexRelativeToMe -= node.relativePosition;
             }
-            final AVLNode ret = balance();
-            recalcHeight();
-            return ret;
         }
 
-        private AVLNode insertOnRight(final int indexRelativeToMe, final E obj) {
-            if (relativePosition < 0) {
-                relativePosition--;
-            }
-            if (getRightSubTree() == null) {
-                setRight(new AVLNode(+1, obj, this, right, this), null);
-            } else {
-                setRight(right.insert(indexRelativeToMe, obj), null);
+        /**
+         * Rebalance nodes from specified one up to this node after insertion.
+         * Walk is stopped as soon as subtree is not rotated and it's height is not changed.
+         *
+         * @param node the node which got a new child
+         * @param height height of the node before insertion
+         * @param list the list owning the node
+         * @return new root of the subtree
+         */
+        private AVLNode<E> rebalanceInserted(AVLNode<E> node, int height, final AbstractIndexedTreeList<E> list) {
+            final boolean rotate = list.balancing.rotatesOnInsert();
+            while (true) {
+                final AVLNode<E> parent = node == this ? null : node.parent;
+                final AVLNode<E> top = rotate ? node.balance() : node;
+                node.recalcHeight();
+                if (top == node && node.height() == height) {
+                    return this;
+                }
+                if (parent == null) {
+                    return top;
+                }
+                height = parent.height();
+                if (parent.getLeftSubTree() == node) {
+                    parent.setLeft(top, null);
+                } else {
+                    parent.setRight(top, null);
+                }
+                node = parent;
             }
-            final AVLNode ret = balance();
-            recalcHeight();
-            return ret;
         }
 
-        //-----------------------------------------------------------------------
         /**
          * Gets the left node, returning null if its a faedelung.
          */
-        private AVLNode getLeftSubTree() {
-            return leftIsPrevious ? null : left;
+        private AVLNode<E> getLeftSubTree() {
+            return leftIsPrevious() ? null : left;
         }
 
         /**
          * Gets the right node, returning null if its a faedelung.
          */
-        private AVLNode getRightSubTree() {
-            return rightIsNext ? null : right;
+        private AVLNode<E> getRightSubTree() {
+            return rightIsNext() ? null : right;
         }
 
         /**
@@ -525,8 +2000,12 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          *
          * @return the rightmost child (greatest index)
          */
-        private AVLNode max() {
-            return getRightSubTree() == null ? this : right.max();
+        private AVLNode<E> max() {
+            AVLNode<E> node = this;
+            while (node.getRightSubTree() != null) {
+                node = node.right;
+            }
+            return node;
         }
 
         /**
@@ -534,121 +2013,148 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          *
          * @return the leftmost child (smallest index)
          */
-        private AVLNode min() {
-            return getLeftSubTree() == null ? this : left.min();
+        private AVLNode<E> min() {
+            AVLNode<E> node = this;
+            while (node.getLeftSubTree() != null) {
+                node = node.left;
+            }
+            return node;
+        }
+
+        private AVLNode<E> removeMax(final AbstractIndexedTreeList<E> list) {
+            return removeAndRebalance(max(), false, list);
+        }
+
+        private AVLNode<E> removeMin(final AbstractIndexedTreeList<E> list) {
+            return removeAndRebalance(min(), false, list);
         }
 
         /**
-         * Removes the node at a given position.
+         * Removes specified node of this subtree and rebalance nodes up to this node.
+         * Relative positions of ancestors are updated after removal, so positions are consistent while
+         * node is removed from nodeMap.
          *
-         * @param index is the index of the element to be removed relative to the position of
-         * the parent node of the current node.
+         * @param removed the node to remove
+         * @param removeValue true if value is removed from the list, false if it's moved to another node
+         * @param list the list owning the node
+         * @return new root of the subtree
          */
-        AVLNode remove(final int index) {
-            final int indexRelativeToMe = index - relativePosition;
-
-            if (indexRelativeToMe == 0) {
-                return removeSelf(true);
+        private AVLNode<E> removeAndRebalance(final AVLNode<E> removed, final boolean removeValue,
+                                              final AbstractIndexedTreeList<E> list) {
+            if (removed == this) {
+                return removeSelf(removeValue, list);
             }
-            if (indexRelativeToMe > 0) {
-                setRight(right.remove(indexRelativeToMe), right.right);
-                if (relativePosition < 0) {
-                    relativePosition++;
+            AVLNode<E> node = removed.parent;
+            boolean isLeft = node.getLeftSubTree() == removed;
+            // removed node may be recycled, so it's links are read before removal
+            final AVLNode<E> follower = isLeft ? removed.left : removed.right;
+            AVLNode<E> subTree = removed.removeSelf(removeValue, list);
+            final boolean rotate = list.balancing.rotatesOnRemove();
+            boolean changed = true;
+            while (true) {
+                final AVLNode<E> parent = node == this ? null : node.parent;
+                final boolean parentIsLeft = parent != null && parent.getLeftSubTree() == node;
+                final int height = node.height();
+                AVLNode<E> top = node;
+                if (changed) {
+                    if (isLeft) {
+                        node.setLeft(subTree, follower);
+                    } else {
+                        node.setRight(subTree, follower);
+                    }
                 }
-            } else {
-                setLeft(left.remove(indexRelativeToMe), left.left);
-                if (relativePosition > 0) {
-                    relativePosition--;
+                if (isLeft) {
+                    if (node.relativePosition > 0) {
+                        node.relativePosition--;
+                    }
+                } else if (node.relativePosition < 0) {
+                    node.relativePosition++;
                 }
+                if (changed) {
+                    node.recalcHeight();
+                    top = rotate ? node.balance() : node;
+                    changed = top != node || node.height() != height;
+                }
+                if (parent == null) {
+                    return top;
+                }
+                subTree = top;
+                isLeft = parentIsLeft;
+                node = parent;
             }
-            recalcHeight();
-            return balance();
-        }
-
-        private AVLNode removeMax() {
-            if (getRightSubTree() == null) {
-                return removeSelf(false);
-            }
-            setRight(right.removeMax(), right.right);
-            if (relativePosition < 0) {
-                relativePosition++;
-            }
-            recalcHeight();
-            return balance();
-        }
-
-        private AVLNode removeMin() {
-            if (getLeftSubTree() == null) {
-                return removeSelf(false);
-            }
-            setLeft(left.removeMin(), left.left);
-            if (relativePosition > 0) {
-                relativePosition--;
-            }
-            recalcHeight();
-            return balance();
         }
 
         /**
          * Removes this node from the tree.
          *
+         * @param removeValue true if value is removed from the list, false if it's moved to another node
+         * @param list the list owning the node
          * @return the node that replaces this one in the parent
          */
-        private AVLNode removeSelf(boolean removeValue) {
-            removeNode(this);
+        private AVLNode<E> removeSelf(boolean removeValue, final AbstractIndexedTreeList<E> list) {
+            list.removeNode(this);
             if (removeValue) {
                 // avoid further calling removeNode(this) when value is overwritten
                 value = null;
             }
             if (getRightSubTree() == null && getLeftSubTree() == null) {
+                list.recycleNode(this);
                 return null;
             }
             if (getRightSubTree() == null) {
                 if (relativePosition > 0) {
                     left.relativePosition += relativePosition + (relativePosition > 0 ? 0 : 1);
                 }
-                left.max().setRight(null, right);
-                return left;
+                final AVLNode<E> replacement = left;
+                replacement.max().setRight(null, right);
+                list.recycleNode(this);
+                return replacement;
             }
             if (getLeftSubTree() == null) {
                 right.relativePosition += relativePosition - (relativePosition < 0 ? 0 : 1);
-                right.min().setLeft(null, left);
-                return right;
+                final AVLNode<E> replacement = right;
+                replacement.min().setLeft(null, left);
+                list.recycleNode(this);
+                return replacement;
             }
 
             if (heightRightMinusLeft() > 0) {
                 // more on the right, so delete from the right
-                final AVLNode rightMin = right.min();
-                if (leftIsPrevious) {
+                final AVLNode<E> rightMin = right.min();
+                if (leftIsPrevious()) {
                     // WARN: This line is not covered by tests. I'm not sure if it's possible to reach this line somehow.
                     // Original TreeList has the same issue.
                     setLeft(rightMin.left);
                 }
-                setRight(right.removeMin());
+                // rightMin may be recycled on removal
+                final E movedValue = rightMin.value;
+                setRight(right.removeMin(list));
                 if (relativePosition < 0) {
                     relativePosition++;
                 }
-                setValue(rightMin.value);
+                setValue(movedValue, list);
             } else {
                 // more on the left or equal, so delete from the left
-                final AVLNode leftMax = left.max();
-                if (rightIsNext) {
+                final AVLNode<E> leftMax = left.max();
+                if (rightIsNext()) {
                     // WARN: This line is not covered by tests. I'm not sure if it's possible to reach this line somehow.
                     // Original TreeList has the same issue.
                     setRight(leftMax.right);
                 }
-                final AVLNode leftPrevious = left.left;
-                setLeft(left.removeMax());
+                final AVLNode<E> leftPrevious = left.left;
+                // leftMax may be recycled on removal
+                final E movedValue = leftMax.value;
+                setLeft(left.removeMax(list));
                 if (left == null) {
                     // special case where left that was deleted was a double link
                     // only occurs when height difference is equal
-                    leftIsPrevious = true;
+                    setLeftIsPrevious(true);
                     setLeft(leftPrevious);
                 }
                 if (relativePosition > 0) {
                     relativePosition--;
                 }
-                setValue(leftMax.value);
+                setValue(movedValue, list);
             }
             recalcHeight();
             return this;
@@ -656,33 +2162,72 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
 
         //-----------------------------------------------------------------------
         /**
-         * Balances according to the AVL algorithm.
+         * Balances according to the AVL algorithm. Trees which are not strictly balanced
+         * (see {@link TreeBalancing}) may have bigger height difference, they are rotated the same way.
          */
-        private AVLNode balance() {
-            switch (heightRightMinusLeft()) {
-                case 1 :
-                case 0 :
-                case -1 :
-                    return this;
-                case -2 :
-                    if (left.heightRightMinusLeft() > 0) {
-                        setLeft(left.rotateLeft(), null);
-                    }
-                    return rotateRight();
-                case 2 :
-                    if (right.heightRightMinusLeft() < 0) {
-                        setRight(right.rotateRight(), null);
-                    }
-                    return rotateLeft();
-                default :
-                    throw new RuntimeException("tree inconsistent!");
+        private AVLNode<E> balance() {
+            final int heightDiff = heightRightMinusLeft();
+            if (heightDiff <= -2) {
+                if (left.heightRightMinusLeft() > 0) {
+                    setLeft(left.rotateLeft(), null);
+                }
+                return rotateRight();
+            }
+            if (heightDiff >= 2) {
+                if (right.heightRightMinusLeft() < 0) {
+                    setRight(right.rotateRight(), null);
+                }
+                return rotateLeft();
+            }
+            return this;
+        }
+
+        /**
+         * Move this node to the root of it's tree by splay rotations (bottom-up splaying).
+         * Parent of the root of the tree should be null, relative position of this node becomes absolute.
+         */
+        private void splay() {
+            while (parent != null) {
+                final AVLNode<E> grandParent = parent.parent;
+                if (grandParent == null) {
+                    rotateUp();
+                } else if ((grandParent.getLeftSubTree() == parent) == (parent.getLeftSubTree() == this)) {
+                    // zig-zig
+                    parent.rotateUp();
+                    rotateUp();
+                } else {
+                    // zig-zag
+                    rotateUp();
+                    rotateUp();
+                }
+            }
+        }
+
+        /**
+         * Rotate this node with it's parent, so this node takes parent's place.
+         */
+        private void rotateUp() {
+            final AVLNode<E> oldParent = parent;
+            final AVLNode<E> grandParent = oldParent.parent;
+            final boolean parentIsLeft = grandParent != null && grandParent.getLeftSubTree() == oldParent;
+            if (oldParent.getLeftSubTree() == this) {
+                oldParent.rotateRight();
+            } else {
+                oldParent.rotateLeft();
+            }
+            if (grandParent == null) {
+                parent = null;
+            } else if (parentIsLeft) {
+                grandParent.setLeft(this, null);
+            } else {
+                grandParent.setRight(this, null);
             }
         }
 
         /**
          * Gets the relative position.
          */
-        private int getOffset(final AVLNode node) {
+        private int getOffset(final AVLNode<E> node) {
             if (node == null) {
                 return 0;
             }
@@ -692,7 +2237,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
         /**
          * Sets the relative position.
          */
-        private int setOffset(final AVLNode node, final int newOffest) {
+        private int setOffset(final AVLNode<E> node, final int newOffest) {
             if (node == null) {
                 return 0;
             }
@@ -705,16 +2250,16 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          * Sets the height by calculation.
          */
         private void recalcHeight() {
-            height = Math.max(
-                getLeftSubTree() == null ? -1 : getLeftSubTree().height,
-                getRightSubTree() == null ? -1 : getRightSubTree().height) + 1;
+            setHeight(Math.max(
+                getLeftSubTree() == null ? -1 : getLeftSubTree().height(),
+                getRightSubTree() == null ? -1 : getRightSubTree().height()) + 1);
         }
 
         /**
          * Returns the height of the node or -1 if the node is null.
          */
-        private int getHeight(final AVLNode node) {
-            return node == null ? -1 : node.height;
+        private int getHeight(final AVLNode<E> node) {
+            return node == null ? -1 : node.height();
         }
 
         /**
@@ -724,9 +2269,9 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
             return getHeight(getRightSubTree()) - getHeight(getLeftSubTree());
         }
 
-        private AVLNode rotateLeft() {
-            final AVLNode newTop = right; // can't be faedelung!
-            final AVLNode movedNode = getRightSubTree().getLeftSubTree();
+        private AVLNode<E> rotateLeft() {
+            final AVLNode<E> newTop = right; // can't be faedelung!
+            final AVLNode<E> movedNode = getRightSubTree().getLeftSubTree();
 
             final int newTopPosition = relativePosition + getOffset(newTop);
             final int myNewPosition = -newTop.relativePosition;
@@ -741,9 +2286,9 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
             return newTop;
         }
 
-        private AVLNode rotateRight() {
-            final AVLNode newTop = left; // can't be faedelung
-            final AVLNode movedNode = getLeftSubTree().getRightSubTree();
+        private AVLNode<E> rotateRight() {
+            final AVLNode<E> newTop = left; // can't be faedelung
+            final AVLNode<E> movedNode = getLeftSubTree().getRightSubTree();
 
             final int newTopPosition = relativePosition + getOffset(newTop);
             final int myNewPosition = -newTop.relativePosition;
@@ -764,9 +2309,9 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          * @param node the new left subtree node
          * @param previous the previous node in the linked list
          */
-        private void setLeft(final AVLNode node, final AVLNode previous) {
-            leftIsPrevious = node == null;
-            setLeft(leftIsPrevious ? previous : node);
+        private void setLeft(final AVLNode<E> node, final AVLNode<E> previous) {
+            setLeftIsPrevious(node == null);
+            setLeft(node == null ? previous : node);
             recalcHeight();
         }
 
@@ -775,9 +2320,9 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          *
          * @param node the new left subtree node
          */
-        private void setLeft(final AVLNode node) {
+        private void setLeft(final AVLNode<E> node) {
             left = node;
-            if (left != null && !leftIsPrevious) {
+            if (left != null && !leftIsPrevious()) {
                 left.parent = this;
             }
         }
@@ -788,9 +2333,9 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          * @param node the new left subtree node
          * @param next the next node in the linked list
          */
-        private void setRight(final AVLNode node, final AVLNode next) {
-            rightIsNext = node == null;
-            setRight(rightIsNext ? next : node);
+        private void setRight(final AVLNode<E> node, final AVLNode<E> next) {
+            setRightIsNext(node == null);
+            setRight(node == null ? next : node);
             recalcHeight();
         }
 
@@ -799,29 +2344,76 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          *
          * @param node the new left subtree node
          */
-        private void setRight(final AVLNode node) {
+        private void setRight(final AVLNode<E> node) {
             right = node;
-            if (right != null && !rightIsNext) {
+            if (right != null && !rightIsNext()) {
                 right.parent = this;
             }
         }
 
         /**
-         * Used for tests.
+         * Used for tests. Subtree is walked with explicit stack, as unbalanced tree may be too high for recursion.
          */
         private int countNodes() {
-            int c = 1;
-            if (!leftIsPrevious && left != null) {
-                assert(left.parent == this);
-                c += left.countNodes();
-            }
-            if (!rightIsNext && right != null) {
-                assert(right.parent == this);
-                c += right.countNodes();
+            int c = 0;
+            final ArrayDeque<AVLNode<E>> stack = new ArrayDeque<>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                final AVLNode<E> node = stack.pop();
+                c++;
+                if (!node.leftIsPrevious() && node.left != null) {
+                    assert(node.left.parent == node);
+                    stack.push(node.left);
+                }
+                if (!node.rightIsNext() && node.right != null) {
+                    assert(node.right.parent == node);
+                    stack.push(node.right);
+                }
             }
             return c;
         }
 
+        /**
+         * Used for tests. Checks heights and balance of subtree and collects nodes by their positions.
+         * Subtree is walked with explicit stack, heights of children are checked before they are used for parent.
+         *
+         * @param position absolute position of this node
+         * @param nodes array to be filled
+         * @param balanced true if subtree should be AVL balanced
+         * @return height of this node
+         */
+        private int checkStructure(final int position, final AVLNode<E>[] nodes, final boolean balanced) {
+            final ArrayDeque<AVLNode<E>> stack = new ArrayDeque<>();
+            final ArrayDeque<Integer> positions = new ArrayDeque<>();
+            final ArrayList<AVLNode<E>> visited = new ArrayList<>();
+            stack.push(this);
+            positions.push(position);
+            while (!stack.isEmpty()) {
+                final AVLNode<E> node = stack.pop();
+                final int nodePosition = positions.pop();
+                assert(nodes[nodePosition] == null);
+                nodes[nodePosition] = node;
+                visited.add(node);
+                if (node.getLeftSubTree() != null) {
+                    stack.push(node.left);
+                    positions.push(nodePosition + node.left.relativePosition);
+                }
+                if (node.getRightSubTree() != null) {
+                    stack.push(node.right);
+                    positions.push(nodePosition + node.right.relativePosition);
+                }
+            }
+            // children are visited after their parents
+            for (int i = visited.size() - 1; i >= 0; i--) {
+                final AVLNode<E> node = visited.get(i);
+                final int leftHeight = node.getLeftSubTree() == null ? -1 : node.left.height();
+                final int rightHeight = node.getRightSubTree() == null ? -1 : node.right.height();
+                assert(!balanced || Math.abs(rightHeight - leftHeight) <= 1);
+                assert(node.height() == Math.max(leftHeight, rightHeight) + 1);
+            }
+            return height();
+        }
+
         /**
          * Used for debugging.
          */
@@ -837,22 +2429,38 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
                 .append(',')
                 .append(getRightSubTree() != null)
                 .append(", faedelung ")
-                .append(rightIsNext)
+                .append(rightIsNext())
                 .append(" )")
                 .toString();
         }
     }
 
+    /**
+     * Node which caches it's absolute position. Cached position is valid only if {@link #epoch} is equal to
+     * modCount of the list. It's used only if position caching is enabled, so other lists don't pay
+     * for extra fields.
+     */
+    static class PositionCachingNode<E> extends AVLNode<E> {
+        /** Cached absolute position. */
+        private int position;
+        /** Value of modCount of the list when position was cached. */
+        private int epoch;
+
+        PositionCachingNode() {
+            epoch = Integer.MIN_VALUE;
+        }
+    }
+
     /**
      * A list iterator over the linked list.
      */
     private class TreeListIterator implements ListIterator<E> { // TODO implements ListIterator<E>, OrderedIterator<E> {
         /** The parent list */
-        private final AbstractIndexedTreeList parent;
+        private final AbstractIndexedTreeList<E> parent;
         /**
          * Cache of the next node that will be returned by {@link #next()}.
          */
-        private AVLNode next;
+        private AVLNode<E> next;
         /**
          * The index of the next node to be returned.
          */
@@ -861,7 +2469,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
          * Cache of the last node that was returned by {@link #next()}
          * or {@link #previous()}.
          */
-        private AVLNode current;
+        private AVLNode<E> current;
         /**
          * The index of the last node that was returned.
          */
@@ -884,7 +2492,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
             super();
             this.parent = parent;
             this.expectedModCount = parent.modCount;
-            this.next = parent.root == null ? null : parent.root.get(fromIndex);
+            this.next = fromIndex < parent.size ? parent.getNode(fromIndex) : null;
             this.nextIndex = fromIndex;
             this.currentIndex = -1;
         }
@@ -976,7 +2584,7 @@ abstract class AbstractIndexedTreeList<E> extends AbstractList<E> {
                 if (current == null) {
                     throw new IllegalStateException();
                 }
-                current.setValue(obj);
+                current.setValue(obj, parent);
             }
         }
 
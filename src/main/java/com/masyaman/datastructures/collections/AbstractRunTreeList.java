@@ -0,0 +1,422 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.AbstractList;
+
+/**
+ * Common class for lists which keep runs of elements as single tree nodes.
+ * <p>
+ * Runs are nodes of AVL tree ordered by their position in the list. Each run keeps amount of it's elements and
+ * amount of elements of it's left subtree, so a run is found by index in O(log r), where r is amount of runs,
+ * and memory depends on amount of runs instead of amount of elements. Like relative positions of AVLNode,
+ * sizes of left subtrees are updated only on the path from the root, so rebalancing stops as soon as height
+ * of a subtree is not changed.
+ * <p>
+ * Subclasses define what elements of a run are and keep runs in their own indexes.
+ *
+ * @author Aleksandr Maksymenko
+ */
+abstract class AbstractRunTreeList<E, R extends AbstractRunTreeList.Run<R>> extends AbstractList<E> {
+
+    /** Root of the tree of runs. */
+    private R root;
+
+    /** Amount of runs. */
+    private int runCount;
+
+    /** Amount of elements. */
+    private int size;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the current size of the list.
+     *
+     * @return the current size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets amount of runs, memory used by the list is proportional to it.
+     *
+     * @return amount of runs
+     */
+    public int runCount() {
+        return runCount;
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        root = null;
+        runCount = 0;
+        size = 0;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Find the run which contains element at specified index.
+     *
+     * @param index index of an element, it should be valid
+     * @return run of the element
+     */
+    protected R runAt(int index) {
+        R run = root;
+        while (true) {
+            if (index < run.leftCount) {
+                run = run.left;
+            } else if (index < run.leftCount + run.count) {
+                return run;
+            } else {
+                index -= run.leftCount + run.count;
+                run = run.right;
+            }
+        }
+    }
+
+    /**
+     * Get index of the first element of a run.
+     *
+     * @param run the run
+     * @return index of it's first element
+     */
+    protected int positionOf(R run) {
+        int position = run.leftCount;
+        while (run.parent != null) {
+            if (run.parent.right == run) {
+                position += run.parent.leftCount + run.parent.count;
+            }
+            run = run.parent;
+        }
+        return position;
+    }
+
+    protected R firstRun() {
+        R run = root;
+        while (run != null && run.left != null) {
+            run = run.left;
+        }
+        return run;
+    }
+
+    protected R lastRun() {
+        R run = root;
+        while (run != null && run.right != null) {
+            run = run.right;
+        }
+        return run;
+    }
+
+    protected R successor(R run) {
+        if (run.right != null) {
+            run = run.right;
+            while (run.left != null) {
+                run = run.left;
+            }
+            return run;
+        }
+        while (run.parent != null && run.parent.right == run) {
+            run = run.parent;
+        }
+        return run.parent;
+    }
+
+    protected R predecessor(R run) {
+        if (run.left != null) {
+            run = run.left;
+            while (run.right != null) {
+                run = run.right;
+            }
+            return run;
+        }
+        while (run.parent != null && run.parent.left == run) {
+            run = run.parent;
+        }
+        return run.parent;
+    }
+
+    /**
+     * Change amount of elements of a run, size and sizes of left subtrees of ancestors are updated.
+     *
+     * @param run the run
+     * @param count new amount of elements, it should be positive
+     */
+    protected void resizeRun(final R run, final int count) {
+        final int delta = count - run.count;
+        run.count = count;
+        size += delta;
+        for (R node = run; node.parent != null; node = node.parent) {
+            if (node.parent.left == node) {
+                node.parent.leftCount += delta;
+            }
+        }
+    }
+
+    /**
+     * Link new run into the tree right after specified run.
+     *
+     * @param previous run to insert after, null to insert as the first run
+     * @param run new run, it's count should be set
+     */
+    protected void insertRun(final R previous, final R run) {
+        runCount++;
+        size += run.count;
+        if (root == null) {
+            root = run;
+            return;
+        }
+        R parent;
+        if (previous == null) {
+            parent = firstRun();
+            parent.left = run;
+        } else if (previous.right == null) {
+            parent = previous;
+            parent.right = run;
+        } else {
+            parent = previous.right;
+            while (parent.left != null) {
+                parent = parent.left;
+            }
+            parent.left = run;
+        }
+        run.parent = parent;
+        for (R node = run; node.parent != null; node = node.parent) {
+            if (node.parent.left == node) {
+                node.parent.leftCount += run.count;
+            }
+        }
+        rebalanceUp(parent);
+    }
+
+    /**
+     * Unlink a run from the tree.
+     *
+     * @param run the run
+     */
+    protected void removeRun(final R run) {
+        runCount--;
+        size -= run.count;
+        subtractFromAncestors(run, run.count, null);
+        final R fixFrom;
+        if (run.left == null || run.right == null) {
+            final R child = run.left != null ? run.left : run.right;
+            fixFrom = run.parent;
+            replaceChild(run.parent, run, child);
+            if (child != null) {
+                child.parent = run.parent;
+            }
+        } else {
+            // successor takes place of removed run
+            R successor = run.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            subtractFromAncestors(successor, successor.count, run);
+            if (successor.parent == run) {
+                fixFrom = successor;
+            } else {
+                fixFrom = successor.parent;
+                fixFrom.left = successor.right;
+                if (successor.right != null) {
+                    successor.right.parent = fixFrom;
+                }
+                successor.right = run.right;
+                run.right.parent = successor;
+            }
+            successor.left = run.left;
+            run.left.parent = successor;
+            successor.leftCount = run.leftCount;
+            successor.height = run.height;
+            replaceChild(run.parent, run, successor);
+            successor.parent = run.parent;
+        }
+        rebalanceUp(fixFrom);
+        run.parent = null;
+        run.left = null;
+        run.right = null;
+        run.leftCount = 0;
+        run.height = 1;
+    }
+
+    /**
+     * Subtract amount of elements from sizes of left subtrees of ancestors which have the run in their left subtree.
+     *
+     * @param run the run
+     * @param count amount of elements
+     * @param top ancestor to stop at, null to walk up to the root
+     */
+    private void subtractFromAncestors(R run, final int count, final R top) {
+        while (run.parent != top) {
+            if (run.parent.left == run) {
+                run.parent.leftCount -= count;
+            }
+            run = run.parent;
+        }
+    }
+
+    /**
+     * Update heights from specified run up and rebalance runs on the way. It stops at the first run which
+     * is not rotated and which height is not changed.
+     */
+    private void rebalanceUp(R run) {
+        while (run != null) {
+            final R parent = run.parent;
+            final int height = run.height;
+            final int heightDiff = height(run.left) - height(run.right);
+            if (heightDiff > 1) {
+                if (height(run.left.left) < height(run.left.right)) {
+                    rotateLeft(run.left);
+                }
+                rotateRight(run);
+            } else if (heightDiff < -1) {
+                if (height(run.right.right) < height(run.right.left)) {
+                    rotateRight(run.right);
+                }
+                rotateLeft(run);
+            } else {
+                run.updateHeight();
+                if (run.height == height) {
+                    return;
+                }
+            }
+            run = parent;
+        }
+    }
+
+    private void rotateLeft(final R run) {
+        final R pivot = run.right;
+        run.right = pivot.left;
+        if (pivot.left != null) {
+            pivot.left.parent = run;
+        }
+        pivot.parent = run.parent;
+        replaceChild(run.parent, run, pivot);
+        pivot.left = run;
+        run.parent = pivot;
+        pivot.leftCount += run.leftCount + run.count;
+        run.updateHeight();
+        pivot.updateHeight();
+    }
+
+    private void rotateRight(final R run) {
+        final R pivot = run.left;
+        run.left = pivot.right;
+        if (pivot.right != null) {
+            pivot.right.parent = run;
+        }
+        pivot.parent = run.parent;
+        replaceChild(run.parent, run, pivot);
+        pivot.right = run;
+        run.parent = pivot;
+        run.leftCount -= pivot.leftCount + pivot.count;
+        run.updateHeight();
+        pivot.updateHeight();
+    }
+
+    private void replaceChild(final R parent, final R child, final R replacement) {
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == child) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+    }
+
+    private static int height(final Run<?> run) {
+        return run == null ? 0 : run.height;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Checks whether the index is valid.
+     *
+     * @param index the index to check
+     * @param startIndex the first allowed index
+     * @param endIndex the last allowed index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    protected void checkInterval(final int index, final int startIndex, final int endIndex) {
+        if (index < startIndex || index > endIndex) {
+            throw new IndexOutOfBoundsException("Invalid index:" + index + ", size=" + size);
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    void assertConsistent() {
+        assert(root == null || root.parent == null);
+        assert(checkSubtree(root) == size);
+        int count = 0;
+        int position = 0;
+        for (R run = firstRun(); run != null; run = successor(run)) {
+            assert(run.count > 0);
+            assert(positionOf(run) == position);
+            position += run.count;
+            count++;
+        }
+        assert(count == runCount);
+    }
+
+    /**
+     * Check links, heights and sizes of left subtrees of a subtree.
+     *
+     * @return amount of elements in the subtree
+     */
+    private int checkSubtree(final R run) {
+        if (run == null) {
+            return 0;
+        }
+        assert(run.left == null || run.left.parent == run);
+        assert(run.right == null || run.right.parent == run);
+        assert(run.height == Math.max(height(run.left), height(run.right)) + 1);
+        assert(Math.abs(height(run.left) - height(run.right)) <= 1);
+        final int leftCount = checkSubtree(run.left);
+        assert(run.leftCount == leftCount);
+        return leftCount + run.count + checkSubtree(run.right);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Run of elements in the tree.
+     */
+    static class Run<R extends Run<R>> {
+        R parent;
+        R left;
+        R right;
+        int height = 1;
+        /** Amount of elements in the left subtree. */
+        int leftCount;
+        /** Amount of elements in the run. */
+        int count;
+
+        Run(final int count) {
+            this.count = count;
+        }
+
+        void updateHeight() {
+            height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+}
@@ -0,0 +1,1063 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * <p>
+ * Long indexed variant of {@link IndexedArrayTreeListSet} for lists which can grow beyond
+ * <code>Integer.MAX_VALUE</code> elements. It implements both <code>List</code> and <code>Set</code> of unique
+ * non-null elements, methods with long indexes such as {@link #get(long)}, {@link #indexOfLong(Object)},
+ * {@link #add(long, Object)} and {@link #sizeLong()} should be used for big lists.
+ * </p>
+ * <p>
+ * Get by index, insert (head, tail, middle), remove(by index or by value) and indexOf are all O(log n).
+ * Contains is O(1).
+ * </p>
+ * <p>
+ * Nodes are long ids, their links and sizes of left subtrees are long. All data are kept in pages of arrays,
+ * so there are no objects per element and growing the list allocates a new page instead of copying arrays.
+ * Elements are mapped to ids by hash table which chains are linked by ids.
+ * </p>
+ * <p>
+ * Methods of <code>List</code> use int indexes. {@link #size()} returns <code>Integer.MAX_VALUE</code>
+ * for bigger lists as it's required by <code>Collection</code>, other methods throw
+ * <code>IllegalStateException</code> if their result doesn't fit int.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class BigIndexedTreeListSet<E> extends AbstractList<E> implements Set<E> {
+
+    /** Amount of bits of node id within a page. */
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Minimal length of the first page. */
+    private static final int MIN_PAGE_LENGTH = 16;
+
+    /** Amount of longs per node in pages of links. */
+    private static final int STRIDE_SHIFT = 2;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int PARENT = 2;
+    private static final int LEFT_SIZE = 3;
+
+    /** Minimal amount of bits of hash table index. */
+    private static final int MIN_TABLE_BITS = 4;
+
+    /** Maximal amount of bits of hash table index, hash codes are int. */
+    private static final int MAX_TABLE_BITS = 32;
+
+    /** Links and sizes of left subtrees of nodes by pages. */
+    private long[][] links = new long[0][];
+
+    /** Heights of nodes by pages. */
+    private byte[][] heights = new byte[0][];
+
+    /** Values of nodes by pages, ids of removed nodes have null values. */
+    private Object[][] values = new Object[0][];
+
+    /** Hashes of values by pages. */
+    private int[][] hashes = new int[0][];
+
+    /** Next id in the same hash chain by pages, 0 for the end of chain. */
+    private long[][] chains = new long[0][];
+
+    /** The first id of chain by hash, split into pages. */
+    private long[][] table;
+
+    /** Amount of bits of hash table index. */
+    private int tableBits;
+
+    /** Id of the root, 0 for empty list. */
+    private long root;
+
+    /** Amount of elements. */
+    private long size;
+
+    /** Id which is given to a new node if free list is empty, id 0 is a sentinel. */
+    private long nextId = 1;
+
+    /** The first id of free list, ids of free list are linked by right link. */
+    private long freeList;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public BigIndexedTreeListSet() {
+        ensureNodeCapacity(1);
+        allocateTable(MIN_TABLE_BITS);
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection. Duplicates are skipped.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public BigIndexedTreeListSet(final Collection<? extends E> coll) {
+        this();
+        ensureCapacity(coll.size());
+        long count = 0;
+        for (E e : coll) {
+            checkNotNull(e);
+            final int hash = hash(e);
+            if (find(e, hash) == 0) {
+                count++;
+                setValue(count, e);
+                link(count, hash);
+            }
+        }
+        nextId = count + 1;
+        size = count;
+        root = build(1, count, 0);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the size of the list.
+     *
+     * @return the size of the list
+     */
+    public long sizeLong() {
+        return size;
+    }
+
+    /**
+     * Gets the size of the list, <code>Integer.MAX_VALUE</code> if it contains more elements.
+     *
+     * @return the size of the list
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public E get(final long index) {
+        return valueOf(nodeAt(index));
+    }
+
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E get(final int index) {
+        return get((long) index);
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    public long indexOfLong(final Object object) {
+        final long id = find(object);
+        return id == 0 ? -1 : positionOf(id);
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     * @throws IllegalStateException if the index doesn't fit int
+     */
+    @Override
+    public int indexOf(final Object object) {
+        return toIntIndex(indexOfLong(object));
+    }
+
+    /**
+     * Searches for the last index of an object in the list, it's the same as indexOf as elements are unique.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     * @throws IllegalStateException if the index doesn't fit int
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return indexOf(object);
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return find(object) != 0;
+    }
+
+    /**
+     * Adds an object to the end of the list if it's not contained in the list.
+     *
+     * @param object the object to add
+     * @return true if the object is added
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final E object) {
+        return insert(size, object);
+    }
+
+    /**
+     * Inserts an object at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    public void add(final long index, final E object) {
+        insert(index, object);
+    }
+
+    /**
+     * Inserts an object at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final E object) {
+        insert(index, object);
+    }
+
+    /**
+     * Adds all elements of collection to the end of the list, elements which are already contained
+     * in the list are skipped.
+     *
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(final Collection<? extends E> coll) {
+        final long initialSize = size;
+        for (E e : coll) {
+            insert(size, e);
+        }
+        return size != initialSize;
+    }
+
+    /**
+     * Inserts all elements of collection at the specified index, elements which are already contained
+     * in the list are skipped.
+     *
+     * @param index the index to add at
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(final int index, final Collection<? extends E> coll) {
+        checkInterval(index, 0, size);
+        long position = index;
+        final long initialSize = size;
+        for (E e : coll) {
+            if (insert(position, e)) {
+                position++;
+            }
+        }
+        return size != initialSize;
+    }
+
+    /**
+     * Sets the element at the specified index.
+     * If specified value already exist in Set, it will be removed at old position,
+     * like in {@link IndexedTreeListSet#set(int, Object)}.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    public E set(long index, final E object) {
+        checkInterval(index, 0, size - 1);
+        checkNotNull(object);
+        final long existing = find(object);
+        if (existing != 0) {
+            final long position = positionOf(existing);
+            if (position == index) {
+                return object;
+            }
+            removeId(existing);
+            if (position < index) {
+                index--;
+            }
+        }
+        final long id = nodeAt(index);
+        final E previous = valueOf(id);
+        unlink(id);
+        setValue(id, object);
+        link(id, hash(object));
+        return previous;
+    }
+
+    /**
+     * Sets the element at the specified index, see {@link #set(long, Object)}.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public E set(final int index, final E object) {
+        return set((long) index, object);
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public E remove(final long index) {
+        final long id = nodeAt(index);
+        final E value = valueOf(id);
+        removeId(id);
+        return value;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E remove(final int index) {
+        return remove((long) index);
+    }
+
+    /**
+     * Removes specified object from the list.
+     *
+     * @param object the object to remove
+     * @return true if the object was in the list
+     */
+    @Override
+    public boolean remove(final Object object) {
+        final long id = find(object);
+        if (id == 0) {
+            return false;
+        }
+        removeId(id);
+        return true;
+    }
+
+    /**
+     * Returns an unmodifiable view of the portion of this list between the specified
+     * fromIndex, inclusive, and toIndex, exclusive.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return an unmodifiable view of the specified range within this list
+     */
+    @Override
+    public List<E> subList(final int fromIndex, final int toIndex) {
+        return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Clears the list, removing all entries. Allocated pages are kept.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        for (Object[] page : values) {
+            Arrays.fill(page, null);
+        }
+        for (long[] page : table) {
+            Arrays.fill(page, 0);
+        }
+        root = 0;
+        size = 0;
+        nextId = 1;
+        freeList = 0;
+    }
+
+    /**
+     * Allocates pages and hash table, so specified amount of elements can be kept without resizing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(final long minCapacity) {
+        ensureNodeCapacity(minCapacity + 1);
+        final int bits = tableBits(minCapacity);
+        if (bits > tableBits) {
+            rehash(bits);
+        }
+    }
+
+    /**
+     * Returns an iterator which walks nodes in order, so the whole iteration is O(n).
+     *
+     * @return iterator over elements of the list
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private long next = firstNode();
+            private long current;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != 0;
+            }
+
+            @Override
+            public E next() {
+                checkModCount();
+                if (next == 0) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = nextNode(next);
+                return valueOf(current);
+            }
+
+            @Override
+            public void remove() {
+                checkModCount();
+                if (current == 0) {
+                    throw new IllegalStateException();
+                }
+                removeId(current);
+                current = 0;
+                expectedModCount = modCount;
+            }
+
+            private void checkModCount() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the elements in this list.
+     *
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper sequence.
+     *
+     * @return array of elements
+     * @throws IllegalStateException if the list is too big for an array
+     */
+    @Override
+    public Object[] toArray() {
+        toIntIndex(size);
+        return super.toArray();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper sequence.
+     *
+     * @param array the array into which the elements are to be stored, if it is big enough
+     * @return array of elements
+     * @throws IllegalStateException if the list is too big for an array
+     */
+    @Override
+    public <T> T[] toArray(final T[] array) {
+        toIntIndex(size);
+        return super.toArray(array);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Get id of node by it's index.
+     */
+    private long nodeAt(long index) {
+        checkInterval(index, 0, size - 1);
+        long node = root;
+        while (true) {
+            final long leftSize = getLink(node, LEFT_SIZE);
+            if (index < leftSize) {
+                node = getLink(node, LEFT);
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = getLink(node, RIGHT);
+            }
+        }
+    }
+
+    /**
+     * Get position of a node in the list.
+     */
+    private long positionOf(long id) {
+        long position = getLink(id, LEFT_SIZE);
+        long parentId = getLink(id, PARENT);
+        while (parentId != 0) {
+            if (getLink(parentId, RIGHT) == id) {
+                position += getLink(parentId, LEFT_SIZE) + 1;
+            }
+            id = parentId;
+            parentId = getLink(parentId, PARENT);
+        }
+        return position;
+    }
+
+    private long firstNode() {
+        long node = root;
+        while (getLink(node, LEFT) != 0) {
+            node = getLink(node, LEFT);
+        }
+        return node;
+    }
+
+    private long nextNode(long id) {
+        if (getLink(id, RIGHT) != 0) {
+            id = getLink(id, RIGHT);
+            while (getLink(id, LEFT) != 0) {
+                id = getLink(id, LEFT);
+            }
+            return id;
+        }
+        while (getLink(id, PARENT) != 0 && getLink(getLink(id, PARENT), RIGHT) == id) {
+            id = getLink(id, PARENT);
+        }
+        return getLink(id, PARENT);
+    }
+
+    /**
+     * Insert an object at specified index if it's not contained in the list.
+     */
+    private boolean insert(long index, final E object) {
+        checkNotNull(object);
+        checkInterval(index, 0, size);
+        final int hash = hash(object);
+        if (find(object, hash) != 0) {
+            return false;
+        }
+        modCount++;
+        final long id = newId();
+        setLink(id, LEFT, 0);
+        setLink(id, RIGHT, 0);
+        setLink(id, LEFT_SIZE, 0);
+        setHeight(id, 1);
+        setValue(id, object);
+        link(id, hash);
+        size++;
+        if (root == 0) {
+            setLink(id, PARENT, 0);
+            root = id;
+        } else {
+            long node = root;
+            while (true) {
+                final long leftSize = getLink(node, LEFT_SIZE);
+                if (index <= leftSize) {
+                    setLink(node, LEFT_SIZE, leftSize + 1);
+                    if (getLink(node, LEFT) == 0) {
+                        setLink(node, LEFT, id);
+                        break;
+                    }
+                    node = getLink(node, LEFT);
+                } else {
+                    index -= leftSize + 1;
+                    if (getLink(node, RIGHT) == 0) {
+                        setLink(node, RIGHT, id);
+                        break;
+                    }
+                    node = getLink(node, RIGHT);
+                }
+            }
+            setLink(id, PARENT, node);
+            rebalanceUp(node);
+        }
+        if (size > (3L << tableBits) >>> 2 && tableBits < MAX_TABLE_BITS) {
+            rehash(tableBits + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Unlink a node from the tree and hash table and put it's id into free list.
+     */
+    private void removeId(final long id) {
+        modCount++;
+        size--;
+        unlink(id);
+        setValue(id, null);
+        decrementLeftSizes(id, 0);
+        final long fixFrom;
+        final long left = getLink(id, LEFT);
+        final long right = getLink(id, RIGHT);
+        if (left == 0 || right == 0) {
+            final long child = left != 0 ? left : right;
+            fixFrom = getLink(id, PARENT);
+            replaceChild(fixFrom, id, child);
+            if (child != 0) {
+                setLink(child, PARENT, fixFrom);
+            }
+        } else {
+            // successor takes place of removed node
+            long successor = right;
+            while (getLink(successor, LEFT) != 0) {
+                successor = getLink(successor, LEFT);
+            }
+            decrementLeftSizes(successor, id);
+            if (getLink(successor, PARENT) == id) {
+                fixFrom = successor;
+            } else {
+                fixFrom = getLink(successor, PARENT);
+                final long successorRight = getLink(successor, RIGHT);
+                setLink(fixFrom, LEFT, successorRight);
+                if (successorRight != 0) {
+                    setLink(successorRight, PARENT, fixFrom);
+                }
+                setLink(successor, RIGHT, right);
+                setLink(right, PARENT, successor);
+            }
+            setLink(successor, LEFT, left);
+            setLink(left, PARENT, successor);
+            setLink(successor, LEFT_SIZE, getLink(id, LEFT_SIZE));
+            setHeight(successor, getHeight(id));
+            replaceChild(getLink(id, PARENT), id, successor);
+            setLink(successor, PARENT, getLink(id, PARENT));
+        }
+        rebalanceUp(fixFrom);
+        setLink(id, LEFT, 0);
+        setLink(id, RIGHT, freeList);
+        setLink(id, PARENT, 0);
+        setLink(id, LEFT_SIZE, 0);
+        setHeight(id, 0);
+        freeList = id;
+    }
+
+    private long newId() {
+        if (freeList != 0) {
+            final long id = freeList;
+            freeList = getLink(id, RIGHT);
+            return id;
+        }
+        ensureNodeCapacity(nextId + 1);
+        return nextId++;
+    }
+
+    /**
+     * Build balanced subtree of nodes with ids from lowId to highId.
+     */
+    private long build(final long lowId, final long highId, final long parentId) {
+        if (lowId > highId) {
+            return 0;
+        }
+        final long id = (lowId + highId) >>> 1;
+        final long leftId = build(lowId, id - 1, id);
+        final long rightId = build(id + 1, highId, id);
+        setLink(id, LEFT, leftId);
+        setLink(id, RIGHT, rightId);
+        setLink(id, PARENT, parentId);
+        setLink(id, LEFT_SIZE, id - lowId);
+        setHeight(id, Math.max(getHeight(leftId), getHeight(rightId)) + 1);
+        return id;
+    }
+
+    /**
+     * Decrement sizes of left subtrees of ancestors of a node which have the node in their left subtree.
+     *
+     * @param id id of the node
+     * @param top id of ancestor to stop at, 0 to walk up to the root
+     */
+    private void decrementLeftSizes(long id, final long top) {
+        long parentId = getLink(id, PARENT);
+        while (parentId != top) {
+            if (getLink(parentId, LEFT) == id) {
+                setLink(parentId, LEFT_SIZE, getLink(parentId, LEFT_SIZE) - 1);
+            }
+            id = parentId;
+            parentId = getLink(parentId, PARENT);
+        }
+    }
+
+    /**
+     * Update heights from specified node up and rebalance nodes on the way. It stops at the first node which
+     * is not rotated and which height is not changed.
+     */
+    private void rebalanceUp(long node) {
+        while (node != 0) {
+            final long parentId = getLink(node, PARENT);
+            final int height = getHeight(node);
+            final long leftId = getLink(node, LEFT);
+            final long rightId = getLink(node, RIGHT);
+            final int heightDiff = getHeight(leftId) - getHeight(rightId);
+            if (heightDiff > 1) {
+                if (getHeight(getLink(leftId, LEFT)) < getHeight(getLink(leftId, RIGHT))) {
+                    rotateLeft(leftId);
+                }
+                rotateRight(node);
+            } else if (heightDiff < -1) {
+                if (getHeight(getLink(rightId, RIGHT)) < getHeight(getLink(rightId, LEFT))) {
+                    rotateRight(rightId);
+                }
+                rotateLeft(node);
+            } else {
+                updateHeight(node);
+                if (getHeight(node) == height) {
+                    return;
+                }
+            }
+            node = parentId;
+        }
+    }
+
+    private void rotateLeft(final long node) {
+        final long pivot = getLink(node, RIGHT);
+        final long pivotLeft = getLink(pivot, LEFT);
+        setLink(node, RIGHT, pivotLeft);
+        if (pivotLeft != 0) {
+            setLink(pivotLeft, PARENT, node);
+        }
+        setLink(pivot, PARENT, getLink(node, PARENT));
+        replaceChild(getLink(node, PARENT), node, pivot);
+        setLink(pivot, LEFT, node);
+        setLink(node, PARENT, pivot);
+        setLink(pivot, LEFT_SIZE, getLink(pivot, LEFT_SIZE) + getLink(node, LEFT_SIZE) + 1);
+        updateHeight(node);
+        updateHeight(pivot);
+    }
+
+    private void rotateRight(final long node) {
+        final long pivot = getLink(node, LEFT);
+        final long pivotRight = getLink(pivot, RIGHT);
+        setLink(node, LEFT, pivotRight);
+        if (pivotRight != 0) {
+            setLink(pivotRight, PARENT, node);
+        }
+        setLink(pivot, PARENT, getLink(node, PARENT));
+        replaceChild(getLink(node, PARENT), node, pivot);
+        setLink(pivot, RIGHT, node);
+        setLink(node, PARENT, pivot);
+        setLink(node, LEFT_SIZE, getLink(node, LEFT_SIZE) - getLink(pivot, LEFT_SIZE) - 1);
+        updateHeight(node);
+        updateHeight(pivot);
+    }
+
+    private void replaceChild(final long parentId, final long child, final long replacement) {
+        if (parentId == 0) {
+            root = replacement;
+        } else if (getLink(parentId, LEFT) == child) {
+            setLink(parentId, LEFT, replacement);
+        } else {
+            setLink(parentId, RIGHT, replacement);
+        }
+    }
+
+    private void updateHeight(final long node) {
+        setHeight(node, Math.max(getHeight(getLink(node, LEFT)), getHeight(getLink(node, RIGHT))) + 1);
+    }
+
+    //-----------------------------------------------------------------------
+    private long getLink(final long id, final int field) {
+        return links[(int) (id >>> PAGE_BITS)][(((int) id & PAGE_MASK) << STRIDE_SHIFT) + field];
+    }
+
+    private void setLink(final long id, final int field, final long value) {
+        links[(int) (id >>> PAGE_BITS)][(((int) id & PAGE_MASK) << STRIDE_SHIFT) + field] = value;
+    }
+
+    private int getHeight(final long id) {
+        return heights[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK];
+    }
+
+    private void setHeight(final long id, final int height) {
+        heights[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK] = (byte) height;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E valueOf(final long id) {
+        return (E) values[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK];
+    }
+
+    private void setValue(final long id, final Object value) {
+        values[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK] = value;
+    }
+
+    private int getHash(final long id) {
+        return hashes[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK];
+    }
+
+    private long getChain(final long id) {
+        return chains[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK];
+    }
+
+    private void setChain(final long id, final long next) {
+        chains[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK] = next;
+    }
+
+    /**
+     * Allocate pages, so ids less than specified capacity can be used. The first page grows by copying
+     * until it's full, so small lists don't allocate whole page.
+     */
+    private void ensureNodeCapacity(final long capacity) {
+        final int firstPageLength = links.length == 0 ? 0 : heights[0].length;
+        if (capacity > firstPageLength && firstPageLength < PAGE_SIZE) {
+            final long grown = Math.max(capacity, firstPageLength + (firstPageLength >> 1));
+            resizeFirstPage((int) Math.min(Math.max(grown, MIN_PAGE_LENGTH), PAGE_SIZE));
+        }
+        final int pages = (int) ((capacity + PAGE_MASK) >>> PAGE_BITS);
+        if (pages > links.length) {
+            final int oldPages = links.length;
+            links = Arrays.copyOf(links, pages);
+            heights = Arrays.copyOf(heights, pages);
+            values = Arrays.copyOf(values, pages);
+            hashes = Arrays.copyOf(hashes, pages);
+            chains = Arrays.copyOf(chains, pages);
+            for (int i = oldPages; i < pages; i++) {
+                links[i] = new long[PAGE_SIZE << STRIDE_SHIFT];
+                heights[i] = new byte[PAGE_SIZE];
+                values[i] = new Object[PAGE_SIZE];
+                hashes[i] = new int[PAGE_SIZE];
+                chains[i] = new long[PAGE_SIZE];
+            }
+        }
+    }
+
+    private void resizeFirstPage(final int length) {
+        if (links.length == 0) {
+            links = new long[][] {new long[length << STRIDE_SHIFT]};
+            heights = new byte[][] {new byte[length]};
+            values = new Object[][] {new Object[length]};
+            hashes = new int[][] {new int[length]};
+            chains = new long[][] {new long[length]};
+        } else {
+            links[0] = Arrays.copyOf(links[0], length << STRIDE_SHIFT);
+            heights[0] = Arrays.copyOf(heights[0], length);
+            values[0] = Arrays.copyOf(values[0], length);
+            hashes[0] = Arrays.copyOf(hashes[0], length);
+            chains[0] = Arrays.copyOf(chains[0], length);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    private long getHead(final long slot) {
+        return table[(int) (slot >>> PAGE_BITS)][(int) slot & PAGE_MASK];
+    }
+
+    private void setHead(final long slot, final long id) {
+        table[(int) (slot >>> PAGE_BITS)][(int) slot & PAGE_MASK] = id;
+    }
+
+    /**
+     * Get slot of hash table by Fibonacci hashing of hash code.
+     */
+    private long slot(final int hash) {
+        return ((hash * 0x9E3779B9) & 0xFFFFFFFFL) >>> (32 - tableBits);
+    }
+
+    private long find(final Object object) {
+        return object == null ? 0 : find(object, hash(object));
+    }
+
+    /**
+     * Get id of node with specified value.
+     *
+     * @return id of node, 0 if there is no such value
+     */
+    private long find(final Object object, final int hash) {
+        for (long id = getHead(slot(hash)); id != 0; id = getChain(id)) {
+            if (getHash(id) == hash && object.equals(valueOf(id))) {
+                return id;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Add node to the head of it's hash chain.
+     */
+    private void link(final long id, final int hash) {
+        final long slot = slot(hash);
+        hashes[(int) (id >>> PAGE_BITS)][(int) id & PAGE_MASK] = hash;
+        setChain(id, getHead(slot));
+        setHead(slot, id);
+    }
+
+    /**
+     * Remove node from it's hash chain.
+     */
+    private void unlink(final long id) {
+        final long slot = slot(getHash(id));
+        long previous = getHead(slot);
+        if (previous == id) {
+            setHead(slot, getChain(id));
+        } else {
+            while (getChain(previous) != id) {
+                previous = getChain(previous);
+            }
+            setChain(previous, getChain(id));
+        }
+        setChain(id, 0);
+    }
+
+    private void allocateTable(final int bits) {
+        tableBits = bits;
+        final long length = 1L << bits;
+        final int pageLength = (int) Math.min(length, PAGE_SIZE);
+        table = new long[(int) (length / pageLength)][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = new long[pageLength];
+        }
+    }
+
+    private void rehash(final int bits) {
+        allocateTable(bits);
+        for (long id = firstNode(); id != 0; id = nextNode(id)) {
+            link(id, getHash(id));
+        }
+    }
+
+    /**
+     * Get amount of bits of hash table index which can hold specified amount of elements with load factor 0.75.
+     */
+    private static int tableBits(final long expectedSize) {
+        final long minLength = Math.max((expectedSize * 4 + 2) / 3, 1L << MIN_TABLE_BITS);
+        return Math.min(64 - Long.numberOfLeadingZeros(minLength - 1), MAX_TABLE_BITS);
+    }
+
+    private static int hash(final Object object) {
+        return object.hashCode();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Checks whether the index is valid.
+     *
+     * @param index the index to check
+     * @param startIndex the first allowed index
+     * @param endIndex the last allowed index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    private void checkInterval(final long index, final long startIndex, final long endIndex) {
+        if (index < startIndex || index > endIndex) {
+            throw new IndexOutOfBoundsException("Invalid index:" + index + ", size=" + size);
+        }
+    }
+
+    /**
+     * Convert index or size to int.
+     *
+     * @throws IllegalStateException if the value doesn't fit int
+     */
+    static int toIntIndex(final long index) {
+        if (index > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Index " + index + " doesn't fit int, use methods with long indexes");
+        }
+        return (int) index;
+    }
+
+    private static void checkNotNull(final Object object) {
+        if (object == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    void assertConsistent() {
+        assert(getLink(root, PARENT) == 0);
+        assert(getHeight(0) == 0);
+        assert(checkSubtree(root) == size);
+        long count = 0;
+        for (long id = firstNode(); id != 0; id = nextNode(id)) {
+            assert(positionOf(id) == count);
+            assert(find(valueOf(id)) == id);
+            assert((slot(getHash(id))) == slot(hash(valueOf(id))));
+            count++;
+        }
+        assert(count == size);
+        long free = 0;
+        for (long id = freeList; id != 0; id = getLink(id, RIGHT)) {
+            assert(valueOf(id) == null);
+            free++;
+        }
+        assert(count + free == nextId - 1);
+    }
+
+    /**
+     * Check links, heights and sizes of left subtrees of a subtree.
+     *
+     * @return size of the subtree
+     */
+    private long checkSubtree(final long id) {
+        if (id == 0) {
+            return 0;
+        }
+        final long left = getLink(id, LEFT);
+        final long right = getLink(id, RIGHT);
+        assert(left == 0 || getLink(left, PARENT) == id);
+        assert(right == 0 || getLink(right, PARENT) == id);
+        assert(getHeight(id) == Math.max(getHeight(left), getHeight(right)) + 1);
+        assert(Math.abs(getHeight(left) - getHeight(right)) <= 1);
+        final long leftSize = checkSubtree(left);
+        assert(getLink(id, LEFT_SIZE) == leftSize);
+        return leftSize + checkSubtree(right) + 1;
+    }
+}
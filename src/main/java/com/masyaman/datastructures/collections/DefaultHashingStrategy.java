@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+/**
+ * Predefined hashing strategies of {@link HashingStrategy}.
+ *
+ * @author Aleksandr Maksymenko
+ */
+enum DefaultHashingStrategy implements HashingStrategy<Object> {
+
+    /**
+     * Elements are compared by hashCode and equals.
+     */
+    EQUALITY {
+        @Override
+        public int hashCode(final Object object) {
+            return object.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object object1, final Object object2) {
+            return object1.equals(object2);
+        }
+    },
+
+    /**
+     * Elements are compared by identity.
+     */
+    IDENTITY {
+        @Override
+        public int hashCode(final Object object) {
+            return System.identityHashCode(object);
+        }
+
+        @Override
+        public boolean equals(final Object object1, final Object object2) {
+            return object1 == object2;
+        }
+    }
+}
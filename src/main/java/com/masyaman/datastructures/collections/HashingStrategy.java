@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+/**
+ * Defines how elements of {@link IndexedTreeListSet} are hashed and compared when the set uses it's own hash index
+ * instead of Map. It replaces wrapping of elements into keys with custom equals and hashCode.
+ * Strategy should be consistent: equal elements should have equal hash codes.
+ *
+ * @param <E> the type of elements
+ * @author Aleksandr Maksymenko
+ */
+public interface HashingStrategy<E> {
+
+    /**
+     * Get hash code of an element.
+     *
+     * @param object element, not null
+     * @return hash code
+     */
+    int hashCode(E object);
+
+    /**
+     * Check if elements are equal.
+     *
+     * @param object1 first element, not null
+     * @param object2 second element, not null
+     * @return true if elements are equal
+     */
+    boolean equals(E object1, E object2);
+
+    /**
+     * Get strategy which uses hashCode and equals of elements, elements are compared as by HashMap.
+     *
+     * @param <E> the type of elements
+     * @return default strategy
+     */
+    @SuppressWarnings("unchecked")
+    static <E> HashingStrategy<E> defaultStrategy() {
+        return (HashingStrategy<E>) DefaultHashingStrategy.EQUALITY;
+    }
+
+    /**
+     * Get strategy which compares elements by identity, elements are compared as by IdentityHashMap.
+     *
+     * @param <E> the type of elements
+     * @return identity strategy
+     */
+    @SuppressWarnings("unchecked")
+    static <E> HashingStrategy<E> identityStrategy() {
+        return (HashingStrategy<E>) DefaultHashingStrategy.IDENTITY;
+    }
+}
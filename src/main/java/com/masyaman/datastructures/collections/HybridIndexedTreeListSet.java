@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * <p>
+ * Adaptive variant of {@link IndexedTreeListSet} for many small lists. It implements both <code>List</code> and
+ * <code>Set</code> of unique non-null elements with the same behaviour as <code>IndexedTreeListSet</code>.
+ * </p>
+ * <p>
+ * Small list is kept as a plain array, indexOf and contains scan it linearly, which is faster than hashing for
+ * a few elements and takes no memory for nodes and map. When the list grows beyond promote threshold,
+ * elements are moved to <code>IndexedTreeListSet</code>. When removals shrink it below half of the threshold,
+ * elements are moved back to array, so the list doesn't switch back and forth on adding and removing
+ * the same element at the threshold. Each switch is O(n).
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class HybridIndexedTreeListSet<E> extends AbstractList<E> implements Set<E> {
+
+    /** Default amount of elements which are kept in array. */
+    public static final int DEFAULT_PROMOTE_THRESHOLD = 32;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /** Maximal amount of elements kept in array. */
+    private final int promoteThreshold;
+
+    /** Elements of small list, null if list is promoted to tree. */
+    private Object[] elements = EMPTY;
+
+    /** Amount of elements in array. */
+    private int size;
+
+    /** Elements of big list, null if list is kept in array. */
+    private IndexedTreeListSet<E> tree;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list with default promote threshold.
+     */
+    public HybridIndexedTreeListSet() {
+        this(DEFAULT_PROMOTE_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new empty list.
+     *
+     * @param promoteThreshold maximal amount of elements kept in array
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public HybridIndexedTreeListSet(final int promoteThreshold) {
+        if (promoteThreshold < 0) {
+            throw new IllegalArgumentException("Negative threshold: " + promoteThreshold);
+        }
+        this.promoteThreshold = promoteThreshold;
+    }
+
+    /**
+     * Constructs a new list with default promote threshold that copies the specified collection.
+     * Duplicates are skipped.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public HybridIndexedTreeListSet(final Collection<? extends E> coll) {
+        this();
+        addAll(coll);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets maximal amount of elements which are kept in array.
+     *
+     * @return promote threshold
+     */
+    public int getPromoteThreshold() {
+        return promoteThreshold;
+    }
+
+    /**
+     * Gets the current size of the list.
+     *
+     * @return the current size
+     */
+    @Override
+    public int size() {
+        return tree == null ? size : tree.size();
+    }
+
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(final int index) {
+        if (tree != null) {
+            return tree.get(index);
+        }
+        checkInterval(index, 0, size - 1);
+        return (E) elements[index];
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        if (tree != null) {
+            return tree.indexOf(object);
+        }
+        if (object != null) {
+            for (int i = 0; i < size; i++) {
+                if (object.equals(elements[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches for the last index of an object in the list, it's the same as indexOf as elements are unique.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return indexOf(object);
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return indexOf(object) >= 0;
+    }
+
+    /**
+     * Adds an object to the end of the list if it's not contained in the list.
+     *
+     * @param object the object to add
+     * @return true if the object is added
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final E object) {
+        final int initialSize = size();
+        add(initialSize, object);
+        return size() != initialSize;
+    }
+
+    /**
+     * Inserts an object at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final E object) {
+        if (object == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        if (tree == null) {
+            checkInterval(index, 0, size);
+            if (indexOf(object) >= 0) {
+                return;
+            }
+            if (size == promoteThreshold) {
+                promote();
+            } else {
+                modCount++;
+                if (size == elements.length) {
+                    elements = Arrays.copyOf(elements, Math.min(Math.max(size * 2, 4), promoteThreshold));
+                }
+                System.arraycopy(elements, index, elements, index + 1, size - index);
+                elements[index] = object;
+                size++;
+                return;
+            }
+        }
+        tree.add(index, object);
+    }
+
+    /**
+     * Adds all elements of collection to the end of the list, elements which are already contained
+     * in the list are skipped.
+     *
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(final Collection<? extends E> coll) {
+        return addAll(size(), coll);
+    }
+
+    /**
+     * Inserts all elements of collection at the specified position, elements which are already contained
+     * in the list are skipped. If the result doesn't fit array, the list is promoted and elements are added in bulk.
+     *
+     * @param index index at which to insert the first element from the collection
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(int index, final Collection<? extends E> coll) {
+        checkInterval(index, 0, size());
+        if (tree == null && size + coll.size() > promoteThreshold) {
+            promote();
+        }
+        if (tree != null) {
+            return tree.addAll(index, coll);
+        }
+        final int initialSize = size;
+        for (E e : coll) {
+            final int previousSize = size;
+            add(index, e);
+            index += size - previousSize;
+        }
+        return size != initialSize;
+    }
+
+    /**
+     * Sets the element at the specified index.
+     * If specified value already exist in Set, it will be removed at old position,
+     * like in {@link IndexedTreeListSet#set(int, Object)}.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, final E object) {
+        if (tree != null) {
+            return tree.set(index, object);
+        }
+        if (object == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        checkInterval(index, 0, size - 1);
+        final int position = indexOf(object);
+        if (position >= 0 && position != index) {
+            removeFromArray(position);
+            if (position < index) {
+                index--;
+            }
+        }
+        final E previous = (E) elements[index];
+        elements[index] = object;
+        return previous;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E remove(final int index) {
+        if (tree != null) {
+            final E removed = tree.remove(index);
+            demoteIfSmall();
+            return removed;
+        }
+        checkInterval(index, 0, size - 1);
+        return removeFromArray(index);
+    }
+
+    /**
+     * Removes specified object from the list.
+     *
+     * @param object the object to remove
+     * @return true if the object was in the list
+     */
+    @Override
+    public boolean remove(final Object object) {
+        final int index = indexOf(object);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Clears the list, removing all entries. The list is kept in array after clearing.
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        tree = null;
+        elements = EMPTY;
+        size = 0;
+    }
+
+    /**
+     * Returns an unmodifiable view of the portion of this list between the specified
+     * fromIndex, inclusive, and toIndex, exclusive.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return an unmodifiable view of the specified range within this list
+     */
+    @Override
+    public List<E> subList(final int fromIndex, final int toIndex) {
+        return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Returns an iterator over elements of the list. Removal by iterator doesn't move elements back to array,
+     * it's done by the next removal from the list.
+     *
+     * @return iterator over elements of the list
+     */
+    @Override
+    public Iterator<E> iterator() {
+        if (tree == null) {
+            return super.iterator();
+        }
+        final Iterator<E> iterator = tree.iterator();
+        return new Iterator<E>() {
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                checkModCount();
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                checkModCount();
+                iterator.remove();
+            }
+
+            private void checkModCount() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the elements in this list.
+     *
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper sequence.
+     *
+     * @return array of elements
+     */
+    @Override
+    public Object[] toArray() {
+        return tree == null ? Arrays.copyOf(elements, size) : tree.toArray();
+    }
+
+    //-----------------------------------------------------------------------
+    @SuppressWarnings("unchecked")
+    private E removeFromArray(final int index) {
+        modCount++;
+        final E removed = (E) elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        return removed;
+    }
+
+    /**
+     * Move elements from array to tree.
+     */
+    @SuppressWarnings("unchecked")
+    private void promote() {
+        modCount++;
+        tree = new IndexedTreeListSet<>((List<E>) Arrays.asList(elements).subList(0, size));
+        elements = null;
+        size = 0;
+    }
+
+    /**
+     * Move elements from tree to array if there are less than half of promote threshold.
+     */
+    private void demoteIfSmall() {
+        if (tree.size() < promoteThreshold / 2) {
+            modCount++;
+            elements = Arrays.copyOf(tree.toArray(), promoteThreshold);
+            size = tree.size();
+            tree = null;
+        }
+    }
+
+    /**
+     * Checks whether the index is valid.
+     *
+     * @param index the index to check
+     * @param startIndex the first allowed index
+     * @param endIndex the last allowed index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    private void checkInterval(final int index, final int startIndex, final int endIndex) {
+        if (index < startIndex || index > endIndex) {
+            throw new IndexOutOfBoundsException("Invalid index:" + index + ", size=" + size());
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    boolean isPromoted() {
+        return tree != null;
+    }
+
+    /**
+     * Used for tests.
+     */
+    void assertConsistent() {
+        if (tree != null) {
+            assert(elements == null && size == 0);
+            tree.assertConsistent();
+        } else {
+            assert(size <= promoteThreshold && size <= elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                assert((elements[i] != null) == (i < size));
+                for (int j = 0; j < i && i < size; j++) {
+                    assert(!elements[i].equals(elements[j]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Implementation of {@link IndexedTreeListSet} behaviour without objects per element. It implements both
+ * <code>List</code> and <code>Set</code> of unique non-null elements.
+ * </p>
+ * <p>
+ * Get by index, insert (head, tail, middle), remove(by index or by value) and indexOf are all O(log n).
+ * Contains is O(1).
+ * </p>
+ * <p>
+ * Internally the tree is kept in int arrays indexed by node ids, elements are kept in <code>Object[]</code>
+ * by the same ids. Elements are mapped to ids by hash table which chains are linked by ids, so the only objects
+ * of the list are several arrays. It's intended for very big lists where headers and references of millions
+ * of nodes and map entries take most of the heap and GC has to mark all of them.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedArrayTreeListSet<E> extends AbstractIndexedArrayTreeList<E> implements Set<E> {
+
+    /** Minimal length of hash table. */
+    private static final int MIN_TABLE_LENGTH = 16;
+
+    /** Maximal length of hash table, bigger table is filled over load factor. */
+    private static final int MAX_TABLE_LENGTH = 1 << 30;
+
+    /** Values of nodes by their ids, ids of removed nodes have null values. */
+    private Object[] values;
+
+    /** Hashes of values by ids. */
+    private int[] hashes;
+
+    /** Next id in the same hash chain by ids, 0 for the end of chain. */
+    private int[] chains;
+
+    /** The first id of chain by hash, 0 for empty chain. */
+    private int[] table;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedArrayTreeListSet() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new empty list with specified capacity.
+     *
+     * @param capacity expected amount of elements
+     */
+    public IndexedArrayTreeListSet(final int capacity) {
+        super(capacity);
+        values = new Object[capacity()];
+        hashes = new int[capacity()];
+        chains = new int[capacity()];
+        table = new int[tableLength(capacity)];
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection. Duplicates are skipped.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public IndexedArrayTreeListSet(final Collection<? extends E> coll) {
+        this(coll.size());
+        int count = 0;
+        for (E e : coll) {
+            checkNotNull(e);
+            if (find(e) == 0) {
+                values[++count] = e;
+                link(count, hash(e));
+            }
+        }
+        buildNodes(count);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E get(final int index) {
+        return valueOf(nodeAt(index));
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        final int id = find(object);
+        return id == 0 ? -1 : positionOf(id);
+    }
+
+    /**
+     * Searches for the last index of an object in the list, it's the same as indexOf as elements are unique.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return indexOf(object);
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return find(object) != 0;
+    }
+
+    /**
+     * Adds an object to the end of the list if it's not contained in the list.
+     *
+     * @param object the object to add
+     * @return true if the object is added
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final E object) {
+        return insert(size(), object);
+    }
+
+    /**
+     * Inserts an object at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final E object) {
+        insert(index, object);
+    }
+
+    /**
+     * Inserts all elements of collection at the specified index, elements which are already contained
+     * in the list are skipped.
+     *
+     * @param index the index to add at
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(int index, final Collection<? extends E> coll) {
+        checkInterval(index, 0, size());
+        final int initialSize = size();
+        for (E e : coll) {
+            if (insert(index, e)) {
+                index++;
+            }
+        }
+        return size() != initialSize;
+    }
+
+    /**
+     * Sets the element at the specified index.
+     * If specified value already exist in Set, it will be removed at old position,
+     * like in {@link IndexedTreeListSet#set(int, Object)}.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public E set(int index, final E object) {
+        checkInterval(index, 0, size() - 1);
+        checkNotNull(object);
+        final int existing = find(object);
+        if (existing != 0) {
+            final int position = positionOf(existing);
+            if (position == index) {
+                return object;
+            }
+            removeId(existing);
+            if (position < index) {
+                index--;
+            }
+        }
+        final int id = nodeAt(index);
+        final E previous = valueOf(id);
+        unlink(id);
+        values[id] = object;
+        link(id, hash(object));
+        return previous;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E remove(final int index) {
+        final int id = nodeAt(index);
+        final E value = valueOf(id);
+        removeId(id);
+        return value;
+    }
+
+    /**
+     * Removes specified object from the list.
+     *
+     * @param object the object to remove
+     * @return true if the object was in the list
+     */
+    @Override
+    public boolean remove(final Object object) {
+        final int id = find(object);
+        if (id == 0) {
+            return false;
+        }
+        removeId(id);
+        return true;
+    }
+
+    /**
+     * Returns an unmodifiable view of the portion of this list between the specified
+     * fromIndex, inclusive, and toIndex, exclusive.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return an unmodifiable view of the specified range within this list
+     */
+    @Override
+    public List<E> subList(final int fromIndex, final int toIndex) {
+        return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            values[id] = null;
+        }
+        super.clear();
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Increases the capacity of the list, so specified amount of elements can be kept without resizing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    @Override
+    public void ensureCapacity(final int minCapacity) {
+        super.ensureCapacity(minCapacity);
+        if (tableLength(minCapacity) > table.length) {
+            rehash(tableLength(minCapacity));
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E valueOf(final int id) {
+        return (E) values[id];
+    }
+
+    @Override
+    protected void resizeValues(final int capacity) {
+        values = Arrays.copyOf(values, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        chains = Arrays.copyOf(chains, capacity);
+    }
+
+    /**
+     * Insert an object at specified index if it's not contained in the list.
+     */
+    private boolean insert(final int index, final E object) {
+        checkNotNull(object);
+        checkInterval(index, 0, size());
+        final int hash = hash(object);
+        if (find(object, hash) != 0) {
+            return false;
+        }
+        final int id = insertNode(index);
+        values[id] = object;
+        link(id, hash);
+        if (size() > table.length - (table.length >>> 2) && table.length < MAX_TABLE_LENGTH) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove node and it's value from hash table.
+     */
+    private void removeId(final int id) {
+        unlink(id);
+        values[id] = null;
+        removeNode(id);
+    }
+
+    private int find(final Object object) {
+        return object == null ? 0 : find(object, hash(object));
+    }
+
+    /**
+     * Get id of node with specified value.
+     *
+     * @return id of node, 0 if there is no such value
+     */
+    private int find(final Object object, final int hash) {
+        for (int id = table[hash & (table.length - 1)]; id != 0; id = chains[id]) {
+            if (hashes[id] == hash && object.equals(values[id])) {
+                return id;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Add node to the head of it's hash chain.
+     */
+    private void link(final int id, final int hash) {
+        final int bucket = hash & (table.length - 1);
+        hashes[id] = hash;
+        chains[id] = table[bucket];
+        table[bucket] = id;
+    }
+
+    /**
+     * Remove node from it's hash chain.
+     */
+    private void unlink(final int id) {
+        final int bucket = hashes[id] & (table.length - 1);
+        if (table[bucket] == id) {
+            table[bucket] = chains[id];
+        } else {
+            int previous = table[bucket];
+            while (chains[previous] != id) {
+                previous = chains[previous];
+            }
+            chains[previous] = chains[id];
+        }
+        chains[id] = 0;
+    }
+
+    private void rehash(final int length) {
+        table = new int[length];
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            link(id, hashes[id]);
+        }
+    }
+
+    /**
+     * Spread higher bits of hash code like {@link java.util.HashMap} does.
+     */
+    private static int hash(final Object object) {
+        final int h = object.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Get length of hash table which can hold specified amount of elements with load factor 0.75.
+     */
+    private static int tableLength(final int expectedSize) {
+        final long minLength = Math.max((expectedSize * 4L + 2) / 3, MIN_TABLE_LENGTH);
+        return (int) Math.min(Long.highestOneBit(minLength - 1) << 1, MAX_TABLE_LENGTH);
+    }
+
+    private static void checkNotNull(final Object object) {
+        if (object == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        int chained = 0;
+        for (int bucket = 0; bucket < table.length; bucket++) {
+            for (int id = table[bucket]; id != 0; id = chains[id]) {
+                assert((hashes[id] & (table.length - 1)) == bucket);
+                assert(hashes[id] == hash(values[id]));
+                chained++;
+            }
+        }
+        assert(chained == size());
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            assert(find(values[id]) == id);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+
+/**
+ * <p>
+ * As a <code>List</code> this data structure stores order of elements and
+ * provides access by index. It has the same contract as {@link IndexedTreeList}
+ * but stores elements in chunks.
+ * </p>
+ * <p>
+ * Elements are kept in leaves of small arrays (up to 64 elements), leaves are kept in a counted B+-tree
+ * with wide branches. Comparing to one node per element this layout needs much less memory per element
+ * and has better cache locality: get by index descends a tree of 2-4 levels, iteration scans arrays.
+ * </p>
+ * <p>
+ * Map from element to it's leaf provides contains and indexOf. If equal elements are stored in
+ * several leaves, they are kept in a TreeSet of leaves ordered by their positions, so equal elements
+ * within one leaf share a single entry.
+ * </p>
+ * <p>
+ * Get by index, insert (head, tail, middle), remove(by index or by value)
+ * and indexOf are O(log n) in most cases, however each operation also shifts or scans elements
+ * of a single leaf. Contains is O(1) or O(log n) depending on Map implementation.
+ * </p>
+ * <p>
+ * Objects equality is checked by Map, so objects should be immutable for Map
+ * consistency.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedChunkedList<E> extends AbstractIndexedChunkedList<E> {
+
+    /** Map from element to it's leaf or TreeSet of leaves */
+    protected Map<E, Object> nodeMap;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedChunkedList() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * Constructs a new empty list.
+     * @param map Map implementation. It defines how elements would be compared. For example HashMap (by hashcode/equals),
+     *            TreeMap (by compareTo or Comparator), IdentityHashMap (by identity). Specified map should be empty.
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedChunkedList(final Map<?, ?> map) {
+        super(map);
+        this.nodeMap = (Map<E, Object>) map;
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null
+     */
+    public IndexedChunkedList(final Collection<? extends E> coll) {
+        this(coll, new HashMap<>(Math.max((int) (coll.size() / .75f) + 1, 16)));
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection.
+     *
+     * @param coll The collection to copy
+     * @param map Map implementation. It defines how elements would be compared. For example HashMap (by hashcode/equals),
+     *            TreeMap (by compareTo or Comparator), IdentityHashMap (by identity). Specified map should be empty.
+     * @throws NullPointerException if the collection is null
+     */
+    public IndexedChunkedList(final Collection<? extends E> coll, final Map<?, ?> map) {
+        this(map);
+        addAll(coll);
+    }
+
+    //-----------------------------------------------------------------------
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        final Object holder = nodeMap.get(object);
+        if (holder == null) {
+            return -1;
+        }
+        final Leaf<E> leaf = holder instanceof Leaf ? asLeaf(holder) : asLeafSet(holder).first();
+        return leaf.rank() + firstOffset(leaf, object);
+    }
+
+    /**
+     * Searches for the last index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        final Object holder = nodeMap.get(object);
+        if (holder == null) {
+            return -1;
+        }
+        final Leaf<E> leaf = holder instanceof Leaf ? asLeaf(holder) : asLeafSet(holder).last();
+        return leaf.rank() + lastOffset(leaf, object);
+    }
+
+    /**
+     * Searches for all indexes of an objects in the list equals to specified object.
+     *
+     * @param object the object to search
+     * @return array of indexes of the objects
+     */
+    public int[] indexes(final Object object) {
+        final Object holder = nodeMap.get(object);
+        if (holder == null) {
+            return new int[0];
+        }
+        final Collection<Leaf<E>> leaves = holder instanceof Leaf
+                ? Collections.singleton(asLeaf(holder)) : asLeafSet(holder);
+        int[] indexes = new int[8];
+        int size = 0;
+        for (Leaf<E> leaf : leaves) {
+            final int rank = leaf.rank();
+            for (int i = 0; i < leaf.count; i++) {
+                if (equality.test(object, leaf.elements[i])) {
+                    if (size == indexes.length) {
+                        indexes = Arrays.copyOf(indexes, size * 2);
+                    }
+                    indexes[size++] = rank + i;
+                }
+            }
+        }
+        return Arrays.copyOf(indexes, size);
+    }
+
+    /**
+     * Get amount of objects in the list equals to specified object.
+     *
+     * @param object the object to search
+     * @return amount of objects
+     */
+    public int count(final Object object) {
+        final Object holder = nodeMap.get(object);
+        if (holder == null) {
+            return 0;
+        }
+        final Collection<Leaf<E>> leaves = holder instanceof Leaf
+                ? Collections.singleton(asLeaf(holder)) : asLeafSet(holder);
+        int count = 0;
+        for (Leaf<E> leaf : leaves) {
+            for (int i = 0; i < leaf.count; i++) {
+                if (equality.test(object, leaf.elements[i])) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return nodeMap.containsKey(object);
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        nodeMap.clear();
+    }
+
+    /**
+     * Get unordered Set of unique values. Returned Set is a read-only view.
+     *
+     * @return unordered Set of unique values
+     */
+    public Set<E> uniqueValues() {
+        return Collections.unmodifiableSet(nodeMap.keySet());
+    }
+
+    /**
+     * Check if set does not contains an object.
+     *
+     * @param e element to check if it can be added to collection
+     * @return true if specified element can be added to collection
+     */
+    @Override
+    protected boolean canAdd(E e) {
+        if (e == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        return true;
+    }
+
+    /**
+     * Add leaf of element to nodeMap.
+     */
+    @Override
+    protected void elementAdded(final Leaf<E> leaf, final int offset) {
+        final E e = leaf.get(offset);
+        final Object holder = nodeMap.putIfAbsent(e, leaf);
+        if (holder == null || holder == leaf) {
+            return;
+        }
+        if (holder instanceof Leaf) {
+            nodeMap.put(e, newLeafSet(asLeaf(holder), leaf));
+        } else {
+            asLeafSet(holder).add(leaf);
+        }
+    }
+
+    /**
+     * Remove leaf of element from nodeMap if leaf does not contain other equal elements.
+     */
+    @Override
+    protected void elementRemoving(final Leaf<E> leaf, final int offset) {
+        final E e = leaf.get(offset);
+        if (containsOther(leaf, e, offset)) {
+            return;
+        }
+        final Object holder = nodeMap.get(e);
+        if (holder instanceof Leaf) {
+            nodeMap.remove(e);
+        } else {
+            removeLeaf(e, asLeafSet(holder), leaf);
+        }
+    }
+
+    /**
+     * Move element from one leaf to another in nodeMap.
+     */
+    @Override
+    protected void elementMoved(final E e, final Leaf<E> from, final Leaf<E> to, final boolean fromEmptied) {
+        final Object holder = nodeMap.get(e);
+        if (holder == to) {
+            return;
+        }
+        final boolean keep = !fromEmptied && containsOther(from, e, -1);
+        if (holder == from) {
+            nodeMap.put(e, keep ? newLeafSet(from, to) : to);
+        } else {
+            final TreeSet<Leaf<E>> leaves = asLeafSet(holder);
+            if (!leaves.contains(to)) {
+                leaves.add(to);
+            }
+            if (!keep) {
+                removeLeaf(e, leaves, from);
+            }
+        }
+    }
+
+    /**
+     * Create TreeSet of 2 leaves.
+     *
+     * @param leaf1 first leaf
+     * @param leaf2 second leaf
+     * @return TreeSet of leaves ordered by their positions
+     */
+    private TreeSet<Leaf<E>> newLeafSet(final Leaf<E> leaf1, final Leaf<E> leaf2) {
+        final TreeSet<Leaf<E>> leaves = new TreeSet<>(LEAF_COMPARATOR);
+        leaves.add(leaf1);
+        leaves.add(leaf2);
+        return leaves;
+    }
+
+    /**
+     * Remove leaf from TreeSet of leaves, single remaining leaf replaces TreeSet in nodeMap.
+     *
+     * @param e element
+     * @param leaves TreeSet of leaves
+     * @param leaf leaf to remove
+     */
+    private void removeLeaf(final E e, final TreeSet<Leaf<E>> leaves, final Leaf<E> leaf) {
+        leaves.remove(leaf);
+        if (leaves.size() == 1) {
+            nodeMap.put(e, leaves.first());
+        }
+    }
+
+    /**
+     * Cast value of nodeMap, which holds single leaf.
+     *
+     * @param holder value of nodeMap
+     * @return leaf
+     */
+    @SuppressWarnings("unchecked")
+    private Leaf<E> asLeaf(final Object holder) {
+        return (Leaf<E>) holder;
+    }
+
+    /**
+     * Cast value of nodeMap, which holds TreeSet of leaves.
+     *
+     * @param holder value of nodeMap
+     * @return TreeSet of leaves ordered by their positions
+     */
+    @SuppressWarnings("unchecked")
+    private TreeSet<Leaf<E>> asLeafSet(final Object holder) {
+        return (TreeSet<Leaf<E>>) holder;
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        final Map<Object, List<Leaf<E>>> expected = new HashMap<>();
+        for (Leaf<E> leaf = first; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.count; i++) {
+                final List<Leaf<E>> leaves = expected.computeIfAbsent(leaf.elements[i], k -> new ArrayList<>());
+                if (leaves.isEmpty() || leaves.get(leaves.size() - 1) != leaf) {
+                    leaves.add(leaf);
+                }
+            }
+        }
+        assert(expected.size() == nodeMap.size());
+        for (Map.Entry<Object, List<Leaf<E>>> entry : expected.entrySet()) {
+            final Object holder = nodeMap.get(entry.getKey());
+            if (entry.getValue().size() == 1) {
+                assert(holder == entry.getValue().get(0));
+            } else {
+                assert(holder instanceof TreeSet);
+                assert(new ArrayList<>(asLeafSet(holder)).equals(entry.getValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Data structure which implements both <code>List</code> and <code>Set</code>.
+ * It has the same contract as {@link IndexedTreeListSet} but stores elements in chunks.
+ * </p>
+ * <p>
+ * Elements are kept in leaves of small arrays (up to 64 elements), leaves are kept in a counted B+-tree
+ * with wide branches. Comparing to one node per element this layout needs much less memory per element
+ * and has better cache locality: get by index descends a tree of 2-4 levels, iteration scans arrays.
+ * Map from element to it's leaf provides contains and indexOf.
+ * </p>
+ * <p>
+ * Get by index, insert (head, tail, middle), remove(by index or by value)
+ * and indexOf are all O(log n), however each operation also shifts or scans elements
+ * of a single leaf. Elements which are moved to another leaf on leaf split or merge are updated
+ * in the Map. Contains is O(1) or O(log n) depending on Map implementation.
+ * </p>
+ * <p>
+ * Objects equality is checked by Map, so objects should be immutable for Map
+ * consistency.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedChunkedListSet<E> extends AbstractIndexedChunkedList<E> implements Set<E> {
+
+    /** Map from element to it's leaf */
+    protected Map<E, Leaf<E>> nodeMap;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedChunkedListSet() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * Constructs a new empty list.
+     * @param map Map implementation. It defines how elements would be compared. For example HashMap (by hashcode/equals),
+     *            TreeMap (by compareTo or Comparator), IdentityHashMap (by identity). Specified map should be empty.
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedChunkedListSet(final Map<?, ?> map) {
+        super(map);
+        this.nodeMap = (Map<E, Leaf<E>>) map;
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null
+     */
+    public IndexedChunkedListSet(final Collection<? extends E> coll) {
+        this(coll, new HashMap<>(Math.max((int) (coll.size() / .75f) + 1, 16)));
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection.
+     *
+     * @param coll The collection to copy
+     * @param map Map implementation. It defines how elements would be compared. For example HashMap (by hashcode/equals),
+     *            TreeMap (by compareTo or Comparator), IdentityHashMap (by identity). Specified map should be empty.
+     * @throws NullPointerException if the collection is null
+     */
+    public IndexedChunkedListSet(final Collection<? extends E> coll, final Map<?, ?> map) {
+        this(map);
+        addAll(coll);
+    }
+
+    //-----------------------------------------------------------------------
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        final Leaf<E> leaf = nodeMap.get(object);
+        if (leaf == null) {
+            return -1;
+        }
+        return leaf.rank() + firstOffset(leaf, object);
+    }
+
+    /**
+     * Searches for the last index of an object in the list.
+     *
+     * @param object  the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return indexOf(object);
+    }
+
+    /**
+     * Returns an unmodifiable view of the portion of this list between the specified
+     * fromIndex, inclusive, and toIndex, exclusive.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return an unmodifiable view of the specified range within this list
+     */
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return nodeMap.containsKey(object);
+    }
+
+    /**
+     * Sets the element at the specified index.
+     * If specified value already exist in Set, it will be removed at old position.
+     * E.g. if ChunkedListSet contains ["A", "B", "C"] and set(2, "A") is invoked, then result will be ["B", "A"].
+     *
+     * @param index the index to set
+     * @param obj the object to store at the specified index
+     * @return previous value
+     */
+    @Override
+    public E set(int index, final E obj) {
+        final int pos = indexOf(obj);
+        if (pos >= 0 && pos != index) {
+            remove(pos);
+            if (pos < index) {
+                index--;
+            }
+        }
+        return super.set(index, obj);
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        nodeMap.clear();
+    }
+
+    /**
+     * Check if set does not contains an object.
+     */
+    @Override
+    protected boolean canAdd(E e) {
+        if (e == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        return !nodeMap.containsKey(e);
+    }
+
+    /**
+     * Add element to nodeMap.
+     */
+    @Override
+    protected void elementAdded(final Leaf<E> leaf, final int offset) {
+        nodeMap.put(leaf.get(offset), leaf);
+    }
+
+    /**
+     * Remove element from nodeMap.
+     */
+    @Override
+    protected void elementRemoving(final Leaf<E> leaf, final int offset) {
+        nodeMap.remove(leaf.elements[offset]);
+    }
+
+    /**
+     * Point element to it's new leaf.
+     */
+    @Override
+    protected void elementMoved(final E e, final Leaf<E> from, final Leaf<E> to, final boolean fromEmptied) {
+        nodeMap.put(e, to);
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        assert(nodeMap.size() == size());
+        for (Leaf<E> leaf = first; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.count; i++) {
+                assert(nodeMap.get(leaf.elements[i]) == leaf);
+            }
+        }
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * List of unique ints which keeps runs of consecutive ascending values as single nodes. It implements both
+ * <code>List</code> and <code>Set</code> like {@link IndexedIntTreeListSet}, but it's intended for lists which
+ * consist of long ranges of ids, e.g. [1000..250000, 300000..400000]. Memory is O(number of runs) instead of
+ * O(n).
+ * </p>
+ * <p>
+ * Tree nodes are runs [lo, hi] ordered by their position in the list, node keeps amount of elements of it's
+ * left subtree, so get by index is O(log r) where r is amount of runs. Runs are also kept in navigable map
+ * by their lo value, so indexOf and contains find the run by floor lookup and add offset of value in the run.
+ * </p>
+ * <p>
+ * Inserting a value which continues neighbour run extends it, and runs which become adjacent are merged.
+ * Inserting or removing in the middle of a run splits it. All modifications are O(log r).
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedIntRangeList extends AbstractRunTreeList<Integer, IndexedIntRangeList.IntRun>
+        implements Set<Integer> {
+
+    /** Runs by their lo values. */
+    private final TreeMap<Integer, IntRun> runs = new TreeMap<>();
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedIntRangeList() {
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection. Duplicates are skipped.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public IndexedIntRangeList(final Collection<Integer> coll) {
+        addAll(coll);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int getInt(final int index) {
+        checkInterval(index, 0, size() - 1);
+        final IntRun run = runAt(index);
+        return run.lo + index - positionOf(run);
+    }
+
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public Integer get(final int index) {
+        return getInt(index);
+    }
+
+    /**
+     * Searches for the index of a value in the list.
+     *
+     * @param value the value to search
+     * @return the index of the value, -1 if not found
+     */
+    public int indexOf(final int value) {
+        final IntRun run = runOf(value);
+        return run == null ? -1 : positionOf(run) + value - run.lo;
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        return object instanceof Integer ? indexOf((int) (Integer) object) : -1;
+    }
+
+    /**
+     * Searches for the last index of an object in the list, it's the same as indexOf as elements are unique.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return indexOf(object);
+    }
+
+    /**
+     * Searches for the presence of a value in the list.
+     *
+     * @param value the value to check
+     * @return true if the value is found
+     */
+    public boolean contains(final int value) {
+        return runOf(value) != null;
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return object instanceof Integer && contains((int) (Integer) object);
+    }
+
+    /**
+     * Adds a value to the end of the list if it's not contained in the list.
+     *
+     * @param value the value to add
+     * @return true if the value is added
+     */
+    public boolean add(final int value) {
+        return add(size(), value);
+    }
+
+    /**
+     * Adds an object to the end of the list if it's not contained in the list.
+     *
+     * @param object the object to add
+     * @return true if the object is added
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final Integer object) {
+        return add((int) object);
+    }
+
+    /**
+     * Inserts a value at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param value the value to add
+     * @return true if the value is added
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public boolean add(final int index, final int value) {
+        checkInterval(index, 0, size());
+        if (contains(value)) {
+            return false;
+        }
+        modCount++;
+        // run which contains element at index, or the last run if index is the end of the list
+        final IntRun next = index < size() ? runAt(index) : null;
+        final int offset = next == null ? 0 : index - positionOf(next);
+        if (offset > 0) {
+            // value is inserted into the middle of a run, it can't continue the run as values are unique
+            splitRun(next, offset);
+            insertRun(next, new IntRun(value, value));
+            return true;
+        }
+        final IntRun previous = next == null ? lastRun() : predecessor(next);
+        if (previous != null && previous.hi() != Integer.MAX_VALUE && previous.hi() + 1 == value) {
+            resizeRun(previous, previous.lo, value);
+            if (next != null && next.lo == value + 1) {
+                mergeWithNext(previous);
+            }
+        } else if (next != null && next.lo != Integer.MIN_VALUE && next.lo - 1 == value) {
+            resizeRun(next, value, next.hi());
+        } else {
+            insertRun(previous, new IntRun(value, value));
+        }
+        return true;
+    }
+
+    /**
+     * Inserts an object at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final Integer object) {
+        add(index, (int) object);
+    }
+
+    /**
+     * Appends all values in range [fromValue, toValue) to the end of the list. If none of them is contained
+     * in the list, it takes O(log r) time. Otherwise values are added one by one skipping existing values.
+     *
+     * @param fromValue first value of the range, inclusive
+     * @param toValue last value of the range, exclusive
+     * @return true if the list is changed
+     * @throws IllegalArgumentException if fromValue is greater than toValue
+     */
+    public boolean addRange(final int fromValue, final int toValue) {
+        if (fromValue > toValue) {
+            throw new IllegalArgumentException("Invalid range: " + fromValue + " > " + toValue);
+        }
+        if (fromValue == toValue) {
+            return false;
+        }
+        final Map.Entry<Integer, IntRun> floor = runs.floorEntry(toValue - 1);
+        if ((floor != null && floor.getValue().hi() >= fromValue) || (long) size() + toValue - fromValue > Integer.MAX_VALUE) {
+            final int initialSize = size();
+            for (int value = fromValue; value < toValue; value++) {
+                add(value);
+            }
+            return size() != initialSize;
+        }
+        modCount++;
+        final IntRun last = lastRun();
+        if (last != null && last.hi() != Integer.MAX_VALUE && last.hi() + 1 == fromValue) {
+            resizeRun(last, last.lo, toValue - 1);
+        } else {
+            insertRun(last, new IntRun(fromValue, toValue - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Inserts all elements of collection at the specified index, elements which are already contained
+     * in the list are skipped.
+     *
+     * @param index the index to add at
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(int index, final Collection<? extends Integer> coll) {
+        checkInterval(index, 0, size());
+        final int initialSize = size();
+        for (Integer value : coll) {
+            if (add(index, (int) value)) {
+                index++;
+            }
+        }
+        return size() != initialSize;
+    }
+
+    /**
+     * Sets the value at the specified index.
+     * If specified value already exist in Set, it will be removed at old position,
+     * like in {@link IndexedTreeListSet#set(int, Object)}.
+     *
+     * @param index the index to set
+     * @param value the value to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int setInt(int index, final int value) {
+        checkInterval(index, 0, size() - 1);
+        final int position = indexOf(value);
+        if (position == index) {
+            return value;
+        }
+        if (position >= 0) {
+            removeInt(position);
+            if (position < index) {
+                index--;
+            }
+        }
+        final int previous = removeInt(index);
+        add(index, value);
+        return previous;
+    }
+
+    /**
+     * Sets the object at the specified index, see {@link #setInt(int, int)}.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public Integer set(final int index, final Integer object) {
+        return setInt(index, object);
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int removeInt(final int index) {
+        checkInterval(index, 0, size() - 1);
+        final IntRun run = runAt(index);
+        final int value = run.lo + index - positionOf(run);
+        removeFromRun(run, value);
+        return value;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public Integer remove(final int index) {
+        return removeInt(index);
+    }
+
+    /**
+     * Removes specified value from the list.
+     *
+     * @param value the value to remove
+     * @return true if the value was in the list
+     */
+    public boolean removeValue(final int value) {
+        final IntRun run = runOf(value);
+        if (run == null) {
+            return false;
+        }
+        removeFromRun(run, value);
+        return true;
+    }
+
+    /**
+     * Removes specified object from the list.
+     *
+     * @param object the object to remove
+     * @return true if the object was in the list
+     */
+    @Override
+    public boolean remove(final Object object) {
+        return object instanceof Integer && removeValue((int) (Integer) object);
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        runs.clear();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper sequence.
+     *
+     * @return array of elements
+     */
+    public int[] toIntArray() {
+        final int[] array = new int[size()];
+        int i = 0;
+        for (IntRun run = firstRun(); run != null; run = successor(run)) {
+            for (int offset = 0; offset < run.count; offset++) {
+                array[i++] = run.lo + offset;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Returns an iterator which walks runs in order, so the whole iteration is O(n).
+     *
+     * @return iterator over elements of the list
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private IntRun run = firstRun();
+            private int next = run == null ? 0 : run.lo;
+            private int lastReturned;
+            private boolean canRemove;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return run != null;
+            }
+
+            @Override
+            public Integer next() {
+                checkModCount();
+                if (run == null) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = next;
+                if (next == run.hi()) {
+                    run = successor(run);
+                    next = run == null ? 0 : run.lo;
+                } else {
+                    next++;
+                }
+                canRemove = true;
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                checkModCount();
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                removeValue(lastReturned);
+                // runs can be split or merged, so the run of the next value is looked up again
+                if (run != null) {
+                    run = runOf(next);
+                }
+                canRemove = false;
+                expectedModCount = modCount;
+            }
+
+            private void checkModCount() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the elements in this list.
+     *
+     * @return spliterator
+     */
+    @Override
+    public Spliterator<Integer> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Find the run which contains a value.
+     */
+    private IntRun runOf(final int value) {
+        final Map.Entry<Integer, IntRun> entry = runs.floorEntry(value);
+        return entry == null || entry.getValue().hi() < value ? null : entry.getValue();
+    }
+
+    /**
+     * Remove a value from it's run, the run is shrunk, split or removed.
+     */
+    private void removeFromRun(final IntRun run, final int value) {
+        modCount++;
+        if (run.lo == run.hi()) {
+            final IntRun previous = predecessor(run);
+            removeRun(run);
+            final IntRun next = previous == null ? null : successor(previous);
+            if (next != null && previous.hi() != Integer.MAX_VALUE && previous.hi() + 1 == next.lo) {
+                mergeWithNext(previous);
+            }
+        } else if (value == run.lo) {
+            resizeRun(run, value + 1, run.hi());
+        } else if (value == run.hi()) {
+            resizeRun(run, run.lo, value - 1);
+        } else {
+            final IntRun tail = splitRun(run, value - run.lo);
+            resizeRun(tail, value + 1, tail.hi());
+        }
+    }
+
+    /**
+     * Split a run into two runs, the first one keeps specified amount of values.
+     *
+     * @return the second run
+     */
+    private IntRun splitRun(final IntRun run, final int count) {
+        final IntRun tail = new IntRun(run.lo + count, run.hi());
+        resizeRun(run, run.lo, run.lo + count - 1);
+        insertRun(run, tail);
+        return tail;
+    }
+
+    /**
+     * Merge the run after specified one into it, their values should be consecutive.
+     */
+    private void mergeWithNext(final IntRun run) {
+        final IntRun next = successor(run);
+        final int hi = next.hi();
+        removeRun(next);
+        resizeRun(run, run.lo, hi);
+    }
+
+    /**
+     * Change range of a run, update map of runs.
+     */
+    private void resizeRun(final IntRun run, final int lo, final int hi) {
+        if (lo != run.lo) {
+            runs.remove(run.lo);
+            runs.put(lo, run);
+        }
+        run.lo = lo;
+        resizeRun(run, hi - lo + 1);
+    }
+
+    /**
+     * Link new run into the tree right after specified run and put it into map of runs.
+     */
+    @Override
+    protected void insertRun(final IntRun previous, final IntRun run) {
+        runs.put(run.lo, run);
+        super.insertRun(previous, run);
+    }
+
+    /**
+     * Unlink a run from the tree and map of runs.
+     */
+    @Override
+    protected void removeRun(final IntRun run) {
+        runs.remove(run.lo);
+        super.removeRun(run);
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        IntRun previous = null;
+        for (IntRun run = firstRun(); run != null; run = successor(run)) {
+            assert(runs.get(run.lo) == run);
+            // adjacent runs with consecutive values should be merged
+            assert(previous == null || previous.hi() == Integer.MAX_VALUE || previous.hi() + 1 != run.lo);
+            previous = run;
+        }
+        assert(runCount() == runs.size());
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Run of consecutive values [lo, hi].
+     */
+    static final class IntRun extends AbstractRunTreeList.Run<IntRun> {
+        private int lo;
+
+        private IntRun(final int lo, final int hi) {
+            super(hi - lo + 1);
+            this.lo = lo;
+        }
+
+        private int hi() {
+            return lo + count - 1;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Primitive int specialization of {@link IndexedTreeListSet}. It implements both <code>List</code> and
+ * <code>Set</code> of unique ints, elements are kept without boxing.
+ * </p>
+ * <p>
+ * Get by index, insert (head, tail, middle), remove(by index or by value) and indexOf are all O(log n).
+ * Contains is O(1).
+ * </p>
+ * <p>
+ * Internally the tree is kept in int arrays indexed by node ids and elements are kept in int array
+ * by the same ids. Elements are mapped to ids by open addressing hash map with int keys. So there are no objects
+ * per element, list takes about 35 bytes per element comparing to about 95 bytes of
+ * <code>IndexedTreeListSet&lt;Integer&gt;</code> with boxed values.
+ * </p>
+ * <p>
+ * Methods of <code>List</code> and <code>Set</code> box elements, methods with primitive arguments
+ * such as {@link #getInt(int)}, {@link #indexOf(int)}, {@link #add(int)} and {@link #removeInt(int)}
+ * should be used on hot paths.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedIntTreeListSet extends AbstractIndexedArrayTreeList<Integer> implements Set<Integer> {
+
+    /** Values of nodes by their ids. */
+    private int[] values;
+
+    /** Map from value to it's node id. */
+    private final IntIndexMap nodeMap;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedIntTreeListSet() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new empty list with specified capacity.
+     *
+     * @param capacity expected amount of elements
+     */
+    public IndexedIntTreeListSet(final int capacity) {
+        super(capacity);
+        values = new int[capacity()];
+        nodeMap = new IntIndexMap(capacity);
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection. Duplicates are skipped.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public IndexedIntTreeListSet(final Collection<Integer> coll) {
+        this(coll.size());
+        final int[] array = new int[coll.size()];
+        int count = 0;
+        for (Integer value : coll) {
+            array[count++] = value;
+        }
+        buildFrom(array, count);
+    }
+
+    /**
+     * Constructs a new list that copies the specified array. Duplicates are skipped.
+     *
+     * @param array The array to copy
+     * @throws NullPointerException if the array is null
+     */
+    public IndexedIntTreeListSet(final int[] array) {
+        this(array.length);
+        buildFrom(array, array.length);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int getInt(final int index) {
+        return values[nodeAt(index)];
+    }
+
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public Integer get(final int index) {
+        return getInt(index);
+    }
+
+    /**
+     * Searches for the index of a value in the list.
+     *
+     * @param value the value to search
+     * @return the index of the value, -1 if not found
+     */
+    public int indexOf(final int value) {
+        final int id = nodeMap.get(value);
+        return id == 0 ? -1 : positionOf(id);
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        return object instanceof Integer ? indexOf((int) (Integer) object) : -1;
+    }
+
+    /**
+     * Searches for the last index of an object in the list, it's the same as indexOf as elements are unique.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return indexOf(object);
+    }
+
+    /**
+     * Searches for the presence of a value in the list.
+     *
+     * @param value the value to check
+     * @return true if the value is found
+     */
+    public boolean contains(final int value) {
+        return nodeMap.get(value) != 0;
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return object instanceof Integer && contains((int) (Integer) object);
+    }
+
+    /**
+     * Adds a value to the end of the list if it's not contained in the list.
+     *
+     * @param value the value to add
+     * @return true if the value is added
+     */
+    public boolean add(final int value) {
+        return add(size(), value);
+    }
+
+    /**
+     * Adds an object to the end of the list if it's not contained in the list.
+     *
+     * @param object the object to add
+     * @return true if the object is added
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final Integer object) {
+        return add((int) object);
+    }
+
+    /**
+     * Inserts a value at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param value the value to add
+     * @return true if the value is added
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public boolean add(final int index, final int value) {
+        checkInterval(index, 0, size());
+        if (nodeMap.get(value) != 0) {
+            return false;
+        }
+        final int id = insertNode(index);
+        values[id] = value;
+        nodeMap.put(value, id);
+        return true;
+    }
+
+    /**
+     * Inserts an object at the specified index if it's not contained in the list.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final Integer object) {
+        add(index, (int) object);
+    }
+
+    /**
+     * Inserts all elements of collection at the specified index, elements which are already contained
+     * in the list are skipped.
+     *
+     * @param index the index to add at
+     * @param coll collection of elements to add
+     * @return true if the list is changed
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the collection contains null
+     */
+    @Override
+    public boolean addAll(int index, final Collection<? extends Integer> coll) {
+        checkInterval(index, 0, size());
+        final int initialSize = size();
+        for (Integer value : coll) {
+            if (add(index, (int) value)) {
+                index++;
+            }
+        }
+        return size() != initialSize;
+    }
+
+    /**
+     * Sets the value at the specified index.
+     * If specified value already exist in Set, it will be removed at old position,
+     * like in {@link IndexedTreeListSet#set(int, Object)}.
+     *
+     * @param index the index to set
+     * @param value the value to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int setInt(int index, final int value) {
+        checkInterval(index, 0, size() - 1);
+        final int existing = nodeMap.get(value);
+        if (existing != 0) {
+            final int position = positionOf(existing);
+            if (position == index) {
+                return value;
+            }
+            removeId(existing);
+            if (position < index) {
+                index--;
+            }
+        }
+        final int id = nodeAt(index);
+        final int previous = values[id];
+        nodeMap.remove(previous);
+        values[id] = value;
+        nodeMap.put(value, id);
+        return previous;
+    }
+
+    /**
+     * Sets the object at the specified index, see {@link #setInt(int, int)}.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public Integer set(final int index, final Integer object) {
+        return setInt(index, object);
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int removeInt(final int index) {
+        final int id = nodeAt(index);
+        final int value = values[id];
+        removeId(id);
+        return value;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public Integer remove(final int index) {
+        return removeInt(index);
+    }
+
+    /**
+     * Removes specified value from the list.
+     *
+     * @param value the value to remove
+     * @return true if the value was in the list
+     */
+    public boolean removeValue(final int value) {
+        final int id = nodeMap.get(value);
+        if (id == 0) {
+            return false;
+        }
+        removeId(id);
+        return true;
+    }
+
+    /**
+     * Removes specified object from the list.
+     *
+     * @param object the object to remove
+     * @return true if the object was in the list
+     */
+    @Override
+    public boolean remove(final Object object) {
+        return object instanceof Integer && removeValue((int) (Integer) object);
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        nodeMap.clear();
+    }
+
+    /**
+     * Increases the capacity of the list, so specified amount of elements can be kept without resizing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    @Override
+    public void ensureCapacity(final int minCapacity) {
+        super.ensureCapacity(minCapacity);
+        nodeMap.ensureCapacity(minCapacity);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper sequence.
+     *
+     * @return array of elements
+     */
+    public int[] toIntArray() {
+        final int[] array = new int[size()];
+        int i = 0;
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            array[i++] = values[id];
+        }
+        return array;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Integer valueOf(final int id) {
+        return values[id];
+    }
+
+    @Override
+    protected void resizeValues(final int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Remove node and it's value from nodeMap.
+     */
+    private void removeId(final int id) {
+        nodeMap.remove(values[id]);
+        removeNode(id);
+    }
+
+    /**
+     * Build balanced tree of unique values of array in O(n), list should be empty.
+     */
+    private void buildFrom(final int[] array, final int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (nodeMap.get(array[i]) == 0) {
+                values[++count] = array[i];
+                nodeMap.put(array[i], count);
+            }
+        }
+        buildNodes(count);
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        assert(nodeMap.size() == size());
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            assert(nodeMap.get(values[id]) == id);
+        }
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Primitive long specialization of {@link IndexedTreeList}. As a <code>List</code> it stores order of elements,
+ * provides access by index and allows duplicates, elements are kept without boxing.
+ * </p>
+ * <p>
+ * Get by index, insert (head, tail, middle) and remove by index are O(log n) for unique values.
+ * Elements which are equal to m other elements are inserted or removed in O(log n * log m + m)
+ * as their ids are kept in sorted array, appending to the tail doesn't depend on m.
+ * indexOf and lastIndexOf are O(log n), contains is O(1).
+ * </p>
+ * <p>
+ * Internally the tree is kept in int arrays indexed by node ids and elements are kept in long array
+ * by the same ids. Elements are mapped to ids by open addressing hash map with long keys, an element which is
+ * contained several times is mapped to array of ids ordered by positions. So there are no objects per
+ * unique element.
+ * </p>
+ * <p>
+ * Methods of <code>List</code> box elements, methods with primitive arguments such as {@link #getLong(int)},
+ * {@link #indexOf(long)}, {@link #add(long)} and {@link #removeLong(int)} should be used on hot paths.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedLongTreeList extends AbstractIndexedArrayTreeList<Long> {
+
+    /** Initial capacity of array of ids of equal values. */
+    private static final int BUCKET_CAPACITY = 4;
+
+    /** Values of nodes by their ids. */
+    private long[] values;
+
+    /**
+     * Map from value to it's node id if value is unique, or to inverted index of bucket
+     * (negative number) if list contains several equal values.
+     */
+    private final LongIndexMap nodeMap;
+
+    /**
+     * Buckets of ids of equal values. Bucket keeps amount of ids at index 0 and ids ordered by positions
+     * after it.
+     */
+    private int[][] buckets = new int[0][];
+
+    /** Indexes of empty buckets which can be reused. */
+    private int[] freeBuckets = new int[0];
+
+    /** Amount of indexes in freeBuckets. */
+    private int freeBucketCount;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedLongTreeList() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new empty list with specified capacity.
+     *
+     * @param capacity expected amount of elements
+     */
+    public IndexedLongTreeList(final int capacity) {
+        super(capacity);
+        values = new long[capacity()];
+        nodeMap = new LongIndexMap(capacity);
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public IndexedLongTreeList(final Collection<Long> coll) {
+        this(coll.size());
+        final long[] array = new long[coll.size()];
+        int count = 0;
+        for (Long value : coll) {
+            array[count++] = value;
+        }
+        buildFrom(array);
+    }
+
+    /**
+     * Constructs a new list that copies the specified array.
+     *
+     * @param array The array to copy
+     * @throws NullPointerException if the array is null
+     */
+    public IndexedLongTreeList(final long[] array) {
+        this(array.length);
+        buildFrom(array);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public long getLong(final int index) {
+        return values[nodeAt(index)];
+    }
+
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public Long get(final int index) {
+        return getLong(index);
+    }
+
+    /**
+     * Searches for the first index of a value in the list.
+     *
+     * @param value the value to search
+     * @return the index of the value, -1 if not found
+     */
+    public int indexOf(final long value) {
+        final int code = nodeMap.get(value);
+        if (code == 0) {
+            return -1;
+        }
+        return positionOf(code > 0 ? code : buckets[~code][1]);
+    }
+
+    /**
+     * Searches for the first index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        return object instanceof Long ? indexOf((long) (Long) object) : -1;
+    }
+
+    /**
+     * Searches for the last index of a value in the list.
+     *
+     * @param value the value to search
+     * @return the index of the value, -1 if not found
+     */
+    public int lastIndexOf(final long value) {
+        final int code = nodeMap.get(value);
+        if (code == 0) {
+            return -1;
+        }
+        if (code > 0) {
+            return positionOf(code);
+        }
+        final int[] bucket = buckets[~code];
+        return positionOf(bucket[bucket[0]]);
+    }
+
+    /**
+     * Searches for the last index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        return object instanceof Long ? lastIndexOf((long) (Long) object) : -1;
+    }
+
+    /**
+     * Searches for all indexes of a value in the list.
+     *
+     * @param value the value to search
+     * @return array of indexes of the value
+     */
+    public int[] indexes(final long value) {
+        final int code = nodeMap.get(value);
+        if (code == 0) {
+            return new int[0];
+        }
+        if (code > 0) {
+            return new int[] {positionOf(code)};
+        }
+        final int[] bucket = buckets[~code];
+        final int[] indexes = new int[bucket[0]];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = positionOf(bucket[i + 1]);
+        }
+        return indexes;
+    }
+
+    /**
+     * Get amount of elements in the list equal to specified value.
+     *
+     * @param value the value to search
+     * @return amount of elements
+     */
+    public int count(final long value) {
+        final int code = nodeMap.get(value);
+        return code > 0 ? 1 : code == 0 ? 0 : buckets[~code][0];
+    }
+
+    /**
+     * Searches for the presence of a value in the list.
+     *
+     * @param value the value to check
+     * @return true if the value is found
+     */
+    public boolean contains(final long value) {
+        return nodeMap.get(value) != 0;
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return object instanceof Long && contains((long) (Long) object);
+    }
+
+    /**
+     * Adds a value to the end of the list.
+     *
+     * @param value the value to add
+     * @return true
+     */
+    public boolean add(final long value) {
+        final int id = insertNode(size());
+        values[id] = value;
+        mapNode(id, true);
+        return true;
+    }
+
+    /**
+     * Adds an object to the end of the list.
+     *
+     * @param object the object to add
+     * @return true
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final Long object) {
+        return add((long) object);
+    }
+
+    /**
+     * Inserts a value at the specified index.
+     *
+     * @param index the index to add at
+     * @param value the value to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public void add(final int index, final long value) {
+        final int id = insertNode(index);
+        values[id] = value;
+        mapNode(id, index == size() - 1);
+    }
+
+    /**
+     * Inserts an object at the specified index.
+     *
+     * @param index the index to add at
+     * @param object the object to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final Long object) {
+        add(index, (long) object);
+    }
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index the index to set
+     * @param value the value to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public long setLong(final int index, final long value) {
+        final int id = nodeAt(index);
+        final long previous = values[id];
+        if (previous != value) {
+            unmapNode(id);
+            values[id] = value;
+            mapNode(id, false);
+        }
+        return previous;
+    }
+
+    /**
+     * Sets the object at the specified index.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public Long set(final int index, final Long object) {
+        return setLong(index, object);
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public long removeLong(final int index) {
+        final int id = nodeAt(index);
+        final long value = values[id];
+        unmapNode(id);
+        removeNode(id);
+        return value;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public Long remove(final int index) {
+        return removeLong(index);
+    }
+
+    /**
+     * Removes the first occurrence of specified value.
+     *
+     * @param value the value to remove
+     * @return true if the value was in the list
+     */
+    public boolean removeValue(final long value) {
+        final int code = nodeMap.get(value);
+        if (code == 0) {
+            return false;
+        }
+        final int id = code > 0 ? code : buckets[~code][1];
+        unmapNode(id);
+        removeNode(id);
+        return true;
+    }
+
+    /**
+     * Removes the first occurrence of specified object.
+     *
+     * @param object the object to remove
+     * @return true if the object was in the list
+     */
+    @Override
+    public boolean remove(final Object object) {
+        return object instanceof Long && removeValue((long) (Long) object);
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        nodeMap.clear();
+        buckets = new int[0][];
+        freeBucketCount = 0;
+    }
+
+    /**
+     * Increases the capacity of the list, so specified amount of elements can be kept without resizing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    @Override
+    public void ensureCapacity(final int minCapacity) {
+        super.ensureCapacity(minCapacity);
+        nodeMap.ensureCapacity(minCapacity);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper sequence.
+     *
+     * @return array of elements
+     */
+    public long[] toLongArray() {
+        final long[] array = new long[size()];
+        int i = 0;
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            array[i++] = values[id];
+        }
+        return array;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Long valueOf(final int id) {
+        return values[id];
+    }
+
+    @Override
+    protected void resizeValues(final int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Add node which is linked into the tree to nodeMap.
+     *
+     * @param id id of the node
+     * @param last true if the node is the last one, so it's added to the end of bucket without comparing positions
+     */
+    private void mapNode(final int id, final boolean last) {
+        final long value = values[id];
+        final int code = nodeMap.get(value);
+        if (code == 0) {
+            nodeMap.put(value, id);
+        } else if (code > 0) {
+            final int[] bucket = new int[BUCKET_CAPACITY + 1];
+            bucket[0] = 2;
+            final boolean after = last || positionOf(code) < positionOf(id);
+            bucket[1] = after ? code : id;
+            bucket[2] = after ? id : code;
+            nodeMap.put(value, ~newBucket(bucket));
+        } else {
+            int[] bucket = buckets[~code];
+            final int count = bucket[0];
+            final int index = last ? count + 1 : insertionIndex(bucket, positionOf(id));
+            if (count + 1 == bucket.length) {
+                bucket = Arrays.copyOf(bucket, bucket.length * 2);
+                buckets[~code] = bucket;
+            }
+            System.arraycopy(bucket, index, bucket, index + 1, count + 1 - index);
+            bucket[index] = id;
+            bucket[0] = count + 1;
+        }
+    }
+
+    /**
+     * Remove node from nodeMap, node should be still linked into the tree.
+     *
+     * @param id id of the node
+     */
+    private void unmapNode(final int id) {
+        final long value = values[id];
+        final int code = nodeMap.get(value);
+        if (code > 0) {
+            nodeMap.remove(value);
+            return;
+        }
+        final int[] bucket = buckets[~code];
+        final int count = bucket[0];
+        final int index = bucket[1] == id ? 1 : bucket[count] == id ? count : insertionIndex(bucket, positionOf(id));
+        System.arraycopy(bucket, index + 1, bucket, index, count - index);
+        bucket[0] = count - 1;
+        if (count == 2) {
+            nodeMap.put(value, bucket[1]);
+            freeBucket(~code);
+        }
+    }
+
+    /**
+     * Find index in bucket of the first id which position is not less than specified one.
+     */
+    private int insertionIndex(final int[] bucket, final int position) {
+        int low = 1;
+        int high = bucket[0];
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (positionOf(bucket[middle]) < position) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int newBucket(final int[] bucket) {
+        final int index;
+        if (freeBucketCount > 0) {
+            index = freeBuckets[--freeBucketCount];
+        } else {
+            index = buckets.length;
+            buckets = Arrays.copyOf(buckets, Math.max(index * 2, 4));
+            if (freeBuckets.length < buckets.length) {
+                freeBuckets = new int[buckets.length];
+            }
+            for (int i = buckets.length - 1; i > index; i--) {
+                freeBuckets[freeBucketCount++] = i;
+            }
+        }
+        buckets[index] = bucket;
+        return index;
+    }
+
+    private void freeBucket(final int index) {
+        buckets[index] = null;
+        freeBuckets[freeBucketCount++] = index;
+    }
+
+    /**
+     * Build balanced tree of values of array in O(n), list should be empty.
+     */
+    private void buildFrom(final long[] array) {
+        buildNodes(array.length);
+        System.arraycopy(array, 0, values, 1, array.length);
+        for (int id = 1; id <= array.length; id++) {
+            mapNode(id, true);
+        }
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        int count = 0;
+        for (int id = firstNode(); id != 0; id = nextNode(id)) {
+            final int code = nodeMap.get(values[id]);
+            assert(code != 0);
+            if (code > 0) {
+                assert(code == id);
+                count++;
+            } else if (buckets[~code][1] == id) {
+                final int[] bucket = buckets[~code];
+                assert(bucket[0] > 1);
+                for (int i = 1; i <= bucket[0]; i++) {
+                    assert(values[bucket[i]] == values[id]);
+                    assert(i == 1 || positionOf(bucket[i - 1]) < positionOf(bucket[i]));
+                }
+                count += bucket[0];
+            }
+        }
+        assert(count == size());
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * Run-length encoded variant of {@link IndexedTreeList} for lists with long stretches of equal elements,
+ * e.g. status timelines. Adjacent equal elements are kept as a single run, so memory and cost of modifications
+ * depend on amount of runs instead of amount of elements.
+ * </p>
+ * <p>
+ * Get by index, insert and remove are O(log r) where r is amount of runs, plus O(log r) for each
+ * comparison in index of runs of the value. Inserting an element equal to a neighbour extends it's run,
+ * inserting a different element in the middle of a run splits it, and runs which become adjacent after
+ * removal are merged. Each value keeps amount of it's elements and it's runs ordered by position,
+ * so count, indexOf and lastIndexOf don't depend on amount of elements.
+ * </p>
+ *
+ * @author Aleksandr Maksymenko
+ */
+public class IndexedRunLengthList<E> extends AbstractRunTreeList<E, IndexedRunLengthList.ValueRun<E>> {
+
+    /** Runs of values. */
+    private final Map<Object, Occurrences<E>> nodeMap = new HashMap<>();
+
+    /** Order of runs in the list. */
+    private final Comparator<ValueRun<E>> byPosition =
+            (a, b) -> a == b ? 0 : Integer.compare(positionOf(a), positionOf(b));
+
+    //-----------------------------------------------------------------------
+    /**
+     * Constructs a new empty list.
+     */
+    public IndexedRunLengthList() {
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection.
+     *
+     * @param coll The collection to copy
+     * @throws NullPointerException if the collection is null or contains null
+     */
+    public IndexedRunLengthList(final Collection<? extends E> coll) {
+        addAll(coll);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Gets the element at the specified index.
+     *
+     * @param index the index to retrieve
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E get(final int index) {
+        checkInterval(index, 0, size() - 1);
+        return runAt(index).value;
+    }
+
+    /**
+     * Searches for the index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int indexOf(final Object object) {
+        final Occurrences<E> occurrences = nodeMap.get(object);
+        return occurrences == null ? -1 : positionOf(occurrences.runs.first());
+    }
+
+    /**
+     * Searches for the last index of an object in the list.
+     *
+     * @param object the object to search
+     * @return the index of the object, -1 if not found
+     */
+    @Override
+    public int lastIndexOf(final Object object) {
+        final Occurrences<E> occurrences = nodeMap.get(object);
+        if (occurrences == null) {
+            return -1;
+        }
+        final ValueRun<E> run = occurrences.runs.last();
+        return positionOf(run) + run.count - 1;
+    }
+
+    /**
+     * Searches for all indexes of an objects in the list equals to specified object.
+     *
+     * @param object the object to search
+     * @return array of indexes of the objects
+     */
+    public int[] indexes(final Object object) {
+        final Occurrences<E> occurrences = nodeMap.get(object);
+        if (occurrences == null) {
+            return new int[0];
+        }
+        final int[] indexes = new int[occurrences.count];
+        int i = 0;
+        for (ValueRun<E> run : occurrences.runs) {
+            final int position = positionOf(run);
+            for (int offset = 0; offset < run.count; offset++) {
+                indexes[i++] = position + offset;
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Get amount of objects in the list equals to specified object.
+     *
+     * @param object the object to search
+     * @return amount of objects
+     */
+    public int count(final Object object) {
+        final Occurrences<E> occurrences = nodeMap.get(object);
+        return occurrences == null ? 0 : occurrences.count;
+    }
+
+    /**
+     * Searches for the presence of an object in the list.
+     *
+     * @param object the object to check
+     * @return true if the object is found
+     */
+    @Override
+    public boolean contains(final Object object) {
+        return nodeMap.containsKey(object);
+    }
+
+    /**
+     * Get unordered Set of unique values. Returned Set is a read-only view.
+     *
+     * @return unordered Set of unique values
+     */
+    @SuppressWarnings("unchecked")
+    public Set<E> uniqueValues() {
+        return (Set<E>) Collections.unmodifiableSet(nodeMap.keySet());
+    }
+
+    /**
+     * Adds a new element to the end of the list.
+     *
+     * @param object the element to add
+     * @return true
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public boolean add(final E object) {
+        add(size(), object);
+        return true;
+    }
+
+    /**
+     * Inserts a new element at the specified index.
+     *
+     * @param index the index to add before
+     * @param object the element to add
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public void add(final int index, final E object) {
+        addCopies(index, object, 1);
+    }
+
+    /**
+     * Inserts specified amount of copies of an element at the specified index. It's O(log r) regardless of amount.
+     *
+     * @param index the index to add before
+     * @param object the element to add
+     * @param count amount of copies
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws IllegalArgumentException if count is negative or size of the list would overflow
+     * @throws NullPointerException if the object is null
+     */
+    public void addCopies(final int index, final E object, final int count) {
+        if (object == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        checkInterval(index, 0, size());
+        if (count < 0 || size() + count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        if (count == 0) {
+            return;
+        }
+        modCount++;
+        // run which contains element at index, null if index is the end of the list
+        final ValueRun<E> next = index < size() ? runAt(index) : null;
+        final int offset = next == null ? 0 : index - positionOf(next);
+        if (offset > 0) {
+            if (next.value.equals(object)) {
+                grow(next, count);
+            } else {
+                split(next, offset);
+                insertRun(next, object, count);
+            }
+            return;
+        }
+        final ValueRun<E> previous = next == null ? lastRun() : predecessor(next);
+        if (previous != null && previous.value.equals(object)) {
+            grow(previous, count);
+        } else if (next != null && next.value.equals(object)) {
+            grow(next, count);
+        } else {
+            insertRun(previous, object, count);
+        }
+    }
+
+    /**
+     * Sets the element at the specified index.
+     *
+     * @param index the index to set
+     * @param object the object to store at the specified index
+     * @return previous value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws NullPointerException if the object is null
+     */
+    @Override
+    public E set(final int index, final E object) {
+        if (object == null) {
+            throw new NullPointerException("Null elements are not allowed");
+        }
+        final E previous = get(index);
+        if (!previous.equals(object)) {
+            remove(index);
+            add(index, object);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the element at the specified index.
+     *
+     * @param index the index to remove
+     * @return the removed object
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    @Override
+    public E remove(final int index) {
+        checkInterval(index, 0, size() - 1);
+        modCount++;
+        final ValueRun<E> run = runAt(index);
+        if (run.count > 1) {
+            grow(run, -1);
+            return run.value;
+        }
+        final ValueRun<E> previous = predecessor(run);
+        final ValueRun<E> next = successor(run);
+        removeRun(run);
+        if (previous != null && next != null && previous.value.equals(next.value)) {
+            final int count = next.count;
+            removeRun(next);
+            grow(previous, count);
+        }
+        return run.value;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element.
+     *
+     * @param object element to be removed from this list, if present
+     * @return true if this list contained the specified element
+     */
+    @Override
+    public boolean remove(final Object object) {
+        final int index = indexOf(object);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Clears the list, removing all entries.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        nodeMap.clear();
+    }
+
+    /**
+     * Returns an iterator which walks runs in order, so the whole iteration is O(n).
+     *
+     * @return iterator over elements of the list
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private ValueRun<E> run = firstRun();
+            private int offset;
+            private int nextIndex;
+            private boolean canRemove;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return run != null;
+            }
+
+            @Override
+            public E next() {
+                checkModCount();
+                if (run == null) {
+                    throw new NoSuchElementException();
+                }
+                final E value = run.value;
+                if (++offset == run.count) {
+                    run = successor(run);
+                    offset = 0;
+                }
+                nextIndex++;
+                canRemove = true;
+                return value;
+            }
+
+            @Override
+            public void remove() {
+                checkModCount();
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                IndexedRunLengthList.this.remove(--nextIndex);
+                // runs can be shrunk or merged, so the next run is looked up again
+                if (nextIndex < size()) {
+                    run = runAt(nextIndex);
+                    offset = nextIndex - positionOf(run);
+                } else {
+                    run = null;
+                }
+                canRemove = false;
+                expectedModCount = modCount;
+            }
+
+            private void checkModCount() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Change amount of elements of a run.
+     */
+    private void grow(final ValueRun<E> run, final int delta) {
+        resizeRun(run, run.count + delta);
+        nodeMap.get(run.value).count += delta;
+    }
+
+    /**
+     * Split a run into two runs of the same value, the first one keeps specified amount of elements.
+     */
+    private void split(final ValueRun<E> run, final int count) {
+        final ValueRun<E> tail = new ValueRun<>(run.value, run.count - count);
+        resizeRun(run, count);
+        super.insertRun(run, tail);
+        nodeMap.get(run.value).runs.add(tail);
+    }
+
+    /**
+     * Link new run into the tree right after specified run and add it to runs of it's value.
+     */
+    private void insertRun(final ValueRun<E> previous, final E value, final int count) {
+        final ValueRun<E> run = new ValueRun<>(value, count);
+        super.insertRun(previous, run);
+        Occurrences<E> occurrences = nodeMap.get(value);
+        if (occurrences == null) {
+            occurrences = new Occurrences<>(byPosition);
+            nodeMap.put(value, occurrences);
+        }
+        occurrences.runs.add(run);
+        occurrences.count += count;
+    }
+
+    /**
+     * Unlink a run from the tree and runs of it's value.
+     */
+    @Override
+    protected void removeRun(final ValueRun<E> run) {
+        final Occurrences<E> occurrences = nodeMap.get(run.value);
+        // run is removed from ordered runs while it's still in the tree
+        occurrences.runs.remove(run);
+        occurrences.count -= run.count;
+        if (occurrences.runs.isEmpty()) {
+            nodeMap.remove(run.value);
+        }
+        super.removeRun(run);
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        ValueRun<E> previous = null;
+        int runs = 0;
+        for (ValueRun<E> run = firstRun(); run != null; run = successor(run)) {
+            // adjacent runs of equal values should be merged
+            assert(previous == null || !previous.value.equals(run.value));
+            assert(nodeMap.get(run.value).runs.contains(run));
+            previous = run;
+        }
+        for (Occurrences<E> occurrences : nodeMap.values()) {
+            int count = 0;
+            int position = -1;
+            for (ValueRun<E> run : occurrences.runs) {
+                assert(positionOf(run) > position);
+                position = positionOf(run);
+                count += run.count;
+                runs++;
+            }
+            assert(count == occurrences.count);
+        }
+        assert(runs == runCount());
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Run of equal elements.
+     */
+    static final class ValueRun<E> extends AbstractRunTreeList.Run<ValueRun<E>> {
+        private final E value;
+
+        private ValueRun(final E value, final int count) {
+            super(count);
+            this.value = value;
+        }
+    }
+
+    /**
+     * Runs of a value ordered by position and total amount of it's elements.
+     */
+    private static final class Occurrences<E> {
+        private final TreeSet<ValueRun<E>> runs;
+        private int count;
+
+        private Occurrences(final Comparator<ValueRun<E>> byPosition) {
+            runs = new TreeSet<>(byPosition);
+        }
+    }
+}
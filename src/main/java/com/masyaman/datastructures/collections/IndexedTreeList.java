@@ -17,7 +17,6 @@
 package com.masyaman.datastructures.collections;
 
 import java.util.*;
-import java.util.function.Function;
 
 /**
  * <p>
@@ -31,15 +30,18 @@ import java.util.function.Function;
  * </p>
  * <p>
  * Get by index is O(log n).
- * Insert (head, tail, middle) and remove(by index or by value) are O(log n)
- * in most cases but can be up to O((log n) ^ 2) in cases when List contains big
- * amount of elements equals to each other. Actual complexity is
- * O((log n) * (1 + log m)) where m is amount of elements equal to inserted/removed.
+ * Insert (head, tail, middle) and remove(by index or by value) are O(log n + log m)
+ * amortized, where m is amount of elements equal to inserted/removed. Nodes keep labels which
+ * increase along the list, so nodes of equal elements are ordered in O(1) per comparison.
  * indexOf is O(log n).
  * Contains is O(1) or O(log n) depending on Map implementation.
  * </p>
  * <p>
- * Internally it uses Map (HashMap by default) and AVL tree.
+ * Internally it uses Map (HashMap by default) and AVL tree. Map refers to the node of unique value directly,
+ * a few nodes of equal values are kept in a small array and only bigger amounts of equal values
+ * are kept in a tree of nodes, so lists of mostly unique values are almost as cheap as IndexedTreeListSet.
+ * The tree of equal nodes knows sizes of its subtrees, so occurrences can be counted or taken by their number
+ * in O(log n + log m).
  * HashMap can be replaced to TreeMap, this will slightly reduce overall performance
  * but will eliminate problems with hash collisions and hash table resizing.
  * Using TreeMap with custom Comparator will provide indexOf by custom criteria.
@@ -70,11 +72,30 @@ import java.util.function.Function;
  */
 public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
 
-    private final Comparator<AVLNode> NODE_COMPARATOR = Comparator.comparingInt(AVLNode::getPosition);
-    private final Function<E, TreeSet<AVLNode>> NEW_NODE_TREE_SET = k -> new TreeSet(NODE_COMPARATOR);
+    /** Occurrences are removed by rebuilding the tree if more than 1/REBUILD_REMOVAL_RATIO of elements are removed. */
+    private static final int REBUILD_REMOVAL_RATIO = 32;
 
-    /** Map from element to it's node or nodes */
-    protected final Map<E, TreeSet<AVLNode>> nodeMap;
+    /** Capacity of array of nodes with equal values, NodeTree is used for more nodes. */
+    private static final int SMALL_BUCKET_CAPACITY = 8;
+
+    /** NodeTree is replaced by array when amount of nodes drops to this value. */
+    private static final int SMALL_BUCKET_SHRINK_SIZE = SMALL_BUCKET_CAPACITY / 2;
+
+    /** Pool of empty NodeTrees which can be reused when node recycling is enabled. */
+    private ArrayDeque<NodeTree<E>> nodeTreePool;
+
+    /**
+     * Map from element to bucket of nodes with equal values. Bucket is a single node, array of up to
+     * {@link #SMALL_BUCKET_CAPACITY} nodes ordered by position and followed by nulls, or NodeTree of nodes
+     * ordered by position. Key of map is the value of the first node of bucket.
+     */
+    protected Map<E, Object> nodeMap;
+
+    /** True if nodeMap is built on the first search only, see {@link #setLazyIndex(boolean)}. */
+    private boolean lazyIndex;
+
+    /** True if nodeMap is not maintained yet, it's empty and nodes are not labeled. */
+    private boolean indexPending;
 
     //-----------------------------------------------------------------------
     /**
@@ -100,7 +121,7 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      * @throws NullPointerException if the collection is null
      */
     public IndexedTreeList(final Collection<? extends E> coll) {
-        this(coll, new HashMap<>());
+        this(coll, new HashMap<>(Math.max((int) (coll.size() / .75f) + 1, 16)));
     }
 
     /**
@@ -113,9 +134,17 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      */
     public IndexedTreeList(final Collection<? extends E> coll, final Map map) {
         this.nodeMap = map;
-        for (E e : coll) {
-            add(e);
-        }
+        buildFrom(coll.toArray());
+    }
+
+    /**
+     * Creates a builder which collects elements and builds a list in O(n).
+     *
+     * @param <E> the type of elements
+     * @return new builder
+     */
+    public static <E> Builder<E> builder() {
+        return new Builder<>();
     }
 
     //-----------------------------------------------------------------------
@@ -128,11 +157,14 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      */
     @Override
     public int indexOf(final Object object) {
-        TreeSet<AVLNode> nodes = nodeMap.get(object);
-        if (nodes == null || nodes.isEmpty()) {
+        final Object bucket = valueMap().get(object);
+        if (bucket == null) {
             return -1;
         }
-        return nodes.first().getPosition();
+        final AVLNode<E> node = first(bucket);
+        final int position = positionOf(node);
+        accessed(node);
+        return position;
     }
 
     /**
@@ -143,11 +175,14 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      */
     @Override
     public int lastIndexOf(final Object object) {
-        TreeSet<AVLNode> nodes = nodeMap.get(object);
-        if (nodes == null || nodes.isEmpty()) {
+        final Object bucket = valueMap().get(object);
+        if (bucket == null) {
             return -1;
         }
-        return nodes.last().getPosition();
+        final AVLNode<E> node = last(bucket);
+        final int position = positionOf(node);
+        accessed(node);
+        return position;
     }
 
     /**
@@ -157,14 +192,38 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      * @return array of indexes of the objects
      */
     public int[] indexes(final Object object) {
-        TreeSet<AVLNode> nodes = nodeMap.get(object);
-        if (nodes == null || nodes.isEmpty()) {
+        final Object bucket = valueMap().get(object);
+        if (bucket == null) {
             return new int[0];
         }
-        int[] indexes = new int[nodes.size()];
-        int i = 0;
-        for (AVLNode node : nodes) {
-            indexes[i++] = node.getPosition();
+        final AVLNode<E>[] nodes = toArray(bucket);
+        final int[] indexes = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            indexes[i] = positionOf(nodes[i]);
+        }
+        return indexes;
+    }
+
+    /**
+     * Searches for all indexes of objects in specified range of the list equal to specified object.
+     * Complexity is O(log n + log m + k log n) where k is amount of found indexes.
+     *
+     * @param object the object to search
+     * @param fromIndex index of the first element of range
+     * @param toIndex index after the last element of range
+     * @return array of indexes of the objects
+     * @throws IndexOutOfBoundsException if the range is invalid
+     */
+    public int[] indexes(final Object object, final int fromIndex, final int toIndex) {
+        checkRange(fromIndex, toIndex);
+        final Object bucket = valueMap().get(object);
+        if (bucket == null || fromIndex == toIndex) {
+            return new int[0];
+        }
+        final int first = countBefore(bucket, fromIndex);
+        final int[] indexes = new int[countBefore(bucket, toIndex) - first];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = positionOf(get(bucket, first + i));
         }
         return indexes;
     }
@@ -176,11 +235,232 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      * @return amount of objects
      */
     public int count(final Object object) {
-        TreeSet<AVLNode> nodes = nodeMap.get(object);
-        if (nodes == null || nodes.isEmpty()) {
+        final Object bucket = valueMap().get(object);
+        return bucket == null ? 0 : size(bucket);
+    }
+
+    /**
+     * Get amount of objects in specified range of the list equals to specified object. It's O(log n + log m).
+     *
+     * @param object the object to search
+     * @param fromIndex index of the first element of range
+     * @param toIndex index after the last element of range
+     * @return amount of objects
+     * @throws IndexOutOfBoundsException if the range is invalid
+     */
+    public int countInRange(final Object object, final int fromIndex, final int toIndex) {
+        checkRange(fromIndex, toIndex);
+        final Object bucket = valueMap().get(object);
+        if (bucket == null || fromIndex == toIndex) {
+            return 0;
+        }
+        return countBefore(bucket, toIndex) - countBefore(bucket, fromIndex);
+    }
+
+    /**
+     * Searches for the index of the first occurrence of an object at or after specified index.
+     * It's O(log n + log m).
+     *
+     * @param object the object to search
+     * @param fromIndex the index to start search from, there is no restriction on its value
+     * @return the index of the object, -1 if not found
+     */
+    public int nextIndexOf(final Object object, final int fromIndex) {
+        final Object bucket = valueMap().get(object);
+        if (bucket == null || fromIndex >= size) {
+            return -1;
+        }
+        final int number = countBefore(bucket, Math.max(fromIndex, 0));
+        return number < size(bucket) ? positionOf(get(bucket, number)) : -1;
+    }
+
+    /**
+     * Searches for the index of the last occurrence of an object at or before specified index.
+     * It's O(log n + log m).
+     *
+     * @param object the object to search
+     * @param fromIndex the index to start backward search from, there is no restriction on its value
+     * @return the index of the object, -1 if not found
+     */
+    public int previousIndexOf(final Object object, final int fromIndex) {
+        final Object bucket = valueMap().get(object);
+        if (bucket == null || fromIndex < 0) {
+            return -1;
+        }
+        final int number = countBefore(bucket, Math.min(fromIndex, size - 1) + 1);
+        return number > 0 ? positionOf(get(bucket, number - 1)) : -1;
+    }
+
+    /**
+     * Searches for the index of n-th occurrence of an object, occurrences are numbered from 0.
+     * It's O(log n + log m).
+     *
+     * @param object the object to search
+     * @param n number of occurrence
+     * @return the index of the object, -1 if there are not more than n occurrences
+     * @throws IllegalArgumentException if n is negative
+     */
+    public int nthIndexOf(final Object object, final int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative occurrence number: " + n);
+        }
+        final Object bucket = valueMap().get(object);
+        if (bucket == null || n >= size(bucket)) {
+            return -1;
+        }
+        return positionOf(get(bucket, n));
+    }
+
+    /**
+     * Removes the first occurrence of the specified element.
+     *
+     * @param object element to be removed from this list, if present
+     * @return true if this list contained the specified element
+     */
+    public boolean removeFirstOccurrence(final Object object) {
+        return remove(object);
+    }
+
+    /**
+     * Removes the last occurrence of the specified element.
+     *
+     * @param object element to be removed from this list, if present
+     * @return true if this list contained the specified element
+     */
+    public boolean removeLastOccurrence(final Object object) {
+        final Object bucket = valueMap().get(object);
+        if (bucket == null) {
+            return false;
+        }
+        modCount++;
+        unlink(last(bucket));
+        return true;
+    }
+
+    /**
+     * Removes all occurrences of the specified element.
+     *
+     * @param object element to be removed from this list
+     * @return amount of removed elements
+     */
+    public int removeAllOccurrences(final Object object) {
+        return removeOccurrences(object, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes up to limit first occurrences of the specified element. Nodes are taken from nodeMap directly.
+     * If m elements are removed, complexity is O(m log n), but if m is large comparing to size of the list,
+     * then remaining nodes are relinked into a new tree in O(n).
+     *
+     * @param object element to be removed from this list
+     * @param limit maximal amount of elements to remove
+     * @return amount of removed elements
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public int removeOccurrences(final Object object, final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit: " + limit);
+        }
+        final Object bucket = valueMap().get(object);
+        if (bucket == null || limit == 0) {
             return 0;
         }
-        return nodes.size();
+        final int count = Math.min(limit, size(bucket));
+        if (count <= size / REBUILD_REMOVAL_RATIO) {
+            modCount++;
+            for (int i = 0; i < count; i++) {
+                // bucket is taken again, as it may be recreated when values are moved between nodes on removal
+                unlink(first(nodeMap.get(object)));
+            }
+            return count;
+        }
+        final AVLNode<E>[] nodes = toArray(bucket);
+        nodeMap.remove(object);
+        if (bucket instanceof NodeTree) {
+            recycleNodeTree(asNodeTree(bucket));
+        }
+        if (count < nodes.length) {
+            nodeMap.put(nodes[count].getValue(), newBucket(nodes, count, nodes.length));
+        }
+        removeAndRebuild(nodes, count);
+        return count;
+    }
+
+    /**
+     * Splits this list at specified index. Elements from index to the end of the list are moved to a new list,
+     * this list keeps elements before index. Tree is split in O(log n) and nodeMap entries are moved for
+     * the smaller part only. Map of the same kind is created for new list.
+     *
+     * @param index index of the first element of new list
+     * @return new list with elements from index to the end of this list
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws UnsupportedOperationException if map of the same kind can't be created
+     */
+    public IndexedTreeList<E> splitAt(final int index) {
+        valueMap();
+        final IndexedTreeList<E> tail = new IndexedTreeList<>(newMapLike(nodeMap));
+        splitTo(index, tail, true);
+        return tail;
+    }
+
+    /**
+     * Splits this list at specified index. Elements from index to the end of the list are moved to a new list,
+     * this list keeps elements before index.
+     *
+     * @param index index of the first element of new list
+     * @param map Map implementation for new list. Specified map should be empty.
+     * @return new list with elements from index to the end of this list
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public IndexedTreeList<E> splitAt(final int index, final Map map) {
+        valueMap();
+        final IndexedTreeList<E> tail = new IndexedTreeList<>(map);
+        splitTo(index, tail, false);
+        return tail;
+    }
+
+    /**
+     * Appends all elements of other list to the end of this list, other list becomes empty.
+     * Trees are joined in O(log n) and nodeMap entries are moved for the smaller list only.
+     *
+     * @param other list to append, it becomes empty
+     * @throws IllegalArgumentException if other list is this list
+     */
+    public void concat(final IndexedTreeList<E> other) {
+        valueMap();
+        other.valueMap();
+        concatFrom(other, isSameMapKind(nodeMap, other.nodeMap));
+    }
+
+    /**
+     * Moves elements in range [fromIndex, toIndex) to a new list. Map of the same kind is created for new list.
+     * Complexity is O(k + log n) where k is amount of moved elements.
+     *
+     * @param fromIndex index of first element to be moved
+     * @param toIndex index after last element to be moved
+     * @return new list with moved elements
+     * @throws IndexOutOfBoundsException if range is invalid
+     * @throws UnsupportedOperationException if map of the same kind can't be created
+     */
+    public IndexedTreeList<E> extract(final int fromIndex, final int toIndex) {
+        return extract(fromIndex, toIndex, newMapLike(nodeMap));
+    }
+
+    /**
+     * Moves elements in range [fromIndex, toIndex) to a new list.
+     * Complexity is O(k + log n) where k is amount of moved elements.
+     *
+     * @param fromIndex index of first element to be moved
+     * @param toIndex index after last element to be moved
+     * @param map Map implementation for new list. Specified map should be empty.
+     * @return new list with moved elements
+     * @throws IndexOutOfBoundsException if range is invalid
+     */
+    public IndexedTreeList<E> extract(final int fromIndex, final int toIndex, final Map map) {
+        valueMap();
+        final IndexedTreeList<E> target = new IndexedTreeList<>(map);
+        extractTo(fromIndex, toIndex, target);
+        return target;
     }
 
     /**
@@ -191,7 +471,7 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      */
     @Override
     public boolean contains(final Object object) {
-        return nodeMap.containsKey(object);
+        return valueMap().containsKey(object);
     }
 
     /**
@@ -201,15 +481,32 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
     public void clear() {
         super.clear();
         nodeMap.clear();
+        indexPending = lazyIndex;
     }
 
     /**
-     * Get unordered Set of unique values.
+     * Get unordered Set of unique values. Returned Set is a read-only view, it remains valid even if nodeMap
+     * is replaced by {@link #ensureCapacity(int)} or {@link #splitAt(int)}.
      *
      * @return unordered Set of unique values
      */
     public Set<E> uniqueValues() {
-        return nodeMap.keySet();
+        return new AbstractSet<E>() {
+            @Override
+            public Iterator<E> iterator() {
+                return Collections.unmodifiableSet(valueMap().keySet()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return valueMap().size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return valueMap().containsKey(o);
+            }
+        };
     }
 
     /**
@@ -230,22 +527,819 @@ public class IndexedTreeList<E> extends AbstractIndexedTreeList<E> {
      * Add node to nodeMap.
      */
     @Override
-    protected void addNode(AVLNode node) {
-        nodeMap.computeIfAbsent(node.getValue(), NEW_NODE_TREE_SET).add(node);
+    protected void addNode(AVLNode<E> node) {
+        if (indexPending) {
+            return;
+        }
+        final E value = node.getValue();
+        final Object bucket = nodeMap.putIfAbsent(value, node);
+        if (bucket == null) {
+            return;
+        }
+        final AVLNode<E> first = first(bucket);
+        final Object updated;
+        if (bucket instanceof NodeTree) {
+            asNodeTree(bucket).add(node);
+            updated = bucket;
+        } else if (bucket instanceof AVLNode) {
+            final AVLNode<E>[] nodes = newNodeArray(SMALL_BUCKET_CAPACITY);
+            nodes[0] = first;
+            insert(nodes, 1, node);
+            updated = nodes;
+        } else {
+            final AVLNode<E>[] nodes = asNodes(bucket);
+            final int count = size(nodes);
+            if (count < SMALL_BUCKET_CAPACITY) {
+                insert(nodes, count, node);
+                updated = nodes;
+            } else {
+                final AVLNode<E>[] all = Arrays.copyOf(nodes, count + 1);
+                insert(all, count, node);
+                final NodeTree<E> tree = newNodeTree();
+                tree.build(all, 0, all.length);
+                updated = tree;
+            }
+        }
+        if (first(updated) != first && first.getValue() != value) {
+            // key should be the value of the first node
+            nodeMap.remove(value);
+            nodeMap.put(value, updated);
+        } else if (updated != bucket) {
+            nodeMap.put(value, updated);
+        }
+    }
+
+    /**
+     * Insert node into array of nodes keeping nodes ordered by their positions.
+     *
+     * @param nodes array of nodes with free space after count
+     * @param count amount of nodes in array
+     * @param node node to insert
+     */
+    private static <E> void insert(final AVLNode<E>[] nodes, final int count, final AVLNode<E> node) {
+        int i = count;
+        // nodes are usually added to the tail
+        while (i > 0 && nodes[i - 1].compareOrder(node) > 0) {
+            nodes[i] = nodes[i - 1];
+            i--;
+        }
+        nodes[i] = node;
     }
 
     /**
      * Remove node from nodeMap.
      */
     @Override
-    protected void removeNode(AVLNode node) {
-        TreeSet<AVLNode> nodes = nodeMap.remove(node.getValue());
-        if (nodes == null) {
+    protected void removeNode(AVLNode<E> node) {
+        if (indexPending) {
+            return;
+        }
+        final E value = node.getValue();
+        if (nodeMap.remove(value, node)) {
+            return;
+        }
+        final Object bucket = nodeMap.get(value);
+        if (bucket == null) {
+            return;
+        }
+        final boolean removedFirst = first(bucket) == node;
+        final Object updated;
+        if (bucket instanceof NodeTree) {
+            final NodeTree<E> tree = asNodeTree(bucket);
+            tree.remove(node);
+            if (tree.size() > SMALL_BUCKET_SHRINK_SIZE) {
+                updated = tree;
+            } else {
+                updated = tree.toArray(newNodeArray(SMALL_BUCKET_CAPACITY));
+                tree.clear();
+                recycleNodeTree(tree);
+            }
+        } else {
+            final AVLNode<E>[] nodes = asNodes(bucket);
+            int i = 0;
+            while (nodes[i] != node) {
+                i++;
+            }
+            System.arraycopy(nodes, i + 1, nodes, i, SMALL_BUCKET_CAPACITY - i - 1);
+            nodes[SMALL_BUCKET_CAPACITY - 1] = null;
+            updated = nodes[1] == null ? nodes[0] : nodes;
+        }
+        final AVLNode<E> first = first(updated);
+        if (removedFirst && first.getValue() != value) {
+            // key is replaced by the value of new first node
+            nodeMap.remove(value);
+            nodeMap.put(first.getValue(), updated);
+        } else if (updated != bucket) {
+            nodeMap.put(value, updated);
+        }
+    }
+
+    /**
+     * Cast bucket which is a single node.
+     */
+    @SuppressWarnings("unchecked")
+    private AVLNode<E> asNode(final Object bucket) {
+        return (AVLNode<E>) bucket;
+    }
+
+    /**
+     * Cast bucket which is an array of nodes.
+     */
+    @SuppressWarnings("unchecked")
+    private AVLNode<E>[] asNodes(final Object bucket) {
+        return (AVLNode<E>[]) bucket;
+    }
+
+    /**
+     * Cast bucket which is a tree of nodes.
+     */
+    @SuppressWarnings("unchecked")
+    private NodeTree<E> asNodeTree(final Object bucket) {
+        return (NodeTree<E>) bucket;
+    }
+
+    /**
+     * Get the first node of bucket.
+     */
+    private AVLNode<E> first(final Object bucket) {
+        if (bucket instanceof AVLNode) {
+            return asNode(bucket);
+        }
+        if (bucket instanceof NodeTree) {
+            return asNodeTree(bucket).first();
+        }
+        return asNodes(bucket)[0];
+    }
+
+    /**
+     * Get the last node of bucket.
+     */
+    private AVLNode<E> last(final Object bucket) {
+        if (bucket instanceof AVLNode) {
+            return asNode(bucket);
+        }
+        if (bucket instanceof NodeTree) {
+            return asNodeTree(bucket).last();
+        }
+        final AVLNode<E>[] nodes = asNodes(bucket);
+        return nodes[size(nodes) - 1];
+    }
+
+    /**
+     * Get node of bucket by it's number.
+     */
+    private AVLNode<E> get(final Object bucket, final int index) {
+        if (bucket instanceof AVLNode) {
+            return asNode(bucket);
+        }
+        if (bucket instanceof NodeTree) {
+            return asNodeTree(bucket).get(index);
+        }
+        return asNodes(bucket)[index];
+    }
+
+    /**
+     * Get amount of nodes of bucket placed before specified index of the list. Node at the index is
+     * compared to nodes of the bucket by labels, so it's O(log n + log m).
+     */
+    private int countBefore(final Object bucket, final int index) {
+        if (index == 0) {
+            return 0;
+        }
+        if (index == size) {
+            return size(bucket);
+        }
+        final AVLNode<E> node = getNode(index);
+        if (bucket instanceof AVLNode) {
+            return asNode(bucket).compareOrder(node) < 0 ? 1 : 0;
+        }
+        if (bucket instanceof NodeTree) {
+            return asNodeTree(bucket).countBefore(node);
+        }
+        final AVLNode<E>[] nodes = asNodes(bucket);
+        int count = 0;
+        while (count < nodes.length && nodes[count] != null && nodes[count].compareOrder(node) < 0) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get amount of nodes in bucket.
+     */
+    private static int size(final Object bucket) {
+        if (bucket instanceof AVLNode) {
+            return 1;
+        }
+        if (bucket instanceof NodeTree) {
+            return ((NodeTree<?>) bucket).size();
+        }
+        return size((AVLNode<?>[]) bucket);
+    }
+
+    /**
+     * Get amount of nodes in array of nodes followed by nulls.
+     */
+    private static int size(final AVLNode<?>[] nodes) {
+        int count = 0;
+        while (count < nodes.length && nodes[count] != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get nodes of bucket ordered by their positions.
+     */
+    private AVLNode<E>[] toArray(final Object bucket) {
+        if (bucket instanceof AVLNode) {
+            final AVLNode<E>[] nodes = newNodeArray(1);
+            nodes[0] = asNode(bucket);
+            return nodes;
+        }
+        if (bucket instanceof NodeTree) {
+            final NodeTree<E> tree = asNodeTree(bucket);
+            return tree.toArray(newNodeArray(tree.size()));
+        }
+        final AVLNode<E>[] nodes = asNodes(bucket);
+        return Arrays.copyOf(nodes, size(nodes));
+    }
+
+    /**
+     * Create bucket of nodes in range [from, to) of array ordered by positions.
+     */
+    private Object newBucket(final AVLNode<E>[] nodes, final int from, final int to) {
+        if (to - from == 1) {
+            return nodes[from];
+        }
+        if (to - from <= SMALL_BUCKET_CAPACITY) {
+            final AVLNode<E>[] bucket = newNodeArray(SMALL_BUCKET_CAPACITY);
+            System.arraycopy(nodes, from, bucket, 0, to - from);
+            return bucket;
+        }
+        final NodeTree<E> tree = newNodeTree();
+        tree.build(nodes, from, to);
+        return tree;
+    }
+
+    /**
+     * Put empty NodeTree into pool if node recycling is enabled.
+     *
+     * @param nodes empty NodeTree which is removed from nodeMap
+     */
+    private void recycleNodeTree(final NodeTree<E> nodes) {
+        if (isNodeRecycling()) {
+            if (nodeTreePool == null) {
+                nodeTreePool = new ArrayDeque<>();
+            }
+            if (nodeTreePool.size() < getNodePoolCapacity()) {
+                nodeTreePool.push(nodes);
+            }
+        }
+    }
+
+    /**
+     * Create NodeTree for nodes with the same value, it's taken from pool if possible.
+     *
+     * @return empty NodeTree
+     */
+    private NodeTree<E> newNodeTree() {
+        if (nodeTreePool != null && !nodeTreePool.isEmpty()) {
+            return nodeTreePool.pop();
+        }
+        return new NodeTree<>();
+    }
+
+    /**
+     * Enables or disables node recycling. When it's enabled, nodes of removed elements and NodeTrees of removed
+     * values are kept in a pool and reused for added elements. Node recycling is disabled by default.
+     *
+     * @param enabled true to enable node recycling
+     */
+    @Override
+    public void setNodeRecycling(final boolean enabled) {
+        super.setNodeRecycling(enabled);
+        if (!enabled) {
+            nodeTreePool = null;
+        }
+    }
+
+    /**
+     * Get node of the first element equal to specified object from nodeMap.
+     */
+    @Override
+    protected AVLNode<E> getFirstNode(final Object object) {
+        final Object bucket = valueMap().get(object);
+        return bucket == null ? null : first(bucket);
+    }
+
+    /**
+     * Increase capacity of nodeMap, if it's possible for map implementation.
+     */
+    @Override
+    protected void ensureNodeMapCapacity(final int minCapacity) {
+        nodeMap = withCapacity(nodeMap, minCapacity);
+    }
+
+    /**
+     * Swap nodeMap with other list.
+     */
+    @Override
+    protected void swapNodeMap(final AbstractIndexedTreeList<E> other) {
+        final IndexedTreeList<E> list = (IndexedTreeList<E>) other;
+        final Map<E, Object> map = nodeMap;
+        nodeMap = list.nodeMap;
+        list.nodeMap = map;
+    }
+
+    /**
+     * Nodes of the same value are ordered by their positions. Nodes are not labeled while nodeMap is not built.
+     */
+    @Override
+    protected boolean isNodeMapOrdered() {
+        return !indexPending;
+    }
+
+    /**
+     * Nodes of this list carry labels, which define order of nodes in buckets.
+     */
+    @Override
+    protected AVLNode<E> createNode() {
+        return isPositionCaching() ? new OrderedPositionCachingNode<>() : new OrderedNode<>();
+    }
+
+    /**
+     * Node with label, which increases along the list.
+     */
+    static final class OrderedNode<E> extends AVLNode<E> {
+        /** Label which increases along the list, it's maintained only if nodeMap is ordered. */
+        private int label;
+
+        @Override
+        int getLabel() {
+            return label;
+        }
+
+        @Override
+        void setLabel(final int label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Node with label, which also caches it's absolute position.
+     */
+    static final class OrderedPositionCachingNode<E> extends PositionCachingNode<E> {
+        /** Label which increases along the list, it's maintained only if nodeMap is ordered. */
+        private int label;
+
+        @Override
+        int getLabel() {
+            return label;
+        }
+
+        @Override
+        void setLabel(final int label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Enables or disables lazy index. When it's enabled, nodeMap is dropped and it's not maintained while
+     * the list is modified, so appending elements is almost as fast as inserting into plain tree. The first call
+     * of indexOf, contains, count, indexes, uniqueValues or other search builds nodeMap in a single O(n) pass,
+     * after that it's maintained on every modification as usual. nodeMap is dropped again by {@link #clear()}.
+     * When lazy index is disabled, nodeMap is built immediately. Lazy index is disabled by default.
+     *
+     * @param enabled true to enable lazy index
+     */
+    public void setLazyIndex(final boolean enabled) {
+        lazyIndex = enabled;
+        if (enabled) {
+            nodeMap.clear();
+            indexPending = true;
+        } else {
+            valueMap();
+        }
+    }
+
+    /**
+     * Check if lazy index is enabled.
+     *
+     * @return true if lazy index is enabled
+     */
+    public boolean isLazyIndex() {
+        return lazyIndex;
+    }
+
+    /**
+     * Get nodeMap for searching. Elements of append buffer are merged into the tree and nodeMap is built first
+     * if it's not maintained yet.
+     *
+     * @return nodeMap with all nodes of the list
+     */
+    private Map<E, Object> valueMap() {
+        mergeAppendBuffer();
+        if (indexPending) {
+            indexPending = false;
+            addAllNodes();
+        }
+        return nodeMap;
+    }
+
+    /**
+     * Check if nodeMap is not maintained yet. Used for tests.
+     */
+    boolean isIndexPending() {
+        return indexPending;
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        if (indexPending) {
+            assert(nodeMap.isEmpty());
             return;
         }
-        nodes.remove(node);
-        if (!nodes.isEmpty()) {
-            nodeMap.put(nodes.first().getValue(), nodes);
+        int count = 0;
+        for (Map.Entry<E, Object> entry : nodeMap.entrySet()) {
+            final Object bucket = entry.getValue();
+            final AVLNode<E>[] nodes = toArray(bucket);
+            if (bucket instanceof NodeTree) {
+                assert(nodes.length > SMALL_BUCKET_SHRINK_SIZE);
+                asNodeTree(bucket).assertConsistent();
+            } else if (!(bucket instanceof AVLNode)) {
+                assert(asNodes(bucket).length == SMALL_BUCKET_CAPACITY);
+                assert(nodes.length > 1);
+            }
+            assert(entry.getKey() == nodes[0].getValue());
+            for (int i = 0; i < nodes.length; i++) {
+                assert(nodeMap.get(nodes[i].getValue()) == bucket);
+                assert(i == 0 || nodes[i - 1].getPosition() < nodes[i].getPosition());
+            }
+            count += nodes.length;
+        }
+        assert(count == size);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * AVL tree of nodes with equal values ordered by their positions in the list. Every entry keeps size of its
+     * subtree, so nodes can be counted up to some position or taken by their number in O(log m). Nodes are
+     * compared by labels, so comparison doesn't depend on the size of the list.
+     *
+     * @param <E> the type of elements
+     */
+    static final class NodeTree<E> {
+
+        private Entry<E> root;
+
+        /**
+         * Get amount of nodes in the tree.
+         */
+        int size() {
+            return size(root);
+        }
+
+        /**
+         * Get the first node of the tree.
+         */
+        AVLNode<E> first() {
+            Entry<E> entry = root;
+            while (entry.left != null) {
+                entry = entry.left;
+            }
+            return entry.node;
+        }
+
+        /**
+         * Get the last node of the tree.
+         */
+        AVLNode<E> last() {
+            Entry<E> entry = root;
+            while (entry.right != null) {
+                entry = entry.right;
+            }
+            return entry.node;
+        }
+
+        /**
+         * Get node by it's number in the tree.
+         *
+         * @param index number of node, should be less than size
+         * @return node
+         */
+        AVLNode<E> get(int index) {
+            Entry<E> entry = root;
+            while (true) {
+                final int leftSize = size(entry.left);
+                if (index < leftSize) {
+                    entry = entry.left;
+                } else if (index == leftSize) {
+                    return entry.node;
+                } else {
+                    index -= leftSize + 1;
+                    entry = entry.right;
+                }
+            }
+        }
+
+        /**
+         * Get amount of nodes of the tree which are placed in the list before specified node.
+         *
+         * @param node any node of the list
+         * @return amount of nodes before specified one
+         */
+        int countBefore(final AVLNode<E> node) {
+            int count = 0;
+            Entry<E> entry = root;
+            while (entry != null) {
+                if (entry.node.compareOrder(node) < 0) {
+                    count += size(entry.left) + 1;
+                    entry = entry.right;
+                } else {
+                    entry = entry.left;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Add node to the tree.
+         */
+        void add(final AVLNode<E> node) {
+            root = insert(root, node);
+        }
+
+        /**
+         * Remove node from the tree, node should be in the tree.
+         */
+        void remove(final AVLNode<E> node) {
+            root = delete(root, node);
+        }
+
+        /**
+         * Remove all nodes from the tree.
+         */
+        void clear() {
+            root = null;
+        }
+
+        /**
+         * Replace content of the tree by nodes in range [from, to) of array ordered by positions.
+         */
+        void build(final AVLNode<E>[] nodes, final int from, final int to) {
+            root = buildEntries(nodes, from, to - 1);
+        }
+
+        /**
+         * Copy nodes ordered by positions to array, the rest of array is filled by nulls.
+         *
+         * @param array array which is big enough to contain all nodes
+         * @return specified array
+         */
+        AVLNode<E>[] toArray(final AVLNode<E>[] array) {
+            final int count = copy(root, array, 0);
+            Arrays.fill(array, count, array.length, null);
+            return array;
+        }
+
+        private static <E> Entry<E> buildEntries(final AVLNode<E>[] nodes, final int lowIndex, final int highIndex) {
+            if (lowIndex > highIndex) {
+                return null;
+            }
+            final int middle = (lowIndex + highIndex) >>> 1;
+            final Entry<E> entry = new Entry<>(nodes[middle]);
+            entry.left = buildEntries(nodes, lowIndex, middle - 1);
+            entry.right = buildEntries(nodes, middle + 1, highIndex);
+            entry.update();
+            return entry;
+        }
+
+        private static <E> int copy(final Entry<E> entry, final AVLNode<E>[] array, int index) {
+            if (entry == null) {
+                return index;
+            }
+            index = copy(entry.left, array, index);
+            array[index++] = entry.node;
+            return copy(entry.right, array, index);
+        }
+
+        private static <E> Entry<E> insert(final Entry<E> entry, final AVLNode<E> node) {
+            if (entry == null) {
+                return new Entry<>(node);
+            }
+            if (node.compareOrder(entry.node) < 0) {
+                entry.left = insert(entry.left, node);
+            } else {
+                entry.right = insert(entry.right, node);
+            }
+            return balance(entry);
+        }
+
+        private static <E> Entry<E> delete(final Entry<E> entry, final AVLNode<E> node) {
+            if (entry.node == node) {
+                if (entry.left == null) {
+                    return entry.right;
+                }
+                if (entry.right == null) {
+                    return entry.left;
+                }
+                Entry<E> next = entry.right;
+                while (next.left != null) {
+                    next = next.left;
+                }
+                entry.node = next.node;
+                entry.right = deleteFirst(entry.right);
+            } else if (node.compareOrder(entry.node) < 0) {
+                entry.left = delete(entry.left, node);
+            } else {
+                entry.right = delete(entry.right, node);
+            }
+            return balance(entry);
+        }
+
+        private static <E> Entry<E> deleteFirst(final Entry<E> entry) {
+            if (entry.left == null) {
+                return entry.right;
+            }
+            entry.left = deleteFirst(entry.left);
+            return balance(entry);
+        }
+
+        private static <E> Entry<E> balance(final Entry<E> entry) {
+            final int heightDiff = height(entry.left) - height(entry.right);
+            if (heightDiff > 1) {
+                if (height(entry.left.left) < height(entry.left.right)) {
+                    entry.left = rotateLeft(entry.left);
+                }
+                return rotateRight(entry);
+            }
+            if (heightDiff < -1) {
+                if (height(entry.right.right) < height(entry.right.left)) {
+                    entry.right = rotateRight(entry.right);
+                }
+                return rotateLeft(entry);
+            }
+            entry.update();
+            return entry;
+        }
+
+        private static <E> Entry<E> rotateLeft(final Entry<E> entry) {
+            final Entry<E> right = entry.right;
+            entry.right = right.left;
+            right.left = entry;
+            entry.update();
+            right.update();
+            return right;
+        }
+
+        private static <E> Entry<E> rotateRight(final Entry<E> entry) {
+            final Entry<E> left = entry.left;
+            entry.left = left.right;
+            left.right = entry;
+            entry.update();
+            left.update();
+            return left;
+        }
+
+        private static int size(final Entry<?> entry) {
+            return entry == null ? 0 : entry.size;
+        }
+
+        private static int height(final Entry<?> entry) {
+            return entry == null ? 0 : entry.height;
+        }
+
+        /**
+         * Used for tests.
+         */
+        void assertConsistent() {
+            assertConsistent(root);
+        }
+
+        private static <E> void assertConsistent(final Entry<E> entry) {
+            if (entry == null) {
+                return;
+            }
+            assertConsistent(entry.left);
+            assertConsistent(entry.right);
+            assert(entry.size == size(entry.left) + size(entry.right) + 1);
+            assert(entry.height == Math.max(height(entry.left), height(entry.right)) + 1);
+            assert(Math.abs(height(entry.left) - height(entry.right)) <= 1);
+            assert(entry.left == null || entry.left.node.compareOrder(entry.node) < 0);
+            assert(entry.right == null || entry.right.node.compareOrder(entry.node) > 0);
+        }
+
+        /**
+         * Entry of the tree.
+         */
+        private static final class Entry<E> {
+            private AVLNode<E> node;
+            private Entry<E> left;
+            private Entry<E> right;
+            private int size;
+            private int height;
+
+            private Entry(final AVLNode<E> node) {
+                this.node = node;
+                this.size = 1;
+                this.height = 1;
+            }
+
+            private void update() {
+                size = NodeTree.size(left) + NodeTree.size(right) + 1;
+                height = Math.max(NodeTree.height(left), NodeTree.height(right)) + 1;
+            }
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Builder of {@link IndexedTreeList}. Collected elements are linked into balanced tree at once
+     * in O(n) instead of inserting them one by one.
+     *
+     * @param <E> the type of elements
+     */
+    public static class Builder<E> {
+
+        private final ArrayList<E> elements = new ArrayList<>();
+        private Map map;
+        private boolean lazyIndex;
+
+        private Builder() {
+        }
+
+        /**
+         * Set Map implementation. It defines how elements would be compared. Specified map should be empty.
+         * By default HashMap of expected size is used.
+         *
+         * @param map Map implementation
+         * @return this builder
+         */
+        public Builder<E> map(final Map map) {
+            this.map = map;
+            return this;
+        }
+
+        /**
+         * Build a list with lazy index, see {@link IndexedTreeList#setLazyIndex(boolean)}.
+         *
+         * @param enabled true to enable lazy index
+         * @return this builder
+         */
+        public Builder<E> lazyIndex(final boolean enabled) {
+            this.lazyIndex = enabled;
+            return this;
+        }
+
+        /**
+         * Set expected amount of elements to avoid resizing of internal buffers.
+         *
+         * @param expectedSize expected amount of elements
+         * @return this builder
+         */
+        public Builder<E> expectedSize(final int expectedSize) {
+            elements.ensureCapacity(expectedSize);
+            return this;
+        }
+
+        /**
+         * Add an element to the end of a list.
+         *
+         * @param e element to add
+         * @return this builder
+         */
+        public Builder<E> add(final E e) {
+            elements.add(e);
+            return this;
+        }
+
+        /**
+         * Add all elements to the end of a list.
+         *
+         * @param coll elements to add
+         * @return this builder
+         */
+        public Builder<E> addAll(final Collection<? extends E> coll) {
+            elements.addAll(coll);
+            return this;
+        }
+
+        /**
+         * Build a list from collected elements.
+         *
+         * @return new list
+         */
+        public IndexedTreeList<E> build() {
+            final Map nodeMap = map != null ? map : new HashMap<>(Math.max((int) (elements.size() / .75f) + 1, 16));
+            final IndexedTreeList<E> list = new IndexedTreeList<>(nodeMap);
+            list.setLazyIndex(lazyIndex);
+            list.buildFrom(elements.toArray());
+            return list;
         }
     }
 
@@ -43,6 +43,11 @@ import java.util.*;
  * but will eliminate problems with hash collisions and hash table resizing.
  * </p>
  * <p>
+ * If list is created with {@link HashingStrategy}, then it uses it's own hash index instead of Map.
+ * Nodes of the tree are entries of hash table, so there is one object less per element and lookup
+ * reads the node directly. Nodes of such list don't cache their positions.
+ * </p>
+ * <p>
  * Objects equality is checked by Map, so objects should be immutable for Map
  * consistency.
  * </p>
@@ -64,7 +69,7 @@ import java.util.*;
 public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements Set<E> {
 
     /** Map from element to it's node or nodes */
-    protected final Map<E, AVLNode> nodeMap;
+    protected Map<E, AVLNode<E>> nodeMap;
 
     //-----------------------------------------------------------------------
     /**
@@ -90,7 +95,7 @@ public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements
      * @throws NullPointerException if the collection is null
      */
     public IndexedTreeListSet(final Collection<? extends E> coll) {
-        this(coll, new HashMap<>());
+        this(coll, new HashMap<>(Math.max((int) (coll.size() / .75f) + 1, 16)));
     }
 
     /**
@@ -103,9 +108,41 @@ public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements
      */
     public IndexedTreeListSet(final Collection<? extends E> coll, final Map map) {
         this.nodeMap = map;
-        for (E e : coll) {
-            add(e);
-        }
+        buildFrom(coll.toArray());
+    }
+
+    /**
+     * Constructs a new empty list which uses it's own hash index with nodes as entries of hash table.
+     *
+     * @param strategy defines how elements are hashed and compared,
+     *                 e.g. {@link HashingStrategy#defaultStrategy()} compares them as HashMap
+     * @throws NullPointerException if the strategy is null
+     */
+    public IndexedTreeListSet(final HashingStrategy<? super E> strategy) {
+        this.nodeMap = new NodeHashIndex<>(strategy);
+    }
+
+    /**
+     * Constructs a new list that copies the specified collection. List uses it's own hash index
+     * with nodes as entries of hash table.
+     *
+     * @param coll The collection to copy
+     * @param strategy defines how elements are hashed and compared
+     * @throws NullPointerException if the collection or the strategy is null
+     */
+    public IndexedTreeListSet(final Collection<? extends E> coll, final HashingStrategy<? super E> strategy) {
+        this.nodeMap = new NodeHashIndex<>(strategy, coll.size());
+        buildFrom(coll.toArray());
+    }
+
+    /**
+     * Creates a builder which collects elements and builds a list in O(n).
+     *
+     * @param <E> the type of elements
+     * @return new builder
+     */
+    public static <E> Builder<E> builder() {
+        return new Builder<>();
     }
 
     //-----------------------------------------------------------------------
@@ -118,11 +155,13 @@ public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements
      */
     @Override
     public int indexOf(final Object object) {
-        AVLNode node = nodeMap.get(object);
+        AVLNode<E> node = nodeMap.get(object);
         if (node == null) {
             return -1;
         }
-        return node.getPosition();
+        final int position = positionOf(node);
+        accessed(node);
+        return position;
     }
 
     /**
@@ -149,6 +188,109 @@ public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements
         return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
     }
 
+    /**
+     * Splits this list at specified index. Elements from index to the end of the list are moved to a new list,
+     * this list keeps elements before index. Tree is split in O(log n) and nodeMap entries are moved for
+     * the smaller part only. Map of the same kind is created for new list.
+     *
+     * @param index index of the first element of new list
+     * @return new list with elements from index to the end of this list
+     * @throws IndexOutOfBoundsException if the index is invalid
+     * @throws UnsupportedOperationException if map of the same kind can't be created
+     */
+    public IndexedTreeListSet<E> splitAt(final int index) {
+        final IndexedTreeListSet<E> tail = new IndexedTreeListSet<>(newNodeMapLike());
+        splitTo(index, tail, true);
+        return tail;
+    }
+
+    /**
+     * Splits this list at specified index. Elements from index to the end of the list are moved to a new list,
+     * this list keeps elements before index.
+     *
+     * @param index index of the first element of new list
+     * @param map Map implementation for new list. Specified map should be empty.
+     * @return new list with elements from index to the end of this list
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public IndexedTreeListSet<E> splitAt(final int index, final Map map) {
+        final IndexedTreeListSet<E> tail = new IndexedTreeListSet<>(map);
+        splitTo(index, tail, false);
+        return tail;
+    }
+
+    /**
+     * Appends all elements of other list to the end of this list, other list becomes empty.
+     * Elements which are already contained in this list are skipped.
+     * Trees are joined in O(log n), uniqueness is checked and nodeMap entries are moved for the smaller list only,
+     * so overall complexity is O(log n + min(n, m)) where m is size of other list.
+     * If this list uses hash index and other one doesn't, then elements of other list are copied in O(m).
+     *
+     * @param other list to append, it becomes empty
+     * @throws IllegalArgumentException if other list is this list
+     */
+    public void concat(final IndexedTreeListSet<E> other) {
+        final boolean sameMapKind = isSameMapKind(nodeMap, other.nodeMap)
+                && (!(nodeMap instanceof NodeHashIndex) || ((NodeHashIndex<E>) nodeMap).getStrategy()
+                        .equals(((NodeHashIndex<E>) other.nodeMap).getStrategy()));
+        if (other != this) {
+            final List<E> duplicates = new ArrayList<>();
+            if (sameMapKind && size() < other.size()) {
+                for (E e : nodeMap.keySet()) {
+                    if (other.nodeMap.containsKey(e)) {
+                        duplicates.add(e);
+                    }
+                }
+            } else {
+                for (E e : other.nodeMap.keySet()) {
+                    if (nodeMap.containsKey(e)) {
+                        duplicates.add(e);
+                    }
+                }
+            }
+            for (E e : duplicates) {
+                other.remove(e);
+            }
+            if (nodeMap instanceof NodeHashIndex && !(other.nodeMap instanceof NodeHashIndex)) {
+                // nodes of other list can't be entries of hash index
+                addAll(other);
+                other.clear();
+                return;
+            }
+        }
+        concatFrom(other, sameMapKind);
+    }
+
+    /**
+     * Moves elements in range [fromIndex, toIndex) to a new list. Map of the same kind is created for new list.
+     * Complexity is O(k + log n) where k is amount of moved elements.
+     *
+     * @param fromIndex index of first element to be moved
+     * @param toIndex index after last element to be moved
+     * @return new list with moved elements
+     * @throws IndexOutOfBoundsException if range is invalid
+     * @throws UnsupportedOperationException if map of the same kind can't be created
+     */
+    public IndexedTreeListSet<E> extract(final int fromIndex, final int toIndex) {
+        return extract(fromIndex, toIndex, newNodeMapLike());
+    }
+
+    /**
+     * Moves elements in range [fromIndex, toIndex) to a new list.
+     * Complexity is O(k + log n) where k is amount of moved elements.
+     *
+     * @param fromIndex index of first element to be moved
+     * @param toIndex index after last element to be moved
+     * @param map Map implementation for new list. Specified map should be empty.
+     * @return new list with moved elements
+     * @throws IndexOutOfBoundsException if range is invalid
+     */
+    public IndexedTreeListSet<E> extract(final int fromIndex, final int toIndex, final Map map) {
+        final IndexedTreeListSet<E> target = new IndexedTreeListSet<>(map);
+        extractTo(fromIndex, toIndex, target);
+        return target;
+    }
+
     /**
      * Searches for the presence of an object in the list.
      *
@@ -190,6 +332,19 @@ public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements
         nodeMap.clear();
     }
 
+    /**
+     * Append buffer is not supported, as uniqueness of appended element can't be checked without nodeMap.
+     *
+     * @param capacity maximal amount of buffered elements, 0 to disable append buffer
+     * @throws UnsupportedOperationException if capacity is not 0
+     */
+    @Override
+    public void setAppendBuffer(final int capacity) {
+        if (capacity != 0) {
+            throw new UnsupportedOperationException("Append buffer is not supported by IndexedTreeListSet");
+        }
+    }
+
     /**
      * Check if set does not contains an object.
      */
@@ -201,20 +356,415 @@ public class IndexedTreeListSet<E> extends AbstractIndexedTreeList<E> implements
         return !nodeMap.containsKey(e);
     }
 
+    /**
+     * Add nodes of bulk inserted elements to nodeMap skipping duplicates, so each element is hashed once.
+     */
+    @Override
+    protected int acceptNodes(final AVLNode<E>[] nodes, final int count) {
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            if (nodeMap.putIfAbsent(nodes[i].getValue(), nodes[i]) == null) {
+                nodes[accepted++] = nodes[i];
+            }
+        }
+        Arrays.fill(nodes, accepted, count, null);
+        return accepted;
+    }
+
+    /**
+     * Nodes are already added to nodeMap by {@link #acceptNodes(AVLNode[], int)}.
+     */
+    @Override
+    protected void addNodes(final AVLNode<E>[] nodes, final int count) {
+    }
+
     /**
      * Add node to nodeMap.
      */
     @Override
-    protected void addNode(AVLNode node) {
+    protected void addNode(AVLNode<E> node) {
         nodeMap.put(node.getValue(), node);
     }
 
     /**
-     * Remove node from nodeMap.
+     * Remove node from nodeMap. Node is unlinked from hash index without hashing it's value.
      */
     @Override
-    protected void removeNode(AVLNode node) {
-        nodeMap.remove(node.getValue());
+    protected void removeNode(AVLNode<E> node) {
+        if (nodeMap instanceof NodeHashIndex) {
+            ((NodeHashIndex<E>) nodeMap).unlink((HashedNode<E>) node);
+        } else {
+            nodeMap.remove(node.getValue());
+        }
+    }
+
+    /**
+     * Get node of the first element equal to specified object from nodeMap.
+     */
+    @Override
+    protected AVLNode<E> getFirstNode(final Object object) {
+        return nodeMap.get(object);
+    }
+
+    /**
+     * Increase capacity of nodeMap, if it's possible for map implementation.
+     */
+    @Override
+    protected void ensureNodeMapCapacity(final int minCapacity) {
+        if (nodeMap instanceof NodeHashIndex) {
+            ((NodeHashIndex<E>) nodeMap).ensureCapacity(minCapacity);
+        } else {
+            nodeMap = withCapacity(nodeMap, minCapacity);
+        }
+    }
+
+    /**
+     * Nodes of hash index are entries of hash table.
+     */
+    @Override
+    protected AVLNode<E> createNode() {
+        return nodeMap instanceof NodeHashIndex ? new HashedNode<>() : super.createNode();
+    }
+
+    /**
+     * Create new empty map of the same kind as nodeMap, hash index is created with the same hashing strategy.
+     *
+     * @return new empty map
+     * @throws UnsupportedOperationException if map of the same kind can't be created
+     */
+    private Map newNodeMapLike() {
+        if (nodeMap instanceof NodeHashIndex) {
+            return new NodeHashIndex<>(((NodeHashIndex<E>) nodeMap).getStrategy());
+        }
+        return newMapLike(nodeMap);
+    }
+
+    /**
+     * Swap nodeMap with other list.
+     */
+    @Override
+    protected void swapNodeMap(final AbstractIndexedTreeList<E> other) {
+        final IndexedTreeListSet<E> list = (IndexedTreeListSet<E>) other;
+        final Map<E, AVLNode<E>> map = nodeMap;
+        nodeMap = list.nodeMap;
+        list.nodeMap = map;
+    }
+
+    /**
+     * Used for tests.
+     */
+    @Override
+    void assertConsistent() {
+        super.assertConsistent();
+        assert(nodeMap.size() == size());
+        for (E value : this) {
+            assert(nodeMap.get(value).getValue() == value);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Node which is an entry of {@link NodeHashIndex}, it keeps hash of it's value and the next node of the chain.
+     */
+    static final class HashedNode<E> extends AVLNode<E> {
+        /** Hash of the value computed by hashing strategy of the index. */
+        private int hash;
+        /** The next node of hash table chain. */
+        private HashedNode<E> nextInChain;
+    }
+
+    /**
+     * Hash index which uses nodes of the list as entries of hash table, so there are no entry objects and
+     * lookup reads nodes directly. Equality of elements is defined by {@link HashingStrategy}.
+     * It's a Map only to be used as nodeMap, values should be {@link HashedNode}s holding their keys.
+     */
+    static final class NodeHashIndex<E> extends AbstractMap<E, AVLNode<E>> {
+
+        private static final int DEFAULT_CAPACITY = 16;
+
+        private final HashingStrategy<? super E> strategy;
+        private HashedNode<E>[] table;
+        private int size;
+
+        NodeHashIndex(final HashingStrategy<? super E> strategy) {
+            this(strategy, DEFAULT_CAPACITY);
+        }
+
+        NodeHashIndex(final HashingStrategy<? super E> strategy, final int expectedSize) {
+            this.strategy = Objects.requireNonNull(strategy);
+            this.table = newTable(tableSizeFor(expectedSize));
+        }
+
+        HashingStrategy<? super E> getStrategy() {
+            return strategy;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public AVLNode<E> get(final Object key) {
+            // strategy may fail on keys of other types, as Comparator of TreeMap does
+            @SuppressWarnings("unchecked")
+            final E element = (E) key;
+            final int hash = hash(element);
+            for (HashedNode<E> node = table[hash & (table.length - 1)]; node != null; node = node.nextInChain) {
+                if (node.hash == hash && strategy.equals(element, node.getValue())) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public AVLNode<E> put(final E key, final AVLNode<E> value) {
+            final AVLNode<E> old = remove(key);
+            putIfAbsent(key, value);
+            return old;
+        }
+
+        @Override
+        public AVLNode<E> putIfAbsent(final E key, final AVLNode<E> value) {
+            final int hash = hash(key);
+            final int index = hash & (table.length - 1);
+            for (HashedNode<E> node = table[index]; node != null; node = node.nextInChain) {
+                if (node.hash == hash && strategy.equals(key, node.getValue())) {
+                    return node;
+                }
+            }
+            final HashedNode<E> node = (HashedNode<E>) value;
+            node.hash = hash;
+            node.nextInChain = table[index];
+            table[index] = node;
+            if (++size > table.length - (table.length >>> 2)) {
+                resize(table.length << 1);
+            }
+            return null;
+        }
+
+        @Override
+        public AVLNode<E> remove(final Object key) {
+            final AVLNode<E> node = get(key);
+            if (node != null) {
+                unlink((HashedNode<E>) node);
+            }
+            return node;
+        }
+
+        /**
+         * Remove node from the index, hash of node is not computed again.
+         *
+         * @param node node of the index
+         */
+        void unlink(final HashedNode<E> node) {
+            final int index = node.hash & (table.length - 1);
+            HashedNode<E> previous = null;
+            HashedNode<E> current = table[index];
+            while (current != node) {
+                if (current == null) {
+                    return;
+                }
+                previous = current;
+                current = current.nextInChain;
+            }
+            if (previous == null) {
+                table[index] = node.nextInChain;
+            } else {
+                previous.nextInChain = node.nextInChain;
+            }
+            node.nextInChain = null;
+            size--;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(table, null);
+            size = 0;
+        }
+
+        /**
+         * Increase size of hash table, so specified amount of elements can be added without resizing.
+         *
+         * @param minCapacity the desired minimum capacity
+         */
+        void ensureCapacity(final int minCapacity) {
+            final int tableSize = tableSizeFor(minCapacity);
+            if (tableSize > table.length) {
+                resize(tableSize);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> HashedNode<E>[] newTable(final int tableSize) {
+            return (HashedNode<E>[]) new HashedNode<?>[tableSize];
+        }
+
+        private void resize(final int tableSize) {
+            final HashedNode<E>[] oldTable = table;
+            table = newTable(tableSize);
+            for (HashedNode<E> node : oldTable) {
+                while (node != null) {
+                    final HashedNode<E> next = node.nextInChain;
+                    final int index = node.hash & (tableSize - 1);
+                    node.nextInChain = table[index];
+                    table[index] = node;
+                    node = next;
+                }
+            }
+        }
+
+        private int hash(final E key) {
+            final int hash = strategy.hashCode(key);
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Get power of 2 table size which can hold specified amount of elements with load factor 0.75.
+         */
+        private static int tableSizeFor(final int expectedSize) {
+            final int minSize = (int) Math.min((expectedSize * 4L + 2) / 3, 1 << 30);
+            return Math.max(Integer.highestOneBit(Math.max(minSize - 1, 1)) << 1, DEFAULT_CAPACITY);
+        }
+
+        @Override
+        public Set<Entry<E, AVLNode<E>>> entrySet() {
+            return new AbstractSet<Entry<E, AVLNode<E>>>() {
+                @Override
+                public Iterator<Entry<E, AVLNode<E>>> iterator() {
+                    return new Iterator<Entry<E, AVLNode<E>>>() {
+                        private int index = 0;
+                        private HashedNode<E> next = advance(null);
+
+                        private HashedNode<E> advance(final HashedNode<E> node) {
+                            if (node != null && node.nextInChain != null) {
+                                return node.nextInChain;
+                            }
+                            while (index < table.length) {
+                                if (table[index++] != null) {
+                                    return table[index - 1];
+                                }
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<E, AVLNode<E>> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            final HashedNode<E> node = next;
+                            next = advance(node);
+                            return new SimpleImmutableEntry<>(node.getValue(), node);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Builder of {@link IndexedTreeListSet}. Collected elements are linked into balanced tree at once
+     * in O(n) instead of inserting them one by one.
+     *
+     * @param <E> the type of elements
+     */
+    public static class Builder<E> {
+
+        private final ArrayList<E> elements = new ArrayList<>();
+        private Map map;
+        private HashingStrategy<? super E> strategy;
+
+        private Builder() {
+        }
+
+        /**
+         * Set Map implementation. It defines how elements would be compared. Specified map should be empty.
+         * By default HashMap of expected size is used.
+         *
+         * @param map Map implementation
+         * @return this builder
+         */
+        public Builder<E> map(final Map map) {
+            this.map = map;
+            this.strategy = null;
+            return this;
+        }
+
+        /**
+         * Use list's own hash index with specified hashing strategy instead of Map.
+         *
+         * @param strategy defines how elements are hashed and compared
+         * @return this builder
+         */
+        public Builder<E> hashingStrategy(final HashingStrategy<? super E> strategy) {
+            this.strategy = Objects.requireNonNull(strategy);
+            this.map = null;
+            return this;
+        }
+
+        /**
+         * Set expected amount of elements to avoid resizing of internal buffers.
+         *
+         * @param expectedSize expected amount of elements
+         * @return this builder
+         */
+        public Builder<E> expectedSize(final int expectedSize) {
+            elements.ensureCapacity(expectedSize);
+            return this;
+        }
+
+        /**
+         * Add an element to the end of a list.
+         *
+         * @param e element to add
+         * @return this builder
+         */
+        public Builder<E> add(final E e) {
+            elements.add(e);
+            return this;
+        }
+
+        /**
+         * Add all elements to the end of a list.
+         *
+         * @param coll elements to add
+         * @return this builder
+         */
+        public Builder<E> addAll(final Collection<? extends E> coll) {
+            elements.addAll(coll);
+            return this;
+        }
+
+        /**
+         * Build a list from collected elements.
+         *
+         * @return new list
+         */
+        public IndexedTreeListSet<E> build() {
+            final Map nodeMap = strategy != null ? new NodeHashIndex<>(strategy, elements.size())
+                    : map != null ? map : new HashMap<>(Math.max((int) (elements.size() / .75f) + 1, 16));
+            final IndexedTreeListSet<E> list = new IndexedTreeListSet<>(nodeMap);
+            list.buildFrom(elements.toArray());
+            return list;
+        }
     }
 
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from int key to non-zero int value, it's used to map elements of primitive lists
+ * to their node ids. Keys are not boxed, collisions are resolved by linear probing and removal shifts
+ * following entries back, so there are no tombstones. Value 0 means empty slot.
+ *
+ * @author Aleksandr Maksymenko
+ */
+final class IntIndexMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** Maximal amount of bits of table index, bigger table is filled over load factor. */
+    private static final int MAX_BITS = 29;
+
+    /** Key and value of slot i are kept next to each other at 2 * i and 2 * i + 1, so a probe reads one cache line. */
+    private int[] table;
+    private int size;
+    /** Amount of bits of table index, table has 2 ^ bits slots. */
+    private int bits;
+
+    IntIndexMap(final int expectedSize) {
+        allocate(tableBits(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get value of a key.
+     *
+     * @param key the key
+     * @return value of the key, 0 if there is no such key
+     */
+    int get(final int key) {
+        final int[] table = this.table;
+        final int mask = table.length - 1;
+        for (int i = slot(key); table[i + 1] != 0; i = (i + 2) & mask) {
+            if (table[i] == key) {
+                return table[i + 1];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Set value of a key.
+     *
+     * @param key the key
+     * @param value non-zero value
+     * @return previous value of the key, 0 if there was no such key
+     */
+    int put(final int key, final int value) {
+        final int mask = table.length - 1;
+        int i = slot(key);
+        while (table[i + 1] != 0) {
+            if (table[i] == key) {
+                final int previous = table[i + 1];
+                table[i + 1] = value;
+                return previous;
+            }
+            i = (i + 2) & mask;
+        }
+        table[i] = key;
+        table[i + 1] = value;
+        if (++size > maxSize() && bits < MAX_BITS) {
+            rehash(bits + 1);
+        }
+        return 0;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key the key
+     * @return value of removed key, 0 if there was no such key
+     */
+    int remove(final int key) {
+        final int mask = table.length - 1;
+        int i = slot(key);
+        while (table[i + 1] != 0 && table[i] != key) {
+            i = (i + 2) & mask;
+        }
+        final int removed = table[i + 1];
+        if (removed == 0) {
+            return 0;
+        }
+        // shift back entries which can't be found after the hole
+        for (int j = (i + 2) & mask; table[j + 1] != 0; j = (j + 2) & mask) {
+            if (((j - slot(table[j])) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[i + 1] = table[j + 1];
+                i = j;
+            }
+        }
+        table[i + 1] = 0;
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    /**
+     * Increase size of hash table, so specified amount of keys can be added without rehashing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    void ensureCapacity(final int minCapacity) {
+        final int minBits = tableBits(minCapacity);
+        if (minBits > bits) {
+            rehash(minBits);
+        }
+    }
+
+    /**
+     * Get position of the key in the table for a key, it's always even.
+     */
+    private int slot(final int key) {
+        return ((key * 0x9E3779B9) >>> (32 - bits)) << 1;
+    }
+
+    private int maxSize() {
+        final int slots = 1 << bits;
+        return slots - (slots >>> 2);
+    }
+
+    private void allocate(final int tableBits) {
+        bits = tableBits;
+        table = new int[2 << tableBits];
+    }
+
+    private void rehash(final int tableBits) {
+        final int[] oldTable = table;
+        allocate(tableBits);
+        final int mask = table.length - 1;
+        for (int j = 0; j < oldTable.length; j += 2) {
+            if (oldTable[j + 1] != 0) {
+                int i = slot(oldTable[j]);
+                while (table[i + 1] != 0) {
+                    i = (i + 2) & mask;
+                }
+                table[i] = oldTable[j];
+                table[i + 1] = oldTable[j + 1];
+            }
+        }
+    }
+
+    /**
+     * Get amount of bits of table index which can hold specified amount of keys with load factor 0.75.
+     */
+    private static int tableBits(final int expectedSize) {
+        final long minLength = Math.max((expectedSize * 4L + 2) / 3, MIN_CAPACITY);
+        return Math.min(64 - Long.numberOfLeadingZeros(minLength - 1), MAX_BITS);
+    }
+}
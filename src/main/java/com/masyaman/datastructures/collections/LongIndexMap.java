@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long key to non-zero int value, it's used to map elements of primitive lists
+ * to their node ids. Keys are not boxed, collisions are resolved by linear probing and removal shifts
+ * following entries back, so there are no tombstones. Value 0 means empty slot.
+ *
+ * @author Aleksandr Maksymenko
+ */
+final class LongIndexMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** Maximal amount of bits of table index, bigger table is filled over load factor. */
+    private static final int MAX_BITS = 30;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    /** Amount of bits of table index, table length is 2 ^ bits. */
+    private int bits;
+
+    LongIndexMap(final int expectedSize) {
+        allocate(tableBits(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get value of a key.
+     *
+     * @param key the key
+     * @return value of the key, 0 if there is no such key
+     */
+    int get(final long key) {
+        final int mask = keys.length - 1;
+        for (int i = slot(key); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Set value of a key.
+     *
+     * @param key the key
+     * @param value non-zero value
+     * @return previous value of the key, 0 if there was no such key
+     */
+    int put(final long key, final int value) {
+        final int mask = keys.length - 1;
+        int i = slot(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                final int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > maxSize() && bits < MAX_BITS) {
+            rehash(bits + 1);
+        }
+        return 0;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key the key
+     * @return value of removed key, 0 if there was no such key
+     */
+    int remove(final long key) {
+        final int mask = keys.length - 1;
+        int i = slot(key);
+        while (values[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        final int removed = values[i];
+        if (removed == 0) {
+            return 0;
+        }
+        // shift back entries which can't be found after the hole
+        for (int j = (i + 1) & mask; values[j] != 0; j = (j + 1) & mask) {
+            if (((j - slot(keys[j])) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = 0;
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Increase size of hash table, so specified amount of keys can be added without rehashing.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    void ensureCapacity(final int minCapacity) {
+        final int minBits = tableBits(minCapacity);
+        if (minBits > bits) {
+            rehash(minBits);
+        }
+    }
+
+    private int slot(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    private int maxSize() {
+        return keys.length - (keys.length >>> 2);
+    }
+
+    private void allocate(final int tableBits) {
+        bits = tableBits;
+        keys = new long[1 << tableBits];
+        values = new int[1 << tableBits];
+    }
+
+    private void rehash(final int tableBits) {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(tableBits);
+        final int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != 0) {
+                int i = slot(oldKeys[j]);
+                while (values[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Get amount of bits of table index which can hold specified amount of keys with load factor 0.75.
+     */
+    private static int tableBits(final int expectedSize) {
+        final long minLength = Math.max((expectedSize * 4L + 2) / 3, MIN_CAPACITY);
+        return Math.min(64 - Long.numberOfLeadingZeros(minLength - 1), MAX_BITS);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.masyaman.datastructures.collections;
+
+/**
+ * Balancing discipline of the tree used by {@link IndexedTreeList} and {@link IndexedTreeListSet}.
+ * It doesn't change behaviour of a list, only it's performance characteristics.
+ *
+ * @author Aleksandr Maksymenko
+ */
+public enum TreeBalancing {
+
+    /**
+     * Strict AVL tree, it's rebalanced on every insertion and removal. Height is at most 1.44 * log2(n),
+     * this is the best choice for uniform access.
+     */
+    AVL(true, true, false, false),
+
+    /**
+     * AVL rebalancing on insertion only, removal just updates heights (deletion without rebalancing).
+     * It does no rotations on removal, height is bounded by O(log m) where m is amount of insertions.
+     * The whole tree is rebuilt in O(n) if it's height becomes greater than 2 * log2(n) + 2,
+     * so it's suitable for delete-heavy traffic.
+     */
+    RELAXED(true, false, false, true),
+
+    /**
+     * Self-adjusting splay tree. Accessed node is moved to the root on get, set, indexOf and insertion,
+     * so recently used positions are found in a few steps. Operations are O(log n) amortized,
+     * but single operation can take O(n), and reading operations modify the tree structure,
+     * so list should not be read concurrently even without modifications.
+     */
+    SPLAY(false, false, true, false);
+
+    private final boolean rotatesOnInsert;
+    private final boolean rotatesOnRemove;
+    private final boolean splaysOnAccess;
+    private final boolean rebuildsWhenHigh;
+
+    TreeBalancing(final boolean rotatesOnInsert, final boolean rotatesOnRemove,
+                  final boolean splaysOnAccess, final boolean rebuildsWhenHigh) {
+        this.rotatesOnInsert = rotatesOnInsert;
+        this.rotatesOnRemove = rotatesOnRemove;
+        this.splaysOnAccess = splaysOnAccess;
+        this.rebuildsWhenHigh = rebuildsWhenHigh;
+    }
+
+    /**
+     * Check if nodes are rotated while walking up after insertion.
+     */
+    boolean rotatesOnInsert() {
+        return rotatesOnInsert;
+    }
+
+    /**
+     * Check if nodes are rotated while walking up after removal.
+     */
+    boolean rotatesOnRemove() {
+        return rotatesOnRemove;
+    }
+
+    /**
+     * Check if accessed and inserted nodes are moved to the root.
+     */
+    boolean splaysOnAccess() {
+        return splaysOnAccess;
+    }
+
+    /**
+     * Check if the tree is rebuilt when it becomes too high.
+     */
+    boolean rebuildsWhenHigh() {
+        return rebuildsWhenHigh;
+    }
+}
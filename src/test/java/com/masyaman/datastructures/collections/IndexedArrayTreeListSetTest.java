@@ -0,0 +1,277 @@
+package com.masyaman.datastructures.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(Parameterized.class)
+public class IndexedArrayTreeListSetTest {
+
+    private Random random;
+    private Set<String> elementsSet;
+    private List<String> elementsList;
+
+    private IndexedArrayTreeListSet<String> testListSet;
+
+    private int seed;
+    private int iterations;
+
+    public IndexedArrayTreeListSetTest(int seed, int iterations) {
+        this.seed = seed;
+        this.iterations = iterations;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(seed);
+        elementsSet = new HashSet<>();
+        elementsList = new ArrayList<>();
+        testListSet = new IndexedArrayTreeListSet<>();
+    }
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection parameters() {
+        return Arrays.asList(new Object[][] {
+                {9999, 1},
+                {9999, 2},
+                {9999, 3},
+                {9999, 4},
+                {9999, 5},
+                {9999, 10},
+                {9999, 100},
+                {9999, 1000},
+//                {9999, 10000},
+        });
+    }
+
+    @Test
+    public void addToTail() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            String value = addRandom(elementsList.size());
+            assertThat(testListSet.add(value)).isTrue();
+            assertThat(testListSet.add(value)).isFalse();
+        }
+        assertReference();
+    }
+
+    @Test
+    public void addToMiddle() throws Exception {
+        init();
+        assertReference();
+    }
+
+    @Test
+    public void getAndIndexOf() throws Exception {
+        init();
+        for (int i = 0; i < elementsList.size(); i++) {
+            String value = elementsList.get(i);
+            assertThat(testListSet.get(i)).isEqualTo(value);
+            assertThat(testListSet.indexOf(value)).isEqualTo(i);
+            assertThat(testListSet.lastIndexOf(value)).isEqualTo(i);
+            assertThat(testListSet.contains(value)).isTrue();
+        }
+        String missing = getRandomNotExisting();
+        assertThat(testListSet.indexOf(missing)).isEqualTo(-1);
+        assertThat(testListSet.contains(missing)).isFalse();
+        assertThat(testListSet.contains(null)).isFalse();
+        assertThat(testListSet.contains(1)).isFalse();
+        try {
+            testListSet.get(elementsList.size());
+            fail("No exception on invalid index");
+        } catch (IndexOutOfBoundsException e) {}
+    }
+
+    @Test
+    public void addRemoveRandom() throws Exception {
+        init();
+        for (int i = 0; i < iterations * 4; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    int index = random.nextInt(elementsList.size() + 1);
+                    testListSet.add(index, addRandom(index));
+                    break;
+                case 1:
+                    if (!elementsList.isEmpty()) {
+                        index = random.nextInt(elementsList.size());
+                        String removed = elementsList.remove(index);
+                        elementsSet.remove(removed);
+                        assertThat(testListSet.remove(index)).isEqualTo(removed);
+                    }
+                    break;
+                case 2:
+                    if (!elementsList.isEmpty()) {
+                        String value = elementsList.get(random.nextInt(elementsList.size()));
+                        elementsList.remove(value);
+                        elementsSet.remove(value);
+                        assertThat(testListSet.remove(value)).isTrue();
+                    }
+                    assertThat(testListSet.remove(getRandomNotExisting())).isFalse();
+                    break;
+                case 3:
+                    if (!elementsList.isEmpty()) {
+                        // existing value is moved like in IndexedTreeListSet
+                        index = random.nextInt(elementsList.size());
+                        String value = random.nextBoolean()
+                                ? elementsList.get(random.nextInt(elementsList.size())) : getRandomNotExisting();
+                        IndexedTreeListSet<String> reference = new IndexedTreeListSet<>(elementsList);
+                        String previous = reference.set(index, value);
+                        elementsList.clear();
+                        elementsList.addAll(reference);
+                        elementsSet.clear();
+                        elementsSet.addAll(reference);
+                        assertThat(testListSet.set(index, value)).isEqualTo(previous);
+                    }
+                    break;
+                default:
+                    String existing = elementsList.isEmpty() ? null : elementsList.get(0);
+                    if (existing != null) {
+                        index = random.nextInt(elementsList.size() + 1);
+                        testListSet.add(index, new String(existing));
+                        assertThat(testListSet.add(existing)).isFalse();
+                    }
+            }
+            assertReference();
+        }
+    }
+
+    @Test
+    public void iteratorRemove() throws Exception {
+        init();
+        Iterator<String> expected = elementsList.iterator();
+        Iterator<String> actual = testListSet.iterator();
+        while (expected.hasNext()) {
+            assertThat(actual.next()).isEqualTo(expected.next());
+            if (random.nextBoolean()) {
+                expected.remove();
+                actual.remove();
+            }
+        }
+        assertThat(actual.hasNext()).isFalse();
+        elementsSet.retainAll(elementsList);
+        assertReference();
+    }
+
+    @Test
+    public void constructors() {
+        init();
+        List<String> withDuplicates = new ArrayList<>(elementsList);
+        withDuplicates.addAll(elementsList);
+        IndexedArrayTreeListSet<String> fromCollection = new IndexedArrayTreeListSet<>(withDuplicates);
+        fromCollection.assertConsistent();
+        assertThat(fromCollection).isEqualTo(elementsList);
+        assertThat(elementsSet).isEqualTo(fromCollection);
+        try {
+            new IndexedArrayTreeListSet<>(Arrays.asList("a", null));
+            fail("No exception on adding null");
+        } catch (NullPointerException e) {}
+    }
+
+    @Test
+    public void hashCollisions() {
+        // "Aa" and "BB" have the same hash code, so all strings of them have the same one
+        List<String> colliding = new ArrayList<>();
+        for (int i = 0; i < Math.min(iterations, 256); i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int bit = 0; bit < 8; bit++) {
+                sb.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+            }
+            colliding.add(sb.toString());
+        }
+        Collections.shuffle(colliding, random);
+        for (String value : colliding) {
+            int index = random.nextInt(elementsList.size() + 1);
+            elementsList.add(index, value);
+            elementsSet.add(value);
+            testListSet.add(index, value);
+        }
+        assertReference();
+        for (String value : colliding) {
+            assertThat(testListSet.indexOf(value)).isEqualTo(elementsList.indexOf(value));
+            if (random.nextBoolean()) {
+                elementsList.remove(value);
+                elementsSet.remove(value);
+                assertThat(testListSet.remove(value)).isTrue();
+            }
+        }
+        assertReference();
+    }
+
+    @Test
+    public void addNull() {
+        init();
+        try {
+            testListSet.add(null);
+            fail("No exception on adding null");
+        } catch (NullPointerException e) {}
+        try {
+            testListSet.add(random.nextInt(elementsList.size() + 1), null);
+            fail("No exception on adding null");
+        } catch (NullPointerException e) {}
+        assertReference();
+    }
+
+    @Test
+    public void addAllToMiddle() {
+        init();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            values.add(random.nextBoolean() || elementsList.isEmpty()
+                    ? getRandomNotExisting() : elementsList.get(random.nextInt(elementsList.size())));
+        }
+        int index = random.nextInt(elementsList.size() + 1);
+        IndexedTreeListSet<String> reference = new IndexedTreeListSet<>(elementsList);
+        reference.addAll(index, values);
+        testListSet.addAll(index, values);
+        elementsList.clear();
+        elementsList.addAll(reference);
+        elementsSet.addAll(reference);
+        assertReference();
+    }
+
+    @Test
+    public void clear() {
+        init();
+        testListSet.clear();
+        elementsList.clear();
+        elementsSet.clear();
+        assertReference();
+        init();
+    }
+
+    private void init() {
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            testListSet.add(index, addRandom(index));
+        }
+        assertReference();
+    }
+
+    private String addRandom(int index) {
+        String value = getRandomNotExisting();
+        elementsSet.add(value);
+        elementsList.add(index, value);
+        return value;
+    }
+
+    private String getRandomNotExisting() {
+        while (true) {
+            String value = Integer.toString(random.nextInt());
+            if (!elementsSet.contains(value)) {
+                return value;
+            }
+        }
+    }
+
+    private void assertReference() {
+        assertThat(testListSet).hasSameSizeAs(elementsList);
+        assertThat(elementsSet).isEqualTo(testListSet);
+        assertThat(elementsList).isEqualTo(testListSet);
+        testListSet.assertConsistent();
+    }
+}
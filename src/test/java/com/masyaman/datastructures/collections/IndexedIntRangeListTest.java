@@ -0,0 +1,292 @@
+package com.masyaman.datastructures.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(Parameterized.class)
+public class IndexedIntRangeListTest {
+
+    private Random random;
+    private Set<Integer> elementsSet;
+    private List<Integer> elementsList;
+
+    private IndexedIntRangeList testList;
+
+    private int seed;
+    private int iterations;
+
+    public IndexedIntRangeListTest(int seed, int iterations) {
+        this.seed = seed;
+        this.iterations = iterations;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(seed);
+        elementsSet = new HashSet<>();
+        elementsList = new ArrayList<>();
+        testList = new IndexedIntRangeList();
+    }
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection parameters() {
+        return Arrays.asList(new Object[][] {
+                {9999, 1},
+                {9999, 2},
+                {9999, 3},
+                {9999, 4},
+                {9999, 5},
+                {9999, 10},
+                {9999, 100},
+                {9999, 1000},
+//                {9999, 10000},
+        });
+    }
+
+    @Test
+    public void addToTail() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            int value = getRandomNotExisting();
+            elementsList.add(value);
+            elementsSet.add(value);
+            assertThat(testList.add(value)).isTrue();
+            assertThat(testList.add(value)).isFalse();
+        }
+        assertReference();
+    }
+
+    @Test
+    public void addToMiddle() throws Exception {
+        init();
+        assertReference();
+    }
+
+    @Test
+    public void getAndIndexOf() throws Exception {
+        init();
+        for (int i = 0; i < elementsList.size(); i++) {
+            int value = elementsList.get(i);
+            assertThat(testList.getInt(i)).isEqualTo(value);
+            assertThat(testList.get(i)).isEqualTo(value);
+            assertThat(testList.indexOf(value)).isEqualTo(i);
+            assertThat(testList.indexOf((Object) value)).isEqualTo(i);
+            assertThat(testList.lastIndexOf((Object) value)).isEqualTo(i);
+            assertThat(testList.contains(value)).isTrue();
+        }
+        int missing = getRandomNotExisting();
+        assertThat(testList.indexOf(missing)).isEqualTo(-1);
+        assertThat(testList.contains(missing)).isFalse();
+        assertThat(testList.contains((Object) (long) missing)).isFalse();
+        try {
+            testList.getInt(elementsList.size());
+            fail("No exception on invalid index");
+        } catch (IndexOutOfBoundsException e) {}
+    }
+
+    @Test
+    public void addRemoveRandom() throws Exception {
+        init();
+        for (int i = 0; i < iterations * 4; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    addRandom();
+                    break;
+                case 1:
+                    if (!elementsList.isEmpty()) {
+                        int index = random.nextInt(elementsList.size());
+                        Integer removed = elementsList.remove(index);
+                        elementsSet.remove(removed);
+                        assertThat(testList.removeInt(index)).isEqualTo(removed);
+                    }
+                    break;
+                case 2:
+                    if (!elementsList.isEmpty()) {
+                        Integer value = elementsList.get(random.nextInt(elementsList.size()));
+                        elementsList.remove(value);
+                        elementsSet.remove(value);
+                        assertThat(testList.removeValue(value)).isTrue();
+                    }
+                    assertThat(testList.removeValue(getRandomNotExisting())).isFalse();
+                    break;
+                case 3:
+                    if (!elementsList.isEmpty()) {
+                        // existing value is moved like in IndexedTreeListSet
+                        int index = random.nextInt(elementsList.size());
+                        Integer value = random.nextBoolean()
+                                ? elementsList.get(random.nextInt(elementsList.size())) : getRandomNotExisting();
+                        IndexedTreeListSet<Integer> reference = new IndexedTreeListSet<>(elementsList);
+                        Integer previous = reference.set(index, value);
+                        elementsList.clear();
+                        elementsList.addAll(reference);
+                        elementsSet.clear();
+                        elementsSet.addAll(reference);
+                        assertThat(testList.setInt(index, value)).isEqualTo(previous);
+                    }
+                    break;
+                default:
+                    if (!elementsList.isEmpty()) {
+                        int existing = elementsList.get(random.nextInt(elementsList.size()));
+                        assertThat(testList.add(random.nextInt(elementsList.size() + 1), existing)).isFalse();
+                    }
+            }
+            assertReference();
+        }
+    }
+
+    @Test
+    public void ranges() {
+        int from = random.nextInt(1000);
+        for (int i = 0; i < iterations; i++) {
+            int to = from + random.nextInt(100) + 1;
+            for (int value = from; value < to; value++) {
+                elementsList.add(value);
+                elementsSet.add(value);
+            }
+            assertThat(testList.addRange(from, to)).isTrue();
+            assertThat(testList.addRange(from, to)).isFalse();
+            assertThat(testList.addRange(to, to)).isFalse();
+            // ranges are not consecutive, except sometimes
+            from = random.nextInt(4) == 0 ? to : to + random.nextInt(100) + 1;
+        }
+        assertReference();
+        assertThat(testList.runCount()).isLessThanOrEqualTo(iterations);
+        // overlapping range adds missing values only
+        int last = elementsList.get(elementsList.size() - 1);
+        testList.addRange(last - 10, last + 10);
+        for (int value = last - 10; value < last + 10; value++) {
+            if (elementsSet.add(value)) {
+                elementsList.add(value);
+            }
+        }
+        assertReference();
+        try {
+            testList.addRange(1, 0);
+            fail("No exception on invalid range");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void extremeValues() {
+        int[] values = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1};
+        for (int value : values) {
+            elementsList.add(value);
+            elementsSet.add(value);
+            testList.add(value);
+        }
+        assertReference();
+        assertThat(testList.runCount()).isEqualTo(4);
+        elementsList.remove((Integer) Integer.MIN_VALUE);
+        elementsSet.remove(Integer.MIN_VALUE);
+        testList.removeValue(Integer.MIN_VALUE);
+        elementsList.add(1, Integer.MIN_VALUE);
+        elementsSet.add(Integer.MIN_VALUE);
+        testList.add(1, Integer.MIN_VALUE);
+        assertReference();
+    }
+
+    @Test
+    public void iteratorRemove() throws Exception {
+        init();
+        Iterator<Integer> expected = elementsList.iterator();
+        Iterator<Integer> actual = testList.iterator();
+        while (expected.hasNext()) {
+            assertThat(actual.next()).isEqualTo(expected.next());
+            if (random.nextBoolean()) {
+                expected.remove();
+                actual.remove();
+            }
+        }
+        assertThat(actual.hasNext()).isFalse();
+        elementsSet.retainAll(elementsList);
+        assertReference();
+    }
+
+    @Test
+    public void constructors() {
+        init();
+        List<Integer> withDuplicates = new ArrayList<>(elementsList);
+        withDuplicates.addAll(elementsList);
+        IndexedIntRangeList fromCollection = new IndexedIntRangeList(withDuplicates);
+        fromCollection.assertConsistent();
+        assertThat(fromCollection).isEqualTo(elementsList);
+        assertThat(elementsSet).isEqualTo(fromCollection);
+        assertThat(fromCollection.runCount()).isEqualTo(testList.runCount());
+    }
+
+    @Test
+    public void addAllToMiddle() {
+        init();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            values.add(random.nextBoolean() || elementsList.isEmpty()
+                    ? getRandomNotExisting() : elementsList.get(random.nextInt(elementsList.size())));
+        }
+        int index = random.nextInt(elementsList.size() + 1);
+        IndexedTreeListSet<Integer> reference = new IndexedTreeListSet<>(elementsList);
+        reference.addAll(index, values);
+        testList.addAll(index, values);
+        elementsList.clear();
+        elementsList.addAll(reference);
+        elementsSet.addAll(reference);
+        assertReference();
+    }
+
+    @Test
+    public void clear() {
+        init();
+        testList.clear();
+        elementsList.clear();
+        elementsSet.clear();
+        assertReference();
+        init();
+    }
+
+    private void init() {
+        for (int i = 0; i < iterations; i++) {
+            addRandom();
+        }
+        assertReference();
+    }
+
+    /**
+     * Add random value, it's often added next to neighbour value, so runs are extended and merged.
+     */
+    private void addRandom() {
+        int value = getRandomNotExisting();
+        int index;
+        if (random.nextBoolean() && elementsSet.contains(value - 1)) {
+            index = elementsList.indexOf(value - 1) + 1;
+        } else if (random.nextBoolean() && elementsSet.contains(value + 1)) {
+            index = elementsList.indexOf(value + 1);
+        } else {
+            index = random.nextInt(elementsList.size() + 1);
+        }
+        elementsSet.add(value);
+        elementsList.add(index, value);
+        assertThat(testList.add(index, value)).isTrue();
+    }
+
+    private int getRandomNotExisting() {
+        while (true) {
+            int value = random.nextInt(iterations * 4 + 10);
+            if (!elementsSet.contains(value)) {
+                return value;
+            }
+        }
+    }
+
+    private void assertReference() {
+        assertThat(testList).hasSameSizeAs(elementsList);
+        assertThat(elementsSet).isEqualTo(testList);
+        assertThat(elementsList).isEqualTo(testList);
+        assertThat(testList.toIntArray()).containsExactly(elementsList.stream().mapToInt(i -> i).toArray());
+        testList.assertConsistent();
+    }
+}
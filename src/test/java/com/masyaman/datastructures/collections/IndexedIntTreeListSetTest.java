@@ -0,0 +1,234 @@
+package com.masyaman.datastructures.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(Parameterized.class)
+public class IndexedIntTreeListSetTest {
+
+    private Random random;
+    private Set<Integer> elementsSet;
+    private List<Integer> elementsList;
+
+    private IndexedIntTreeListSet testListSet;
+
+    private int seed;
+    private int iterations;
+
+    public IndexedIntTreeListSetTest(int seed, int iterations) {
+        this.seed = seed;
+        this.iterations = iterations;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(seed);
+        elementsSet = new HashSet<>();
+        elementsList = new ArrayList<>();
+        testListSet = new IndexedIntTreeListSet();
+    }
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection parameters() {
+        return Arrays.asList(new Object[][] {
+                {9999, 1},
+                {9999, 2},
+                {9999, 3},
+                {9999, 4},
+                {9999, 5},
+                {9999, 10},
+                {9999, 100},
+                {9999, 1000},
+//                {9999, 10000},
+        });
+    }
+
+    @Test
+    public void addToTail() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            int value = addRandom(elementsList.size());
+            assertThat(testListSet.add(value)).isTrue();
+            assertThat(testListSet.add(value)).isFalse();
+        }
+        assertReference();
+    }
+
+    @Test
+    public void addToMiddle() throws Exception {
+        init();
+        assertReference();
+    }
+
+    @Test
+    public void getAndIndexOf() throws Exception {
+        init();
+        for (int i = 0; i < elementsList.size(); i++) {
+            int value = elementsList.get(i);
+            assertThat(testListSet.getInt(i)).isEqualTo(value);
+            assertThat(testListSet.get(i)).isEqualTo(value);
+            assertThat(testListSet.indexOf(value)).isEqualTo(i);
+            assertThat(testListSet.indexOf((Object) value)).isEqualTo(i);
+            assertThat(testListSet.lastIndexOf((Object) value)).isEqualTo(i);
+            assertThat(testListSet.contains(value)).isTrue();
+        }
+        int missing = getRandomNotExisting();
+        assertThat(testListSet.indexOf(missing)).isEqualTo(-1);
+        assertThat(testListSet.contains(missing)).isFalse();
+        assertThat(testListSet.contains((Object) (long) missing)).isFalse();
+        try {
+            testListSet.getInt(elementsList.size());
+            fail("No exception on invalid index");
+        } catch (IndexOutOfBoundsException e) {}
+    }
+
+    @Test
+    public void addRemoveRandom() throws Exception {
+        init();
+        for (int i = 0; i < iterations * 4; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    int index = random.nextInt(elementsList.size() + 1);
+                    testListSet.add(index, addRandom(index));
+                    break;
+                case 1:
+                    if (!elementsList.isEmpty()) {
+                        index = random.nextInt(elementsList.size());
+                        Integer removed = elementsList.remove(index);
+                        elementsSet.remove(removed);
+                        assertThat(testListSet.removeInt(index)).isEqualTo(removed);
+                    }
+                    break;
+                case 2:
+                    if (!elementsList.isEmpty()) {
+                        Integer value = elementsList.get(random.nextInt(elementsList.size()));
+                        elementsList.remove(value);
+                        elementsSet.remove(value);
+                        assertThat(testListSet.removeValue(value)).isTrue();
+                    }
+                    assertThat(testListSet.removeValue(getRandomNotExisting())).isFalse();
+                    break;
+                case 3:
+                    if (!elementsList.isEmpty()) {
+                        // existing value is moved like in IndexedTreeListSet
+                        index = random.nextInt(elementsList.size());
+                        Integer value = random.nextBoolean()
+                                ? elementsList.get(random.nextInt(elementsList.size())) : getRandomNotExisting();
+                        IndexedTreeListSet<Integer> reference = new IndexedTreeListSet<>(elementsList);
+                        Integer previous = reference.set(index, value);
+                        elementsList.clear();
+                        elementsList.addAll(reference);
+                        elementsSet.clear();
+                        elementsSet.addAll(reference);
+                        assertThat(testListSet.setInt(index, value)).isEqualTo(previous);
+                    }
+                    break;
+                default:
+                    Integer existing = elementsList.isEmpty() ? null : elementsList.get(0);
+                    if (existing != null) {
+                        index = random.nextInt(elementsList.size() + 1);
+                        assertThat(testListSet.add(index, (int) existing)).isFalse();
+                    }
+            }
+            assertReference();
+        }
+    }
+
+    @Test
+    public void iteratorRemove() throws Exception {
+        init();
+        Iterator<Integer> expected = elementsList.iterator();
+        Iterator<Integer> actual = testListSet.iterator();
+        while (expected.hasNext()) {
+            assertThat(actual.next()).isEqualTo(expected.next());
+            if (random.nextBoolean()) {
+                expected.remove();
+                actual.remove();
+            }
+        }
+        assertThat(actual.hasNext()).isFalse();
+        elementsSet.retainAll(elementsList);
+        assertReference();
+    }
+
+    @Test
+    public void constructors() {
+        init();
+        int[] array = testListSet.toIntArray();
+        int[] withDuplicates = Arrays.copyOf(array, array.length * 2);
+        System.arraycopy(array, 0, withDuplicates, array.length, array.length);
+        IndexedIntTreeListSet fromArray = new IndexedIntTreeListSet(withDuplicates);
+        fromArray.assertConsistent();
+        assertThat(fromArray).isEqualTo(elementsList);
+        IndexedIntTreeListSet fromCollection = new IndexedIntTreeListSet(elementsList);
+        fromCollection.assertConsistent();
+        assertThat(fromCollection).isEqualTo(elementsList);
+        assertThat(elementsSet).isEqualTo(fromCollection);
+    }
+
+    @Test
+    public void addAllToMiddle() {
+        init();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            values.add(random.nextBoolean() || elementsList.isEmpty()
+                    ? getRandomNotExisting() : elementsList.get(random.nextInt(elementsList.size())));
+        }
+        int index = random.nextInt(elementsList.size() + 1);
+        IndexedTreeListSet<Integer> reference = new IndexedTreeListSet<>(elementsList);
+        reference.addAll(index, values);
+        testListSet.addAll(index, values);
+        elementsList.clear();
+        elementsList.addAll(reference);
+        elementsSet.addAll(reference);
+        assertReference();
+    }
+
+    @Test
+    public void clear() {
+        init();
+        testListSet.clear();
+        elementsList.clear();
+        elementsSet.clear();
+        assertReference();
+        init();
+    }
+
+    private void init() {
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            testListSet.add(index, addRandom(index));
+        }
+        assertReference();
+    }
+
+    private int addRandom(int index) {
+        int value = getRandomNotExisting();
+        elementsSet.add(value);
+        elementsList.add(index, value);
+        return value;
+    }
+
+    private int getRandomNotExisting() {
+        while (true) {
+            int value = random.nextInt();
+            if (!elementsSet.contains(value)) {
+                return value;
+            }
+        }
+    }
+
+    private void assertReference() {
+        assertThat(testListSet).hasSameSizeAs(elementsList);
+        assertThat(elementsSet).isEqualTo(testListSet);
+        assertThat(elementsList).isEqualTo(testListSet);
+        assertThat(testListSet.toIntArray()).containsExactly(elementsList.stream().mapToInt(i -> i).toArray());
+        testListSet.assertConsistent();
+    }
+}
@@ -0,0 +1,183 @@
+package com.masyaman.datastructures.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(Parameterized.class)
+public class IndexedLongTreeListTest {
+
+    private Random random;
+    private List<Long> elementsList;
+
+    private IndexedLongTreeList testList;
+
+    private int seed;
+    private int iterations;
+
+    public IndexedLongTreeListTest(int seed, int iterations) {
+        this.seed = seed;
+        this.iterations = iterations;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(seed);
+        elementsList = new ArrayList<>();
+        testList = new IndexedLongTreeList();
+    }
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection parameters() {
+        return Arrays.asList(new Object[][] {
+                {9999, 1},
+                {9999, 2},
+                {9999, 3},
+                {9999, 4},
+                {9999, 5},
+                {9999, 10},
+                {9999, 100},
+                {9999, 1000},
+//                {9999, 10000},
+        });
+    }
+
+    @Test
+    public void addToTail() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            long value = random.nextInt(10);
+            elementsList.add(value);
+            assertThat(testList.add(value)).isTrue();
+        }
+        assertReference();
+        assertIndexes();
+    }
+
+    @Test
+    public void getAndIndexOf() throws Exception {
+        init(10);
+        for (int i = 0; i < elementsList.size(); i++) {
+            long value = elementsList.get(i);
+            assertThat(testList.getLong(i)).isEqualTo(value);
+            assertThat(testList.get(i)).isEqualTo(value);
+            assertThat(testList.contains(value)).isTrue();
+            assertThat(testList.contains((Object) value)).isTrue();
+        }
+        assertThat(testList.indexOf(-1L)).isEqualTo(-1);
+        assertThat(testList.lastIndexOf(-1L)).isEqualTo(-1);
+        assertThat(testList.count(-1L)).isEqualTo(0);
+        assertThat(testList.contains((Object) 1)).isFalse();
+        try {
+            testList.getLong(elementsList.size());
+            fail("No exception on invalid index");
+        } catch (IndexOutOfBoundsException e) {}
+    }
+
+    @Test
+    public void addRemoveRandom() throws Exception {
+        // few distinct values, so single ids and buckets are both used
+        int maxValue = random.nextBoolean() ? 3 : 1000;
+        init(maxValue);
+        for (int i = 0; i < iterations * 4; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            long value = random.nextInt(maxValue);
+            switch (random.nextInt(4)) {
+                case 0:
+                    elementsList.add(index, value);
+                    testList.add(index, value);
+                    break;
+                case 1:
+                    if (index < elementsList.size()) {
+                        assertThat(testList.removeLong(index)).isEqualTo(elementsList.remove(index));
+                    }
+                    break;
+                case 2:
+                    assertThat(testList.removeValue(value)).isEqualTo(elementsList.remove(value));
+                    break;
+                default:
+                    if (index < elementsList.size()) {
+                        assertThat(testList.setLong(index, value)).isEqualTo(elementsList.set(index, value));
+                    }
+            }
+            assertReference();
+        }
+        assertIndexes();
+    }
+
+    @Test
+    public void iteratorRemove() throws Exception {
+        init(10);
+        Iterator<Long> expected = elementsList.iterator();
+        Iterator<Long> actual = testList.iterator();
+        while (expected.hasNext()) {
+            assertThat(actual.next()).isEqualTo(expected.next());
+            if (random.nextBoolean()) {
+                expected.remove();
+                actual.remove();
+            }
+        }
+        assertThat(actual.hasNext()).isFalse();
+        assertReference();
+        assertIndexes();
+    }
+
+    @Test
+    public void constructors() {
+        init(10);
+        IndexedLongTreeList fromArray = new IndexedLongTreeList(testList.toLongArray());
+        fromArray.assertConsistent();
+        assertThat(fromArray).isEqualTo(elementsList);
+        IndexedLongTreeList fromCollection = new IndexedLongTreeList(elementsList);
+        fromCollection.assertConsistent();
+        assertThat(fromCollection).isEqualTo(elementsList);
+        testList = fromCollection;
+        assertIndexes();
+    }
+
+    @Test
+    public void clear() {
+        init(10);
+        testList.clear();
+        elementsList.clear();
+        assertReference();
+        init(10);
+        assertIndexes();
+    }
+
+    private void init(int maxValue) {
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            long value = random.nextInt(maxValue);
+            elementsList.add(index, value);
+            testList.add(index, value);
+        }
+        assertReference();
+    }
+
+    private void assertIndexes() {
+        Map<Long, List<Integer>> indexes = new HashMap<>();
+        for (int i = 0; i < elementsList.size(); i++) {
+            indexes.computeIfAbsent(elementsList.get(i), k -> new ArrayList()).add(i);
+        }
+        for (Map.Entry<Long, List<Integer>> entry : indexes.entrySet()) {
+            List<Integer> expected = entry.getValue();
+            assertThat(testList.indexes(entry.getKey())).containsExactly(expected.stream().mapToInt(i -> i).toArray());
+            assertThat(testList.indexOf(entry.getKey())).isEqualTo(expected.get(0));
+            assertThat(testList.lastIndexOf(entry.getKey())).isEqualTo(expected.get(expected.size() - 1));
+            assertThat(testList.count(entry.getKey())).isEqualTo(expected.size());
+        }
+    }
+
+    private void assertReference() {
+        assertThat(testList).hasSameSizeAs(elementsList);
+        assertThat(testList).isEqualTo(elementsList);
+        assertThat(testList.toLongArray()).containsExactly(elementsList.stream().mapToLong(i -> i).toArray());
+        testList.assertConsistent();
+    }
+}
@@ -0,0 +1,244 @@
+package com.masyaman.datastructures.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(Parameterized.class)
+public class IndexedRunLengthListTest {
+
+    private static final String[] STATUSES = {"IDLE", "BUSY", "DOWN"};
+
+    private Random random;
+    private List<String> elementsList;
+
+    private IndexedRunLengthList<String> testList;
+
+    private int seed;
+    private int iterations;
+
+    public IndexedRunLengthListTest(int seed, int iterations) {
+        this.seed = seed;
+        this.iterations = iterations;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(seed);
+        elementsList = new ArrayList<>();
+        testList = new IndexedRunLengthList<>();
+    }
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection parameters() {
+        return Arrays.asList(new Object[][] {
+                {9999, 1},
+                {9999, 2},
+                {9999, 3},
+                {9999, 4},
+                {9999, 5},
+                {9999, 10},
+                {9999, 100},
+                {9999, 1000},
+//                {9999, 10000},
+        });
+    }
+
+    @Test
+    public void addToTail() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            String value = randomStatus();
+            elementsList.add(value);
+            assertThat(testList.add(value)).isTrue();
+        }
+        assertReference();
+    }
+
+    @Test
+    public void addToMiddle() throws Exception {
+        init();
+        assertReference();
+    }
+
+    @Test
+    public void getAndIndexOf() throws Exception {
+        init();
+        for (int i = 0; i < elementsList.size(); i++) {
+            assertThat(testList.get(i)).isEqualTo(elementsList.get(i));
+        }
+        for (String value : STATUSES) {
+            assertThat(testList.indexOf(value)).isEqualTo(elementsList.indexOf(value));
+            assertThat(testList.lastIndexOf(value)).isEqualTo(elementsList.lastIndexOf(value));
+            assertThat(testList.contains(value)).isEqualTo(elementsList.contains(value));
+        }
+        assertThat(testList.indexOf("UNKNOWN")).isEqualTo(-1);
+        assertThat(testList.lastIndexOf("UNKNOWN")).isEqualTo(-1);
+        assertThat(testList.indexes("UNKNOWN")).isEmpty();
+        assertThat(testList.count("UNKNOWN")).isEqualTo(0);
+        try {
+            testList.get(elementsList.size());
+            fail("No exception on invalid index");
+        } catch (IndexOutOfBoundsException e) {}
+    }
+
+    @Test
+    public void addRemoveRandom() throws Exception {
+        init();
+        for (int i = 0; i < iterations * 4; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    addRandom();
+                    break;
+                case 1:
+                    if (!elementsList.isEmpty()) {
+                        int index = random.nextInt(elementsList.size());
+                        assertThat(testList.remove(index)).isEqualTo(elementsList.remove(index));
+                    }
+                    break;
+                case 2:
+                    String value = randomStatus();
+                    assertThat(testList.remove(value)).isEqualTo(elementsList.remove(value));
+                    break;
+                case 3:
+                    if (!elementsList.isEmpty()) {
+                        int index = random.nextInt(elementsList.size());
+                        value = randomStatus();
+                        assertThat(testList.set(index, value)).isEqualTo(elementsList.set(index, value));
+                    }
+                    break;
+                default:
+                    int index = random.nextInt(elementsList.size() + 1);
+                    int count = random.nextInt(4);
+                    value = randomStatus();
+                    elementsList.addAll(index, Collections.nCopies(count, value));
+                    testList.addCopies(index, value, count);
+            }
+            assertReference();
+        }
+    }
+
+    @Test
+    public void longRuns() {
+        for (int i = 0; i < iterations; i++) {
+            String value = STATUSES[i % STATUSES.length];
+            int count = random.nextInt(100) + 1;
+            elementsList.addAll(Collections.nCopies(count, value));
+            testList.addCopies(testList.size(), value, count);
+        }
+        assertReference();
+        assertThat(testList.runCount()).isEqualTo(iterations);
+        // a different value in the middle of a run splits it
+        int index = random.nextInt(elementsList.size());
+        String value = elementsList.get(index).equals("IDLE") ? "BUSY" : "IDLE";
+        elementsList.add(index, value);
+        testList.add(index, value);
+        assertReference();
+        // and removing it merges the run back
+        elementsList.remove(index);
+        testList.remove(index);
+        assertReference();
+        assertThat(testList.runCount()).isEqualTo(iterations);
+        try {
+            testList.addCopies(0, "IDLE", -1);
+            fail("No exception on negative count");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void addNull() {
+        init();
+        try {
+            testList.add(null);
+            fail("No exception on adding null");
+        } catch (NullPointerException e) {}
+        try {
+            testList.add(random.nextInt(elementsList.size() + 1), null);
+            fail("No exception on adding null");
+        } catch (NullPointerException e) {}
+        assertReference();
+    }
+
+    @Test
+    public void iteratorRemove() throws Exception {
+        init();
+        Iterator<String> expected = elementsList.iterator();
+        Iterator<String> actual = testList.iterator();
+        while (expected.hasNext()) {
+            assertThat(actual.next()).isEqualTo(expected.next());
+            if (random.nextBoolean()) {
+                expected.remove();
+                actual.remove();
+            }
+        }
+        assertThat(actual.hasNext()).isFalse();
+        assertReference();
+    }
+
+    @Test
+    public void constructors() {
+        init();
+        IndexedRunLengthList<String> fromCollection = new IndexedRunLengthList<>(elementsList);
+        fromCollection.assertConsistent();
+        assertThat(fromCollection).isEqualTo(elementsList);
+        assertThat(fromCollection.runCount()).isEqualTo(testList.runCount());
+    }
+
+    @Test
+    public void clear() {
+        init();
+        testList.clear();
+        elementsList.clear();
+        assertReference();
+        init();
+    }
+
+    private void init() {
+        for (int i = 0; i < iterations; i++) {
+            addRandom();
+        }
+        assertReference();
+    }
+
+    private void addRandom() {
+        int index = random.nextInt(elementsList.size() + 1);
+        String value = randomStatus();
+        elementsList.add(index, value);
+        testList.add(index, value);
+    }
+
+    private String randomStatus() {
+        return STATUSES[random.nextInt(STATUSES.length)];
+    }
+
+    private void assertReference() {
+        assertThat(testList).hasSameSizeAs(elementsList);
+        assertThat(testList).isEqualTo(elementsList);
+        int runs = 0;
+        for (int i = 0; i < elementsList.size(); i++) {
+            if (i == 0 || !elementsList.get(i).equals(elementsList.get(i - 1))) {
+                runs++;
+            }
+        }
+        assertThat(testList.runCount()).isEqualTo(runs);
+        for (String value : STATUSES) {
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < elementsList.size(); i++) {
+                if (elementsList.get(i).equals(value)) {
+                    indexes.add(i);
+                }
+            }
+            assertThat(testList.count(value)).isEqualTo(indexes.size());
+            assertThat(testList.indexes(value)).isEqualTo(indexes.stream().mapToInt(i -> i).toArray());
+            assertThat(testList.indexOf(value)).isEqualTo(elementsList.indexOf(value));
+            assertThat(testList.lastIndexOf(value)).isEqualTo(elementsList.lastIndexOf(value));
+        }
+        assertThat(testList.uniqueValues()).isEqualTo(new HashSet<>(elementsList));
+        testList.assertConsistent();
+    }
+}
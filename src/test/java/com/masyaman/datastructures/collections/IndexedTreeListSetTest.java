@@ -291,6 +291,447 @@ public class IndexedTreeListSetTest {
         assertReference();
     }
 
+    @Test
+    public void constructorWithDuplicates() {
+        init();
+        List<Long> withDuplicates = new ArrayList<>(elementsList);
+        withDuplicates.addAll(elementsList);
+        testListSet = new IndexedTreeListSet<>(withDuplicates);
+        assertReference();
+    }
+
+    @Test
+    public void addAllToEmpty() {
+        init();
+        testListSet = new IndexedTreeListSet<>();
+        assertThat(testListSet.addAll(elementsList)).isEqualTo(!elementsList.isEmpty());
+        assertThat(testListSet.addAll(elementsList)).isFalse();
+        assertReference();
+    }
+
+    @Test
+    public void addAllToMiddle() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            int count = random.nextInt(10) + 1;
+            Long existing = getRandomExisting();
+            List<Long> batch = new ArrayList<>();
+            for (int j = 0; j < count; j++) {
+                batch.add(addRandom(index + j));
+            }
+            // existing elements and duplicates in batch are skipped
+            int duplicate = random.nextInt(batch.size());
+            batch.add(duplicate + 1 + random.nextInt(batch.size() - duplicate), batch.get(duplicate));
+            if (existing != null) {
+                batch.add(random.nextInt(batch.size() + 1), existing);
+            }
+            assertThat(testListSet.addAll(index, batch)).isTrue();
+            assertReference();
+        }
+        assertThat(testListSet.addAll(0, elementsList)).isFalse();
+        assertReference();
+    }
+
+    @Test
+    public void removeRange() {
+        init();
+        while (!testListSet.isEmpty()) {
+            int from = random.nextInt(elementsList.size());
+            int to = from + random.nextInt(Math.min(10, elementsList.size() - from) + 1);
+            List<Long> range = elementsList.subList(from, to);
+            elementsSet.removeAll(range);
+            range.clear();
+            testListSet.removeRange(from, to);
+            assertReference();
+        }
+    }
+
+    @Test
+    public void replaceRange() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(10, elementsList.size() - from) + 1);
+            List<Long> range = elementsList.subList(from, to);
+            List<Long> batch = new ArrayList<>();
+            if (!range.isEmpty()) {
+                // element from replaced range can be added again
+                batch.add(range.get(random.nextInt(range.size())));
+            }
+            elementsSet.removeAll(range);
+            range.clear();
+            Long existing = getRandomExisting();
+            int count = random.nextInt(10);
+            for (int j = 0; j < count; j++) {
+                batch.add(getRandomNotExisting());
+            }
+            elementsList.addAll(from, batch);
+            elementsSet.addAll(batch);
+            if (existing != null) {
+                // element outside of replaced range is skipped
+                batch.add(random.nextInt(batch.size() + 1), existing);
+            }
+            assertThat(testListSet.replaceRange(from, to, batch)).isEqualTo(batch.size() - (existing != null ? 1 : 0));
+            assertReference();
+        }
+    }
+
+    @Test
+    public void builder() {
+        init();
+        testListSet = IndexedTreeListSet.<Long>builder()
+                .expectedSize(elementsList.size() * 2)
+                .addAll(elementsList)
+                .add(elementsList.get(0))
+                .build();
+        assertReference();
+        testListSet = IndexedTreeListSet.<Long>builder()
+                .map(new TreeMap())
+                .addAll(elementsList)
+                .build();
+        assertReference();
+        assertThat(testListSet.nodeMap).isInstanceOf(TreeMap.class);
+    }
+
+    @Test
+    public void splitAtAndConcat() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            IndexedTreeListSet<Long> tail = random.nextBoolean()
+                    ? testListSet.splitAt(index) : testListSet.splitAt(index, new TreeMap());
+            tail.assertConsistent();
+            assertThat(tail).isEqualTo(elementsList.subList(index, elementsList.size()));
+            assertThat(testListSet).isEqualTo(elementsList.subList(0, index));
+            testListSet.assertConsistent();
+            for (int j = 0; j < index; j++) {
+                assertThat(testListSet.indexOf(elementsList.get(j))).isEqualTo(j);
+            }
+            for (int j = index; j < elementsList.size(); j++) {
+                assertThat(tail.indexOf(elementsList.get(j))).isEqualTo(j - index);
+                assertThat(testListSet.contains(elementsList.get(j))).isFalse();
+            }
+            if (index > 0) {
+                // element already contained in this list is skipped on concat
+                tail.add(random.nextInt(tail.size() + 1), elementsList.get(random.nextInt(index)));
+            }
+            testListSet.concat(tail);
+            assertThat(tail).isEmpty();
+            assertReference();
+        }
+    }
+
+    @Test
+    public void extract() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(10, elementsList.size() - from) + 1);
+            List<Long> range = elementsList.subList(from, to);
+            List<Long> expected = new ArrayList<>(range);
+            elementsSet.removeAll(range);
+            range.clear();
+            IndexedTreeListSet<Long> extracted = testListSet.extract(from, to);
+            extracted.assertConsistent();
+            assertThat(extracted).isEqualTo(expected);
+            for (int j = 0; j < expected.size(); j++) {
+                assertThat(extracted.indexOf(expected.get(j))).isEqualTo(j);
+            }
+            assertReference();
+        }
+    }
+
+    @Test
+    public void rotate() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int distance = random.nextInt(elementsList.size() * 4 + 1) - elementsList.size() * 2;
+            Collections.rotate(elementsList, distance);
+            testListSet.rotate(distance);
+            assertReference();
+        }
+        for (int i = 0; i < elementsList.size(); i++) {
+            assertThat(testListSet.indexOf(elementsList.get(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void appendBufferIsNotSupported() {
+        init();
+        testListSet.setAppendBuffer(0);
+        assertThat(testListSet.getAppendBufferCapacity()).isZero();
+        try {
+            testListSet.setAppendBuffer(16);
+            fail("No exception on enabling append buffer");
+        } catch (UnsupportedOperationException e) {}
+        assertReference();
+    }
+
+    @Test
+    public void nodeRecycling() {
+        testListSet.setNodeRecycling(true);
+        testListSet.ensureCapacity(iterations);
+        assertThat(testListSet.getNodePoolCapacity()).isGreaterThanOrEqualTo(iterations);
+        init();
+        for (int i = 0; i < iterations; i++) {
+            // queue-like traffic mixed with random removals and replacements
+            testListSet.add(addRandom());
+            removeByIndex(0);
+            testListSet.remove(0);
+            int index = random.nextInt(elementsList.size() + 1);
+            testListSet.add(index, addRandom(index));
+            if (!elementsList.isEmpty()) {
+                index = random.nextInt(elementsList.size());
+                assertThat(testListSet.remove(elementsList.get(index))).isTrue();
+                removeByIndex(index);
+            }
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(3, elementsList.size() - from) + 1);
+            List<Long> range = elementsList.subList(from, to);
+            elementsSet.removeAll(range);
+            range.clear();
+            testListSet.removeRange(from, to);
+            testListSet.add(addRandom());
+            assertReference();
+        }
+        testListSet.setNodeRecycling(false);
+        assertThat(testListSet.getNodePoolCapacity()).isZero();
+        testListSet.add(addRandom());
+        assertReference();
+    }
+
+    @Test
+    public void splayBalancing() {
+        checkBalancing(TreeBalancing.SPLAY);
+    }
+
+    @Test
+    public void relaxedBalancing() {
+        checkBalancing(TreeBalancing.RELAXED);
+    }
+
+    private void checkBalancing(TreeBalancing balancing) {
+        testListSet.setBalancing(balancing);
+        assertThat(testListSet.getBalancing()).isEqualTo(balancing);
+        init();
+        for (int i = 0; i < iterations; i++) {
+            // skewed access to the tail mixed with random modifications
+            int index = Math.max(0, elementsList.size() - 1 - random.nextInt(10));
+            if (!elementsList.isEmpty()) {
+                assertThat(testListSet.get(index)).isEqualTo(elementsList.get(index));
+                assertThat(testListSet.indexOf(elementsList.get(index))).isEqualTo(index);
+            }
+            index = random.nextInt(elementsList.size() + 1);
+            testListSet.add(index, addRandom(index));
+            index = random.nextInt(elementsList.size() + 1);
+            testListSet.add(index, addRandom(index));
+            index = random.nextInt(elementsList.size());
+            assertThat(testListSet.remove(elementsList.get(index))).isTrue();
+            removeByIndex(index);
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(3, elementsList.size() - from) + 1);
+            List<Long> range = elementsList.subList(from, to);
+            elementsSet.removeAll(range);
+            range.clear();
+            testListSet.removeRange(from, to);
+            assertReference();
+        }
+        IndexedTreeListSet<Long> tail = testListSet.splitAt(elementsList.size() / 2);
+        assertThat(tail.getBalancing()).isEqualTo(balancing);
+        testListSet.concat(tail);
+        assertReference();
+        while (testListSet.size() > iterations / 2) {
+            int index = removeRandomIndex();
+            testListSet.remove(index);
+            assertReference();
+        }
+        testListSet.setBalancing(TreeBalancing.AVL);
+        assertReference();
+    }
+
+    @Test
+    public void fingerSearch() {
+        assertThat(testListSet.isFingerSearch()).isFalse();
+        testListSet.setFingerSearch(true);
+        init();
+        int index = 0;
+        for (int i = 0; i < iterations * 10; i++) {
+            // random walk by index mixed with modifications which invalidate finger
+            index = Math.floorMod(index + random.nextInt(9) - 4, elementsList.size());
+            assertThat(testListSet.get(index)).isEqualTo(elementsList.get(index));
+            switch (random.nextInt(8)) {
+                case 0:
+                    testListSet.add(index, addRandom(index));
+                    break;
+                case 1:
+                    removeByIndex(index);
+                    testListSet.remove(index);
+                    if (elementsList.isEmpty()) {
+                        testListSet.add(addRandom());
+                    }
+                    break;
+                case 2:
+                    Long value = getRandomNotExisting();
+                    elementsSet.remove(elementsList.set(index, value));
+                    elementsSet.add(value);
+                    testListSet.set(index, value);
+                    break;
+                case 3:
+                    int from = Math.min(index, elementsList.size());
+                    assertThat(testListSet.listIterator(from).hasNext()).isEqualTo(from < elementsList.size());
+                    if (from < elementsList.size()) {
+                        assertThat(testListSet.listIterator(from).next()).isEqualTo(elementsList.get(from));
+                    }
+                    break;
+                default:
+            }
+            index = Math.min(index, elementsList.size() - 1);
+        }
+        assertReference();
+        testListSet.setFingerSearch(false);
+        assertThat(testListSet.isFingerSearch()).isFalse();
+        for (int i = 0; i < elementsList.size(); i++) {
+            assertThat(testListSet.get(i)).isEqualTo(elementsList.get(i));
+        }
+    }
+
+    @Test
+    public void positionCaching() {
+        assertThat(testListSet.isPositionCaching()).isFalse();
+        init();
+        testListSet.setPositionCaching(true);
+        assertThat(testListSet.isPositionCaching()).isTrue();
+        assertReference();
+        for (int i = 0; i < iterations; i++) {
+            // several searches between modifications, so cached positions are reused
+            for (int j = 0; j < 10; j++) {
+                Long existing = getRandomExisting();
+                assertThat(testListSet.indexOf(existing)).isEqualTo(elementsList.indexOf(existing));
+                assertThat(testListSet.lastIndexOf(existing)).isEqualTo(elementsList.lastIndexOf(existing));
+            }
+            int index = random.nextInt(elementsList.size() + 1);
+            switch (random.nextInt(4)) {
+                case 0:
+                    testListSet.add(index, addRandom(index));
+                    break;
+                case 1:
+                    if (index < elementsList.size()) {
+                        removeByIndex(index);
+                        testListSet.remove(index);
+                    }
+                    break;
+                case 2:
+                    // positions cached in other list should not be used after concatenation
+                    IndexedTreeListSet<Long> tail = testListSet.splitAt(index);
+                    List<Long> expectedTail = elementsList.subList(index, elementsList.size());
+                    for (Long value : expectedTail) {
+                        assertThat(tail.indexOf(value)).isEqualTo(expectedTail.indexOf(value));
+                    }
+                    testListSet.concat(tail);
+                    break;
+                default:
+                    int distance = random.nextInt(elementsList.size() + 1);
+                    Collections.rotate(elementsList, distance);
+                    testListSet.rotate(distance);
+            }
+            if (elementsList.isEmpty()) {
+                testListSet.add(addRandom());
+            }
+        }
+        assertReference();
+        for (int i = 0; i < elementsList.size(); i++) {
+            assertThat(testListSet.indexOf(elementsList.get(i))).isEqualTo(elementsList.indexOf(elementsList.get(i)));
+        }
+        testListSet.setPositionCaching(false);
+        assertThat(testListSet.isPositionCaching()).isFalse();
+        assertReference();
+    }
+
+    @Test
+    public void hashIndex() {
+        testListSet = random.nextBoolean()
+                ? new IndexedTreeListSet<>(HashingStrategy.defaultStrategy())
+                : IndexedTreeListSet.<Long>builder().hashingStrategy(HashingStrategy.defaultStrategy()).build();
+        init();
+        for (int i = 0; i < iterations; i++) {
+            Long existing = getRandomExisting();
+            if (existing != null) {
+                assertThat(testListSet.contains(existing)).isTrue();
+                assertThat(testListSet.indexOf(existing)).isEqualTo(elementsList.indexOf(existing));
+            }
+            assertThat(testListSet.contains(getRandomNotExisting())).isFalse();
+            int index = random.nextInt(elementsList.size() + 1);
+            switch (random.nextInt(6)) {
+                case 0:
+                    testListSet.add(index, addRandom(index));
+                    break;
+                case 1:
+                    if (existing != null) {
+                        elementsSet.remove(existing);
+                        elementsList.remove(existing);
+                        assertThat(testListSet.remove(existing)).isTrue();
+                    }
+                    break;
+                case 2:
+                    if (index < elementsList.size()) {
+                        Long value = getRandomNotExisting();
+                        elementsSet.remove(elementsList.set(index, value));
+                        elementsSet.add(value);
+                        testListSet.set(index, value);
+                    }
+                    break;
+                case 3:
+                    // tail has hash index too
+                    IndexedTreeListSet<Long> tail = testListSet.splitAt(index);
+                    tail.assertConsistent();
+                    testListSet.concat(tail);
+                    break;
+                case 4:
+                    // nodes of tail are added to HashMap, then they are copied back to hash index
+                    IndexedTreeListSet<Long> plainTail = testListSet.splitAt(index, new HashMap());
+                    plainTail.add(addRandom());
+                    plainTail.assertConsistent();
+                    testListSet.concat(plainTail);
+                    break;
+                default:
+                    List<Long> values = new ArrayList<>();
+                    for (int j = random.nextInt(5); j > 0; j--) {
+                        values.add(getRandomNotExisting());
+                    }
+                    elementsList.addAll(index, values);
+                    elementsSet.addAll(values);
+                    testListSet.addAll(index, values);
+            }
+            assertReference();
+        }
+        testListSet.ensureCapacity(iterations * 4);
+        assertReference();
+        testListSet.clear();
+        elementsList.clear();
+        elementsSet.clear();
+        assertReference();
+    }
+
+    @Test
+    public void hashIndexWithIdentityStrategy() {
+        IndexedTreeListSet<Long> list = new IndexedTreeListSet<>(HashingStrategy.identityStrategy());
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            // equal but not identical values, they are out of boxing cache, so each valueOf creates new instance
+            values.add(Long.valueOf(i % 10 + 1000L));
+        }
+        list.addAll(values);
+        list.assertConsistent();
+        assertThat(list).isEqualTo(values);
+        for (int i = 0; i < iterations; i++) {
+            assertThat(list.indexOf(values.get(i))).isEqualTo(i);
+        }
+        if (iterations > 10) {
+            assertThat(list.contains(Long.valueOf(1000L))).isFalse();
+        }
+    }
+
     private void init() {
         for (int i = 0; i < iterations; i++) {
             int index = random.nextInt(elementsList.size() + 1);
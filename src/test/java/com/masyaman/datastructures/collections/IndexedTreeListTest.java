@@ -378,6 +378,659 @@ public class IndexedTreeListTest {
         assertReference();
     }
 
+    @Test
+    public void addAllToEmpty() {
+        init();
+        elementsList.addAll(elementsList);
+        testList = new IndexedTreeList<>();
+        assertThat(testList.addAll(elementsList)).isTrue();
+        assertReference();
+        for (Long value : elementsSet) {
+            assertThat(testList.indexes(value)).containsExactly(elementsList.indexOf(value), elementsList.lastIndexOf(value));
+        }
+    }
+
+    @Test
+    public void addAllToMiddle() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            int count = random.nextInt(10) + 1;
+            List<Long> batch = new ArrayList<>();
+            for (int j = 0; j < count; j++) {
+                batch.add(random.nextBoolean() || elementsList.isEmpty() ? getRandomNotExisting() : getRandomExisting());
+            }
+            elementsSet.addAll(batch);
+            elementsList.addAll(index, batch);
+            assertThat(testList.addAll(index, batch)).isTrue();
+            assertReference();
+        }
+        assertIndexes();
+    }
+
+    @Test
+    public void removeRange() {
+        init();
+        elementsList.addAll(elementsList);
+        testList.addAll(testList);
+        while (!testList.isEmpty()) {
+            int from = random.nextInt(elementsList.size());
+            int to = from + random.nextInt(Math.min(10, elementsList.size() - from) + 1);
+            elementsList.subList(from, to).clear();
+            testList.subList(from, to).clear();
+            elementsSet.retainAll(elementsList);
+            assertReference();
+        }
+    }
+
+    @Test
+    public void replaceRange() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(10, elementsList.size() - from) + 1);
+            List<Long> batch = new ArrayList<>();
+            int count = random.nextInt(10);
+            for (int j = 0; j < count; j++) {
+                batch.add(random.nextBoolean() || elementsList.isEmpty() ? getRandomNotExisting() : getRandomExisting());
+            }
+            elementsList.subList(from, to).clear();
+            elementsList.addAll(from, batch);
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            assertThat(testList.replaceRange(from, to, batch)).isEqualTo(count);
+            assertReference();
+        }
+        assertIndexes();
+    }
+
+    @Test
+    public void builder() {
+        init();
+        testList = IndexedTreeList.<Long>builder()
+                .expectedSize(elementsList.size() + 1)
+                .addAll(elementsList)
+                .add(elementsList.get(0))
+                .build();
+        elementsList.add(elementsList.get(0));
+        assertReference();
+        assertThat(testList.count(elementsList.get(0))).isEqualTo(2);
+    }
+
+    @Test
+    public void denseInsertions() {
+        init();
+        // insertions into the same place exhaust free labels between nodes, so labels are reassigned
+        int middle = elementsList.size() / 2;
+        for (int i = 0; i < 3000; i++) {
+            Long value = random.nextBoolean() ? getRandomExisting() : (long) random.nextInt(10);
+            int index = i % 3 == 0 ? 0 : i % 3 == 1 ? middle : elementsList.size();
+            elementsList.add(index, value);
+            testList.add(index, value);
+            if (i % 500 == 0) {
+                testList.assertConsistent();
+            }
+        }
+        elementsSet.addAll(elementsList);
+        assertReference();
+        assertIndexes();
+    }
+
+    @Test
+    public void duplicateBuckets() {
+        init();
+        // equal values go through single node, small array and TreeSet and back
+        Long value = getRandomExisting();
+        for (int i = 0; i < 20; i++) {
+            int index = random.nextInt(elementsList.size() + 1);
+            // random values are out of boxing cache, so valueOf creates equal but not identical copy
+            Long copy = random.nextBoolean() ? value : Long.valueOf(value.longValue());
+            elementsList.add(index, copy);
+            testList.add(index, copy);
+            assertReference();
+            assertThat(testList.count(value)).isEqualTo(Collections.frequency(elementsList, value));
+            assertIndexes();
+        }
+        while (elementsList.contains(value)) {
+            int index = random.nextBoolean() ? elementsList.indexOf(value) : elementsList.lastIndexOf(value);
+            if (random.nextBoolean()) {
+                index = random.nextInt(elementsList.size());
+            }
+            removeByIndex(index);
+            testList.remove(index);
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            assertReference();
+            assertIndexes();
+        }
+    }
+
+    @Test
+    public void removeOccurrences() {
+        // few distinct values, so both unlinking of single nodes and rebuilding of the tree are used
+        for (int i = 0; i < iterations * 4; i++) {
+            Long value = (long) random.nextInt(10);
+            int index = random.nextInt(elementsList.size() + 1);
+            elementsList.add(index, value);
+            testList.add(index, value);
+        }
+        elementsSet.addAll(elementsList);
+        assertReference();
+        assertThat(testList.removeOccurrences(0L, 0)).isEqualTo(0);
+        while (!elementsList.isEmpty()) {
+            Long value = (long) random.nextInt(11);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertThat(testList.removeFirstOccurrence(value)).isEqualTo(elementsList.remove(value));
+                    break;
+                case 1:
+                    int last = elementsList.lastIndexOf(value);
+                    if (last >= 0) {
+                        elementsList.remove(last);
+                    }
+                    assertThat(testList.removeLastOccurrence(value)).isEqualTo(last >= 0);
+                    break;
+                case 2:
+                    int limit = random.nextInt(20);
+                    int removed = 0;
+                    while (removed < limit && elementsList.remove(value)) {
+                        removed++;
+                    }
+                    assertThat(testList.removeOccurrences(value, limit)).isEqualTo(removed);
+                    break;
+                default:
+                    int count = Collections.frequency(elementsList, value);
+                    elementsList.removeIf(value::equals);
+                    assertThat(testList.removeAllOccurrences(value)).isEqualTo(count);
+            }
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            assertReference();
+            assertIndexes();
+        }
+        try {
+            testList.removeOccurrences(0L, -1);
+            fail("No exception on negative limit");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void occurrenceQueries() {
+        // few distinct values, so buckets of all kinds are queried
+        for (int i = 0; i < iterations * 4; i++) {
+            Long value = (long) random.nextInt(random.nextBoolean() ? 3 : 30);
+            int index = random.nextInt(elementsList.size() + 1);
+            elementsList.add(index, value);
+            testList.add(index, value);
+            if (random.nextInt(4) == 0) {
+                int removed = random.nextInt(elementsList.size());
+                elementsList.remove(removed);
+                testList.remove(removed);
+            }
+            Long searched = (long) random.nextInt(31);
+            int from = random.nextInt(elementsList.size() + 3) - 1;
+            int to = from < 0 || from > elementsList.size()
+                    ? elementsList.size() : from + random.nextInt(elementsList.size() - from + 1);
+            List<Integer> expected = new ArrayList<>();
+            for (int j = 0; j < elementsList.size(); j++) {
+                if (elementsList.get(j).equals(searched)) {
+                    expected.add(j);
+                }
+            }
+            int next = expected.stream().filter(j -> j >= from).findFirst().orElse(-1);
+            int previous = expected.stream().filter(j -> j <= from).reduce((a, b) -> b).orElse(-1);
+            assertThat(testList.nextIndexOf(searched, from)).isEqualTo(next);
+            assertThat(testList.previousIndexOf(searched, from)).isEqualTo(previous);
+            int n = random.nextInt(expected.size() + 2);
+            assertThat(testList.nthIndexOf(searched, n)).isEqualTo(n < expected.size() ? expected.get(n) : -1);
+            if (from >= 0 && from <= elementsList.size()) {
+                int[] inRange = expected.stream().filter(j -> j >= from && j < to).mapToInt(j -> j).toArray();
+                assertThat(testList.indexes(searched, from, to)).containsExactly(inRange);
+                assertThat(testList.countInRange(searched, from, to)).isEqualTo(inRange.length);
+            }
+        }
+        elementsSet.addAll(elementsList);
+        assertReference();
+        try {
+            testList.countInRange(0L, 0, testList.size() + 1);
+            fail("No exception on invalid range");
+        } catch (IndexOutOfBoundsException e) {}
+        try {
+            testList.nthIndexOf(0L, -1);
+            fail("No exception on negative occurrence number");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void splitAtAndConcat() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            Long existing = getRandomExisting();
+            int position = random.nextInt(elementsList.size() + 1);
+            elementsList.add(position, existing);
+            testList.add(position, existing);
+            int index = random.nextInt(elementsList.size() + 1);
+            IndexedTreeList<Long> tail = random.nextBoolean()
+                    ? testList.splitAt(index) : testList.splitAt(index, new TreeMap());
+            tail.assertConsistent();
+            assertThat(tail).isEqualTo(elementsList.subList(index, elementsList.size()));
+            assertThat(tail.uniqueValues()).isEqualTo(new HashSet<>(elementsList.subList(index, elementsList.size())));
+            assertThat(testList).isEqualTo(elementsList.subList(0, index));
+            assertThat(testList.uniqueValues()).isEqualTo(new HashSet<>(elementsList.subList(0, index)));
+            testList.assertConsistent();
+            testList.concat(tail);
+            assertThat(tail).isEmpty();
+            assertReference();
+        }
+        assertIndexes();
+    }
+
+    @Test
+    public void extract() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(10, elementsList.size() - from) + 1);
+            List<Long> range = elementsList.subList(from, to);
+            List<Long> expected = new ArrayList<>(range);
+            range.clear();
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            IndexedTreeList<Long> extracted = testList.extract(from, to);
+            extracted.assertConsistent();
+            assertThat(extracted).isEqualTo(expected);
+            assertThat(extracted.uniqueValues()).isEqualTo(new HashSet<>(expected));
+            assertReference();
+        }
+        assertIndexes();
+    }
+
+    @Test
+    public void rotate() {
+        init();
+        for (int i = 0; i < iterations; i++) {
+            Long existing = getRandomExisting();
+            int position = random.nextInt(elementsList.size() + 1);
+            elementsList.add(position, existing);
+            testList.add(position, existing);
+            int distance = random.nextInt(elementsList.size() * 4 + 1) - elementsList.size() * 2;
+            Collections.rotate(elementsList, distance);
+            testList.rotate(distance);
+            assertReference();
+        }
+        assertIndexes();
+    }
+
+    @Test
+    public void nodeRecycling() {
+        testList.setNodeRecycling(true);
+        testList.ensureCapacity(iterations);
+        assertThat(testList.getNodePoolCapacity()).isGreaterThanOrEqualTo(iterations);
+        init();
+        for (int i = 0; i < iterations; i++) {
+            // queue-like traffic mixed with duplicates, random removals and replacements
+            Long existing = getRandomExisting();
+            if (existing != null) {
+                elementsList.add(existing);
+                testList.add(existing);
+            }
+            testList.add(addRandom(elementsList.size()));
+            removeByIndex(0);
+            testList.remove(0);
+            if (!elementsList.isEmpty()) {
+                int index = random.nextInt(elementsList.size());
+                assertThat(testList.remove(elementsList.get(index))).isTrue();
+                elementsList.remove(elementsList.get(index));
+            }
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(3, elementsList.size() - from) + 1);
+            elementsList.subList(from, to).clear();
+            testList.removeRange(from, to);
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            assertReference();
+        }
+        assertIndexes();
+        testList.setNodeRecycling(false);
+        assertThat(testList.getNodePoolCapacity()).isZero();
+        testList.add(addRandom(elementsList.size()));
+        assertReference();
+    }
+
+    @Test
+    public void lazyIndex() {
+        testList.setLazyIndex(true);
+        assertThat(testList.isLazyIndex()).isTrue();
+        for (int i = 0; i < iterations; i++) {
+            // appends mixed with duplicates and modifications which don't need nodeMap
+            Long existing = getRandomExisting();
+            if (existing != null && random.nextBoolean()) {
+                int index = random.nextInt(elementsList.size() + 1);
+                elementsList.add(index, existing);
+                testList.add(index, existing);
+            }
+            testList.add(addRandom(elementsList.size()));
+            if (random.nextInt(4) == 0) {
+                testList.remove(removeRandomIndex());
+            }
+            if (random.nextInt(4) == 0 && !elementsList.isEmpty()) {
+                int index = random.nextInt(elementsList.size());
+                Long value = random.nextBoolean() ? getRandomExisting() : (long) random.nextInt();
+                elementsList.set(index, value);
+                testList.set(index, value);
+            }
+        }
+        testList.add(addRandom(elementsList.size()));
+        int distance = random.nextInt(elementsList.size() + 1);
+        Collections.rotate(elementsList, distance);
+        testList.rotate(distance);
+        assertThat(testList.isIndexPending()).isTrue();
+        testList.assertConsistent();
+        assertThat(testList).isEqualTo(elementsList);
+
+        // the first search builds nodeMap, it's maintained afterwards
+        Long searched = elementsList.get(random.nextInt(elementsList.size()));
+        switch (random.nextInt(5)) {
+            case 0:
+                assertThat(testList.indexOf(searched)).isEqualTo(elementsList.indexOf(searched));
+                break;
+            case 1:
+                assertThat(testList.contains(searched)).isTrue();
+                break;
+            case 2:
+                assertThat(testList.count(searched)).isEqualTo(Collections.frequency(elementsList, searched));
+                break;
+            case 3:
+                assertThat(testList.indexes(searched)).contains(elementsList.indexOf(searched));
+                break;
+            default:
+                assertThat(testList.uniqueValues()).contains(searched);
+        }
+        assertThat(testList.isIndexPending()).isFalse();
+        elementsSet.clear();
+        elementsSet.addAll(elementsList);
+        assertReference();
+        assertIndexes();
+        for (int i = 0; i < iterations; i++) {
+            testList.add(addRandom(elementsList.size()));
+            Long existing = getRandomExisting();
+            int index = random.nextInt(elementsList.size() + 1);
+            elementsList.add(index, existing);
+            testList.add(index, existing);
+        }
+        assertReference();
+        assertIndexes();
+
+        testList.clear();
+        assertThat(testList.isIndexPending()).isTrue();
+        IndexedTreeList<Long> built = IndexedTreeList.<Long>builder().lazyIndex(true).addAll(elementsList).build();
+        assertThat(built.isIndexPending()).isTrue();
+        assertThat(built).isEqualTo(elementsList);
+        built.setLazyIndex(false);
+        assertThat(built.isIndexPending()).isFalse();
+        built.assertConsistent();
+        assertThat(built.uniqueValues()).isEqualTo(elementsSet);
+    }
+
+    @Test
+    public void appendBuffer() {
+        testList.setAppendBuffer(random.nextInt(16) + 1);
+        assertThat(testList.getAppendBufferCapacity()).isBetween(1, 16);
+        for (int i = 0; i < iterations * 4; i++) {
+            Long existing = getRandomExisting();
+            Long value = existing != null && random.nextBoolean() ? existing : getRandomNotExisting();
+            elementsList.add(value);
+            assertThat(testList.add(value)).isTrue();
+            int index = random.nextInt(elementsList.size());
+            assertThat(testList.get(index)).isEqualTo(elementsList.get(index));
+            assertThat(testList.size()).isEqualTo(elementsList.size());
+            testList.assertConsistent();
+            switch (random.nextInt(8)) {
+                case 0:
+                    // the last element is removed from buffer
+                    assertThat(testList.remove(elementsList.size() - 1))
+                            .isEqualTo(elementsList.remove(elementsList.size() - 1));
+                    break;
+                case 1:
+                    assertThat(testList.contains(value)).isTrue();
+                    assertThat(testList.indexOf(value)).isEqualTo(elementsList.indexOf(value));
+                    assertThat(testList.lastIndexOf(value)).isEqualTo(elementsList.lastIndexOf(value));
+                    break;
+                case 2:
+                    index = random.nextInt(elementsList.size() + 1);
+                    elementsList.add(index, value);
+                    testList.add(index, value);
+                    break;
+                case 3:
+                    index = random.nextInt(elementsList.size());
+                    assertThat(testList.remove(index)).isEqualTo(elementsList.remove(index));
+                    break;
+                default:
+            }
+            testList.assertConsistent();
+        }
+        elementsSet.addAll(elementsList);
+        assertReference();
+        assertIndexes();
+
+        // both lists have buffered elements
+        Long existing = getRandomExisting();
+        elementsList.add(existing);
+        testList.add(existing);
+        IndexedTreeList<Long> other = new IndexedTreeList<>();
+        other.setAppendBuffer(iterations + 1);
+        for (int i = 0; i < iterations; i++) {
+            other.add(addRandom());
+        }
+        testList.concat(other);
+        assertThat(other).isEmpty();
+        assertReference();
+        assertIndexes();
+
+        testList.setAppendBuffer(0);
+        assertThat(testList.getAppendBufferCapacity()).isZero();
+        testList.add(addRandom());
+        assertReference();
+    }
+
+    @Test
+    public void splayBalancing() {
+        checkBalancing(TreeBalancing.SPLAY);
+    }
+
+    @Test
+    public void relaxedBalancing() {
+        checkBalancing(TreeBalancing.RELAXED);
+    }
+
+    @Test
+    public void splayDegenerateTree() {
+        // sequential appends splay every new node to the root, so the tree becomes a long left spine
+        int size = 100_000;
+        testList.setBalancing(TreeBalancing.SPLAY);
+        for (long i = 0; i < size; i++) {
+            elementsList.add(i % iterations);
+            testList.add(i % iterations);
+        }
+        assertThat(testList.toArray()).isEqualTo(elementsList.toArray());
+        Iterator<Long> iterator = testList.iterator();
+        for (Long value : elementsList) {
+            assertThat(iterator.next()).isEqualTo(value);
+        }
+        assertThat(iterator.hasNext()).isFalse();
+
+        int from = random.nextInt(size / 2);
+        int to = from + random.nextInt(size / 4);
+        elementsList.subList(from, to).clear();
+        testList.removeRange(from, to);
+        from = random.nextInt(elementsList.size());
+        to = from + random.nextInt(elementsList.size() - from + 1);
+        elementsList.subList(from, to).clear();
+        testList.subList(from, to).clear();
+        List<Long> added = Arrays.asList(-1L, -2L, -3L);
+        int index = random.nextInt(elementsList.size() + 1);
+        elementsList.addAll(index, added);
+        testList.addAll(index, added);
+        int distance = random.nextInt(elementsList.size());
+        Collections.rotate(elementsList, distance);
+        testList.rotate(distance);
+        assertThat(testList.toArray()).isEqualTo(elementsList.toArray());
+
+        testList.setBalancing(TreeBalancing.AVL);
+        elementsSet.addAll(elementsList);
+        assertReference();
+    }
+
+    private void checkBalancing(TreeBalancing balancing) {
+        testList.setBalancing(balancing);
+        assertThat(testList.getBalancing()).isEqualTo(balancing);
+        init();
+        for (int i = 0; i < iterations; i++) {
+            // skewed access to the tail mixed with random modifications
+            int index = Math.max(0, elementsList.size() - 1 - random.nextInt(10));
+            if (!elementsList.isEmpty()) {
+                assertThat(testList.get(index)).isEqualTo(elementsList.get(index));
+                assertThat(testList.indexOf(elementsList.get(index))).isEqualTo(elementsList.indexOf(elementsList.get(index)));
+            }
+            index = random.nextInt(elementsList.size() + 1);
+            testList.add(index, addRandom(index));
+            index = random.nextInt(elementsList.size() + 1);
+            testList.add(index, addRandom(index));
+            Long existing = getRandomExisting();
+            index = random.nextInt(elementsList.size() + 1);
+            elementsList.add(index, existing);
+            testList.add(index, existing);
+            index = random.nextInt(elementsList.size());
+            assertThat(testList.remove(elementsList.get(index))).isTrue();
+            elementsList.remove(elementsList.get(index));
+            int from = random.nextInt(elementsList.size() + 1);
+            int to = from + random.nextInt(Math.min(3, elementsList.size() - from) + 1);
+            elementsList.subList(from, to).clear();
+            testList.removeRange(from, to);
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            assertReference();
+        }
+        IndexedTreeList<Long> tail = testList.splitAt(elementsList.size() / 2);
+        assertThat(tail.getBalancing()).isEqualTo(balancing);
+        testList.concat(tail);
+        assertReference();
+        while (testList.size() > iterations / 2) {
+            int index = random.nextInt(elementsList.size());
+            elementsList.remove(index);
+            testList.remove(index);
+            elementsSet.clear();
+            elementsSet.addAll(elementsList);
+            assertReference();
+        }
+        testList.setBalancing(TreeBalancing.AVL);
+        assertReference();
+    }
+
+    @Test
+    public void fingerSearch() {
+        assertThat(testList.isFingerSearch()).isFalse();
+        testList.setFingerSearch(true);
+        init();
+        int index = 0;
+        for (int i = 0; i < iterations * 10; i++) {
+            // random walk by index mixed with modifications which invalidate finger
+            index = Math.floorMod(index + random.nextInt(9) - 4, elementsList.size());
+            assertThat(testList.get(index)).isEqualTo(elementsList.get(index));
+            switch (random.nextInt(8)) {
+                case 0:
+                    testList.add(index, addRandom(index));
+                    break;
+                case 1:
+                    removeByIndex(index);
+                    testList.remove(index);
+                    if (elementsList.isEmpty()) {
+                        testList.add(addRandom());
+                    }
+                    break;
+                case 2:
+                    Long value = getRandomNotExisting();
+                    elementsSet.remove(elementsList.set(index, value));
+                    elementsSet.add(value);
+                    testList.set(index, value);
+                    break;
+                case 3:
+                    int from = Math.min(index, elementsList.size());
+                    assertThat(testList.listIterator(from).hasNext()).isEqualTo(from < elementsList.size());
+                    if (from < elementsList.size()) {
+                        assertThat(testList.listIterator(from).next()).isEqualTo(elementsList.get(from));
+                    }
+                    break;
+                default:
+            }
+            index = Math.min(index, elementsList.size() - 1);
+        }
+        assertReference();
+        testList.setFingerSearch(false);
+        assertThat(testList.isFingerSearch()).isFalse();
+        for (int i = 0; i < elementsList.size(); i++) {
+            assertThat(testList.get(i)).isEqualTo(elementsList.get(i));
+        }
+    }
+
+    @Test
+    public void positionCaching() {
+        assertThat(testList.isPositionCaching()).isFalse();
+        init();
+        testList.setPositionCaching(true);
+        assertThat(testList.isPositionCaching()).isTrue();
+        assertReference();
+        for (int i = 0; i < iterations; i++) {
+            // several searches between modifications, so cached positions are reused
+            for (int j = 0; j < 10; j++) {
+                Long value = getRandomExisting();
+                assertThat(testList.indexOf(value)).isEqualTo(elementsList.indexOf(value));
+                assertThat(testList.lastIndexOf(value)).isEqualTo(elementsList.lastIndexOf(value));
+            }
+            int index = random.nextInt(elementsList.size() + 1);
+            switch (random.nextInt(4)) {
+                case 0:
+                    Long existing = getRandomExisting();
+                    elementsList.add(index, existing);
+                    testList.add(index, existing);
+                    break;
+                case 1:
+                    if (index < elementsList.size()) {
+                        removeByIndex(index);
+                        testList.remove(index);
+                    }
+                    break;
+                case 2:
+                    // positions cached in other list should not be used after concatenation
+                    IndexedTreeList<Long> tail = testList.splitAt(index);
+                    List<Long> expectedTail = elementsList.subList(index, elementsList.size());
+                    for (Long value : expectedTail) {
+                        assertThat(tail.indexOf(value)).isEqualTo(expectedTail.indexOf(value));
+                    }
+                    testList.concat(tail);
+                    break;
+                default:
+                    testList.add(addRandom(elementsList.size()));
+        int distance = random.nextInt(elementsList.size() + 1);
+                    Collections.rotate(elementsList, distance);
+                    testList.rotate(distance);
+            }
+            if (elementsList.isEmpty()) {
+                testList.add(addRandom());
+            }
+        }
+        elementsSet.clear();
+        elementsSet.addAll(elementsList);
+        assertReference();
+        assertIndexes();
+        for (int i = 0; i < elementsList.size(); i++) {
+            assertThat(testList.indexOf(elementsList.get(i))).isEqualTo(elementsList.indexOf(elementsList.get(i)));
+        }
+        testList.setPositionCaching(false);
+        assertThat(testList.isPositionCaching()).isFalse();
+        assertReference();
+    }
+
     private void init() {
         for (int i = 0; i < iterations; i++) {
             int index = random.nextInt(elementsList.size() + 1);
@@ -457,6 +1110,17 @@ public class IndexedTreeListTest {
         removedList.add(value);
     }
 
+    private void assertIndexes() {
+        Map<Long, List<Integer>> indexes = new HashMap<>();
+        for (int i = 0; i < elementsList.size(); i++) {
+            indexes.computeIfAbsent(elementsList.get(i), k -> new ArrayList()).add(i);
+        }
+        for (Entry<Long, List<Integer>> entry : indexes.entrySet()) {
+            assertThat(testList.indexes(entry.getKey()))
+                    .containsExactly(entry.getValue().stream().mapToInt(i->i).toArray());
+        }
+    }
+
     private void assertReference() {
         assertThat(testList).hasSameSizeAs(elementsList);
         assertThat(testList).isEqualTo(elementsList);
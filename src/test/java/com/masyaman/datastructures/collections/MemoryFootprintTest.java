@@ -0,0 +1,244 @@
+package com.masyaman.datastructures.collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openjdk.jol.datamodel.DataModel;
+import org.openjdk.jol.datamodel.Model64;
+import org.openjdk.jol.datamodel.Model64_Lilliput;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.layouters.HotSpotLayouter;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks memory used by AVLNode and per element of lists, measured by JOL.
+ * Legacy node layout (separate height and two boolean flags) is used as "before".
+ */
+public class MemoryFootprintTest {
+
+    private static final int SIZE = 10000;
+
+    /**
+     * Layout of AVLNode before height and thread flags were packed into one field. Legacy node was a non-static
+     * inner class, so it kept hidden reference to the list. It's declared explicitly, as newer javac omits
+     * this reference if it's not used.
+     */
+    @SuppressWarnings("unused")
+    private static class LegacyAVLNode {
+        private LegacyTreeList outer;
+        private LegacyAVLNode parent;
+        private LegacyAVLNode left;
+        private boolean leftIsPrevious;
+        private LegacyAVLNode right;
+        private boolean rightIsNext;
+        private int height;
+        private int relativePosition;
+        private Object value;
+    }
+
+    /**
+     * Fields of the list before node layout was changed. IndexedTreeListSet mapped values to nodes,
+     * IndexedTreeList mapped values to TreeSet of nodes ordered by comparator of the list.
+     */
+    @SuppressWarnings("unused")
+    private static class LegacyTreeList {
+        private LegacyAVLNode root;
+        private int size;
+        private int modCount;
+        private Comparator<LegacyAVLNode> nodeComparator;
+        private Map<Object, Object> nodeMap = new HashMap<>();
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        // lambdas are hidden classes, JOL can't get their field offsets without this option
+        System.setProperty("jol.magicFieldOffset", "true");
+    }
+
+    @Test
+    public void nodeSize() {
+        Map<String, DataModel> models = new LinkedHashMap<>();
+        models.put("compressed oops", new Model64(true, true));
+        models.put("uncompressed oops", new Model64(false, false));
+        models.put("compact headers", new Model64_Lilliput(true, 8, false));
+        for (Map.Entry<String, DataModel> entry : models.entrySet()) {
+            HotSpotLayouter layouter = new HotSpotLayouter(entry.getValue(), 17);
+            long before = ClassLayout.parseClass(LegacyAVLNode.class, layouter).instanceSize();
+            long after = ClassLayout.parseClass(AbstractIndexedTreeList.AVLNode.class, layouter).instanceSize();
+            long ordered = ClassLayout.parseClass(IndexedTreeList.OrderedNode.class, layouter).instanceSize();
+            // ordered nodes keep labels, so they may fill the space saved by packed flags
+            assertThat(after).as(entry.getKey()).isLessThan(before);
+            assertThat(ordered).as(entry.getKey()).isLessThanOrEqualTo(before);
+        }
+    }
+
+    @Test
+    public void bytesPerElement() {
+        List<Long> values = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < SIZE; i++) {
+            values.add(random.nextLong());
+        }
+        long valuesSize = GraphLayout.parseInstance(values.toArray()).totalSize();
+
+        double legacySetSize = legacyBytesPerElement(values, false, valuesSize);
+        double legacyListSize = legacyBytesPerElement(values, true, valuesSize);
+        assertThat(bytesPerElement(new IndexedTreeListSet<>(values), valuesSize)).isLessThan(legacySetSize);
+        assertThat(bytesPerElement(new IndexedTreeList<>(values), valuesSize)).isLessThan(legacyListSize);
+        checkHashIndex(new IndexedTreeListSet<>(values),
+                new IndexedTreeListSet<>(values, HashingStrategy.defaultStrategy()), valuesSize);
+
+        checkChunked(new IndexedChunkedListSet<>(values), new IndexedTreeListSet<>(values), valuesSize, random);
+        checkChunked(new IndexedChunkedList<>(values), new IndexedTreeList<>(values), valuesSize, random);
+    }
+
+    private void checkChunked(AbstractIndexedChunkedList<Long> appended, AbstractIndexedTreeList<Long> tree,
+                              long valuesSize, Random random) {
+        // random insertions leave leaves partially filled, appended elements are packed densely
+        AbstractIndexedChunkedList<Long> inserted = appended instanceof Set
+                ? new IndexedChunkedListSet<>() : new IndexedChunkedList<>();
+        for (Long value : appended) {
+            inserted.add(random.nextInt(inserted.size() + 1), value);
+        }
+        double treeSize = bytesPerElement(tree, valuesSize);
+        double appendedSize = (double) (GraphLayout.parseInstance(appended).totalSize() - valuesSize) / appended.size();
+        double insertedSize = (double) (GraphLayout.parseInstance(inserted).totalSize() - valuesSize) / inserted.size();
+        assertThat(appendedSize).isLessThan(treeSize);
+        assertThat(insertedSize).isLessThan(treeSize);
+    }
+
+    @Test
+    public void primitiveBytesPerElement() {
+        Random random = new Random(1);
+        List<Integer> ints = new ArrayList<>();
+        List<Long> longs = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            ints.add(random.nextInt());
+            longs.add((long) random.nextInt(SIZE / 10));
+        }
+        // boxed values are counted as they are kept by list
+        double boxedSet = (double) GraphLayout.parseInstance(new IndexedTreeListSet<>(ints)).totalSize() / SIZE;
+        double intSet = (double) GraphLayout.parseInstance(new IndexedIntTreeListSet(ints)).totalSize() / SIZE;
+        assertThat(intSet).isLessThan(boxedSet);
+
+        double boxedList = (double) GraphLayout.parseInstance(new IndexedTreeList<>(longs)).totalSize() / SIZE;
+        double longList = (double) GraphLayout.parseInstance(new IndexedLongTreeList(longs)).totalSize() / SIZE;
+        assertThat(longList).isLessThan(boxedList);
+    }
+
+    @Test
+    public void rangeListBytes() {
+        // id blocks of 1000 consecutive values with gaps between them
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            ids.add(i + i / 1000 * 10);
+        }
+        IndexedIntRangeList rangeList = new IndexedIntRangeList(ids);
+        double intSet = (double) GraphLayout.parseInstance(new IndexedIntTreeListSet(ids)).totalSize() / SIZE;
+        double ranges = (double) GraphLayout.parseInstance(rangeList).totalSize() / SIZE;
+        assertThat(rangeList.runCount()).isEqualTo(SIZE / 1000);
+        assertThat(ranges).isLessThan(1);
+        assertThat(ranges).isLessThan(intSet / 10);
+    }
+
+    @Test
+    public void runLengthBytes() {
+        // status timeline with stretches of 100 equal values
+        String[] statuses = {"IDLE", "BUSY", "DOWN"};
+        List<String> timeline = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            timeline.add(statuses[i / 100 % statuses.length]);
+        }
+        IndexedRunLengthList<String> runLengthList = new IndexedRunLengthList<>(timeline);
+        double treeList = (double) GraphLayout.parseInstance(new IndexedTreeList<>(timeline)).totalSize() / SIZE;
+        double runs = (double) GraphLayout.parseInstance(runLengthList).totalSize() / SIZE;
+        assertThat(runLengthList.runCount()).isEqualTo(SIZE / 100);
+        assertThat(runs).isLessThan(treeList / 10);
+    }
+
+    @Test
+    public void arrayTreeObjectsPerElement() {
+        Random random = new Random(1);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            values.add(random.nextLong());
+        }
+        long valuesSize = GraphLayout.parseInstance(values.toArray()).totalSize();
+        // GC marks every reachable object, values are excluded from counts as both lists keep them
+        GraphLayout nodes = GraphLayout.parseInstance(new IndexedTreeListSet<>(values));
+        GraphLayout arrays = GraphLayout.parseInstance(new IndexedArrayTreeListSet<>(values));
+        GraphLayout big = GraphLayout.parseInstance(new BigIndexedTreeListSet<>(values));
+        double nodesObjects = (double) (nodes.totalCount() - SIZE) / SIZE;
+        double arraysObjects = (double) (arrays.totalCount() - SIZE) / SIZE;
+        double bigObjects = (double) (big.totalCount() - SIZE) / SIZE;
+        double nodesSize = (double) (nodes.totalSize() - valuesSize) / SIZE;
+        double arraysSize = (double) (arrays.totalSize() - valuesSize) / SIZE;
+        double bigSize = (double) (big.totalSize() - valuesSize) / SIZE;
+        assertThat(arraysObjects).isLessThan(nodesObjects / 100);
+        assertThat(bigObjects).isLessThan(nodesObjects / 100);
+        assertThat(arraysSize).isLessThan(nodesSize);
+        assertThat(bigSize).isLessThan(nodesSize);
+    }
+
+    @Test
+    public void smallListBytes() {
+        // many tiny lists, values are excluded as both lists keep them
+        for (int listSize : new int[] {0, 4, 16, 32}) {
+            List<Long> values = new ArrayList<>();
+            for (long i = 0; i < listSize; i++) {
+                values.add(i);
+            }
+            long valuesSize = GraphLayout.parseInstance(values.toArray()).totalSize();
+            long tree = GraphLayout.parseInstance(new IndexedTreeListSet<>(values)).totalSize() - valuesSize;
+            long hybrid = GraphLayout.parseInstance(new HybridIndexedTreeListSet<>(values)).totalSize() - valuesSize;
+            assertThat(hybrid).isLessThan(tree);
+        }
+    }
+
+    private void checkHashIndex(IndexedTreeListSet<Long> mapped, IndexedTreeListSet<Long> hashed, long valuesSize) {
+        assertThat(bytesPerElement(hashed, valuesSize)).isLessThan(bytesPerElement(mapped, valuesSize));
+    }
+
+    /**
+     * Build list of legacy nodes and measure it. Nodes are mapped directly for set or wrapped into TreeSet for list.
+     */
+    private double legacyBytesPerElement(List<Long> values, boolean wrapped, long valuesSize) {
+        LegacyTreeList list = new LegacyTreeList();
+        list.nodeComparator = Comparator.comparingInt(node -> node.relativePosition);
+        LegacyAVLNode[] nodes = new LegacyAVLNode[values.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new LegacyAVLNode();
+            nodes[i].outer = list;
+            nodes[i].value = values.get(i);
+            if (wrapped) {
+                TreeSet<LegacyAVLNode> set = new TreeSet<>(list.nodeComparator);
+                set.add(nodes[i]);
+                list.nodeMap.put(values.get(i), set);
+            } else {
+                list.nodeMap.put(values.get(i), nodes[i]);
+            }
+        }
+        list.root = linkLegacyTree(nodes, 0, nodes.length - 1, null);
+        list.size = nodes.length;
+        return (double) (GraphLayout.parseInstance(list).totalSize() - valuesSize) / list.size;
+    }
+
+    private LegacyAVLNode linkLegacyTree(LegacyAVLNode[] nodes, int from, int to, LegacyAVLNode parent) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        LegacyAVLNode node = nodes[middle];
+        node.parent = parent;
+        node.left = linkLegacyTree(nodes, from, middle - 1, node);
+        node.right = linkLegacyTree(nodes, middle + 1, to, node);
+        return node;
+    }
+
+    private double bytesPerElement(AbstractIndexedTreeList<Long> list, long valuesSize) {
+        return (double) (GraphLayout.parseInstance(list).totalSize() - valuesSize) / list.size();
+    }
+}